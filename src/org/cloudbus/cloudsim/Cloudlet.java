@@ -10,6 +10,7 @@ package org.cloudbus.cloudsim;
 
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -79,8 +80,11 @@ public class Cloudlet {
 	/** The history. */
 	private StringBuffer history;
 
-	/** The res list. */
-	private final List<Resource> resList;
+	/** The resource this Cloudlet is currently allocated to. */
+	private Resource resource;
+
+	/** The res list, only created when this Cloudlet moves to a second resource. */
+	private List<Resource> resList;
 
 	/** The index. */
 	private int index;
@@ -189,11 +193,6 @@ public class Cloudlet {
 				utilizationModelRam,
 				utilizationModelBw,
 				false);
-		vmId = -1;
-		accumulatedBwCost = 0.0;
-		costPerBw = 0.0;
-
-		requiredFiles = new LinkedList<String>();
 	}
 
 	/**
@@ -343,9 +342,8 @@ public class Cloudlet {
 		this.cloudletOutputSize = Math.max(1, cloudletOutputSize);
 
 		// Normally, a Cloudlet is only executed on a resource without being
-		// migrated to others. Hence, to reduce memory consumption, set the
-		// size of this ArrayList to be less than the default one.
-		resList = new ArrayList<Resource>(2);
+		// migrated to others. Hence, to reduce memory consumption, the list
+		// of resources is only created when it moves to another one.
 		index = -1;
 		this.record = record;
 
@@ -353,7 +351,8 @@ public class Cloudlet {
 		accumulatedBwCost = 0.0;
 		costPerBw = 0.0;
 
-		requiredFiles = new LinkedList<String>();
+		// the list of required files is created when a file is added
+		requiredFiles = null;
 
 		setUtilizationModelCpu(utilizationModelCpu);
 		setUtilizationModelRam(utilizationModelRam);
@@ -494,7 +493,7 @@ public class Cloudlet {
 		}
 
 		// use the latest resource submission time
-		final double subTime = resList.get(index).submissionTime;
+		final double subTime = resource.submissionTime;
 		return execStartTime - subTime;
 	}
 
@@ -591,7 +590,7 @@ public class Cloudlet {
 			return cloudletLength;
 		}
 
-		final long finish = resList.get(index).finishedSoFar;
+		final long finish = resource.finishedSoFar;
 		if (finish > cloudletLength) {
 			return cloudletLength;
 		}
@@ -614,7 +613,7 @@ public class Cloudlet {
 		boolean completed = false;
 
 		// if result is 0 or -ve then this Cloudlet has finished
-		final long finish = resList.get(index).finishedSoFar;
+		final long finish = resource.finishedSoFar;
 		final long result = cloudletLength - finish;
 		if (result <= 0.0) {
 			completed = true;
@@ -639,7 +638,7 @@ public class Cloudlet {
 			return;
 		}
 
-		final Resource res = resList.get(index);
+		final Resource res = resource;
 		res.finishedSoFar = length;
 
 		if (record) {
@@ -684,7 +683,7 @@ public class Cloudlet {
 		if (index == -1) {
 			return -1;
 		}
-		return resList.get(index).resourceId;
+		return resource.resourceId;
 	}
 
 	/**
@@ -728,18 +727,25 @@ public class Cloudlet {
 		res.resourceName = CloudSim.getEntityName(resourceID);
 
 		// add into a list if moving to a new grid resource
-		resList.add(res);
+		if (resource != null) {
+			if (resList == null) {
+				resList = new ArrayList<Resource>(2);
+				resList.add(resource);
+			}
+			resList.add(res);
+		}
 
 		if (index == -1 && record) {
 			write("Allocates this Cloudlet to " + res.resourceName + " (ID #" + resourceID
 					+ ") with cost = $" + cost + "/sec");
 		} else if (record) {
-			final int id = resList.get(index).resourceId;
-			final String name = resList.get(index).resourceName;
+			final int id = resource.resourceId;
+			final String name = resource.resourceName;
 			write("Moves Cloudlet from " + name + " (ID #" + id + ") to " + res.resourceName + " (ID #"
 					+ resourceID + ") with cost = $" + cost + "/sec");
 		}
 
+		resource = res;
 		index++;  // initially, index = -1
 	}
 
@@ -755,7 +761,7 @@ public class Cloudlet {
 			return;
 		}
 
-		final Resource res = resList.get(index);
+		final Resource res = resource;
 		res.submissionTime = clockTime;
 
 		if (record) {
@@ -774,7 +780,7 @@ public class Cloudlet {
 		if (index == -1) {
 			return 0.0;
 		}
-		return resList.get(index).submissionTime;
+		return resource.submissionTime;
 	}
 
 	/**
@@ -821,7 +827,7 @@ public class Cloudlet {
 			return;
 		}
 
-		final Resource res = resList.get(index);
+		final Resource res = resource;
 		res.wallClockTime = wallTime;
 		res.actualCPUTime = actualTime;
 
@@ -976,7 +982,7 @@ public class Cloudlet {
 		if (index == -1) {
 			return 0.0;
 		}
-		return resList.get(index).costPerSec;
+		return resource.costPerSec;
 	}
 
 	/**
@@ -991,7 +997,7 @@ public class Cloudlet {
 		if (index == -1) {
 			return 0.0;
 		}
-		return resList.get(index).wallClockTime;
+		return resource.wallClockTime;
 	}
 
 	/**
@@ -1002,13 +1008,14 @@ public class Cloudlet {
 	 * @post $none
 	 */
 	public String[] getAllResourceName() {
-		final int size = resList.size();
+		final List<Resource> resources = getResources();
+		final int size = resources.size();
 		String[] data = null;
 
 		if (size > 0) {
 			data = new String[size];
 			for (int i = 0; i < size; i++) {
-				data[i] = resList.get(i).resourceName;
+				data[i] = resources.get(i).resourceName;
 			}
 		}
 
@@ -1023,13 +1030,14 @@ public class Cloudlet {
 	 * @post $none
 	 */
 	public int[] getAllResourceId() {
-		final int size = resList.size();
+		final List<Resource> resources = getResources();
+		final int size = resources.size();
 		int[] data = null;
 
 		if (size > 0) {
 			data = new int[size];
 			for (int i = 0; i < size; i++) {
-				data[i] = resList.get(i).resourceId;
+				data[i] = resources.get(i).resourceId;
 			}
 		}
 
@@ -1144,14 +1152,29 @@ public class Cloudlet {
 	 * @return the resource by id
 	 */
 	public Resource getResourceById(final int resourceId) {
-		for (Resource resource : resList) {
-			if (resource.resourceId == resourceId) {
-				return resource;
+		for (Resource res : getResources()) {
+			if (res.resourceId == resourceId) {
+				return res;
 			}
 		}
 		return null;
 	}
 
+	/**
+	 * Gets the resources this Cloudlet was allocated to, in allocation order.
+	 * 
+	 * @return the resources
+	 */
+	private List<Resource> getResources() {
+		if (resList != null) {
+			return resList;
+		}
+		if (resource == null) {
+			return Collections.emptyList();
+		}
+		return Collections.singletonList(resource);
+	}
+
 	/**
 	 * Gets the finish time of this Cloudlet in a CloudResource.
 	 * 
@@ -1295,9 +1318,12 @@ public class Cloudlet {
 	/**
 	 * Gets the required files.
 	 * 
-	 * @return the required files
+	 * @return the required files, or an empty list if no file was added
 	 */
 	public List<String> getRequiredFiles() {
+		if (requiredFiles == null) {
+			return Collections.emptyList();
+		}
 		return requiredFiles;
 	}
 
@@ -1318,7 +1344,7 @@ public class Cloudlet {
 	 */
 	public boolean addRequiredFile(final String fileName) {
 		// if the list is empty
-		if (getRequiredFiles() == null) {
+		if (requiredFiles == null) {
 			setRequiredFiles(new LinkedList<String>());
 		}
 
@@ -1347,7 +1373,7 @@ public class Cloudlet {
 	 */
 	public boolean deleteRequiredFile(final String filename) {
 		boolean result = false;
-		if (getRequiredFiles() == null) {
+		if (requiredFiles == null) {
 			return result;
 		}
 
@@ -760,6 +760,9 @@ public class Datacenter extends SimEntity {
 	 */
 	protected double predictFileTransferTime(List<String> requiredFiles) {
 		double time = 0.0;
+		if (requiredFiles == null) {
+			return time;
+		}
 
 		Iterator<String> iter = requiredFiles.iterator();
 		while (iter.hasNext()) {
@@ -872,6 +875,10 @@ public class Datacenter extends SimEntity {
 			// for each host...
 			for (int i = 0; i < list.size(); i++) {
 				Host host = list.get(i);
+				// idle hosts have nothing to update and no cloudlet to finish
+				if (host.isIdle()) {
+					continue;
+				}
 				// inform VMs to update processing
 				double time = host.updateVmsProcessing(CloudSim.clock());
 				// what time do we expect that the next cloudlet will finish?
@@ -901,6 +908,9 @@ public class Datacenter extends SimEntity {
 		List<? extends Host> list = getVmAllocationPolicy().getHostList();
 		for (int i = 0; i < list.size(); i++) {
 			Host host = list.get(i);
+			if (host.isIdle()) {
+				continue;
+			}
 			for (Vm vm : host.getVmList()) {
 				while (vm.getCloudletScheduler().isFinishedCloudlets()) {
 					Cloudlet cl = vm.getCloudletScheduler().getNextFinishedCloudlet();
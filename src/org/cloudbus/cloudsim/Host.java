@@ -104,6 +104,16 @@ public class Host {
 		return smallerTime;
 	}
 
+	/**
+	 * Checks if the host is idle, i.e. if updating the processing of its VMs would have no effect as
+	 * it runs none. Datacenters do not update the processing of idle hosts.
+	 * 
+	 * @return true, if the host is idle
+	 */
+	public boolean isIdle() {
+		return getVmList().isEmpty() && getVmsMigratingIn().isEmpty();
+	}
+
 	/**
 	 * Adds the migrating in vm.
 	 * 
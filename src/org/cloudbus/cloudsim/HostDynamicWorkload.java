@@ -139,6 +139,18 @@ public class HostDynamicWorkload extends Host {
 		return smallerTime;
 	}
 
+	/**
+	 * Checks if the host is idle. A host running no VM is only idle once its utilization and previous
+	 * utilization have been updated to zero, so that its energy over the next time frames is zero. No
+	 * state history entry is added while the host stays idle.
+	 * 
+	 * @return true, if the host is idle
+	 */
+	@Override
+	public boolean isIdle() {
+		return super.isIdle() && getUtilizationMips() == 0 && getPreviousUtilizationMips() == 0;
+	}
+
 	/**
 	 * Gets the completed vms.
 	 * 
@@ -11,9 +11,14 @@ package org.cloudbus.cloudsim;
 import java.io.IOException;
 import java.io.OutputStream;
 
+import org.cloudbus.cloudsim.core.SimulationContext;
+
 /**
  * The Log class used for performing loggin of the simulation process. It provides the ability to
  * substitute the output stream by any OutputStream subclass.
+ * <p>
+ * The output is shared by all the simulations of the JVM, so concurrent replications should set it up
+ * before they start.
  * 
  * @author Anton Beloglazov
  * @since CloudSim Toolkit 2.0
@@ -116,6 +121,7 @@ public class Log {
 	 * @param _output the new output
 	 */
 	public static void setOutput(OutputStream _output) {
+		SimulationContext.checkSharedStateChange("The log output");
 		output = _output;
 	}
 
@@ -126,7 +132,7 @@ public class Log {
 	 */
 	public static OutputStream getOutput() {
 		if (output == null) {
-			setOutput(System.out);
+			output = System.out;
 		}
 		return output;
 	}
@@ -137,6 +143,7 @@ public class Log {
 	 * @param _disabled the new disabled
 	 */
 	public static void setDisabled(boolean _disabled) {
+		SimulationContext.checkSharedStateChange("The log output");
 		disabled = _disabled;
 	}
 
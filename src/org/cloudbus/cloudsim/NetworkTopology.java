@@ -13,7 +13,9 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 
+import org.cloudbus.cloudsim.core.SimulationContext;
 import org.cloudbus.cloudsim.network.DelayMatrix_Float;
+import org.cloudbus.cloudsim.network.DijkstraDelayCache;
 import org.cloudbus.cloudsim.network.GraphReaderBrite;
 import org.cloudbus.cloudsim.network.TopologicalGraph;
 import org.cloudbus.cloudsim.network.TopologicalLink;
@@ -29,6 +31,14 @@ import org.cloudbus.cloudsim.network.TopologicalNode;
  * Nevertheless, each CloudSim entity must be mapped to one (and only one) BRITE node to allow
  * proper work of the network simulation. Each BRITE node can be mapped to only one entity at a
  * time.
+ * <p>
+ * Links added with {@link #addLink(int, int, double, double)} do not regenerate the matrices: they
+ * are generated once, on the first delay requested after the links were added. For topologies whose
+ * delay matrix would not fit in memory, {@link #setSparseDelays(int)} replaces the matrices with
+ * delays computed on demand.
+ * <p>
+ * The topology is shared by all the simulations of the JVM. Concurrent replications must build it before
+ * they start, and can't change it while they run.
  * 
  * @author Rodrigo N. Calheiros
  * @author Anton Beloglazov
@@ -48,6 +58,15 @@ public class NetworkTopology {
 
 	protected static Map<Integer, Integer> map = null;
 
+	/** The delays computed on demand, used instead of the matrices if not null. */
+	protected static DijkstraDelayCache sparseDelays = null;
+
+	/** The number of sources whose delays are cached, or 0 to generate the matrices. */
+	private static int sparseCachedSources = 0;
+
+	/** Whether links were added since the matrices were generated. */
+	private static volatile boolean matricesOutdated = false;
+
 	/**
 	 * Creates the network topology if file exists and if file can be succesfully parsed. File is
 	 * written in the BRITE format and contains topologycal information on simulation entities.
@@ -57,6 +76,7 @@ public class NetworkTopology {
 	 * @post $none
 	 */
 	public static void buildNetworkTopology(String fileName) {
+		SimulationContext.checkSharedStateChange("The network topology");
 		Log.printLine("Topology file: " + fileName);
 
 		// try to find the file
@@ -78,15 +98,54 @@ public class NetworkTopology {
 	 * Generates the matrices used internally to set latency and bandwidth between elements
 	 */
 	private static void generateMatrices() {
-		// creates the delay matrix
-		delayMatrix = new DelayMatrix_Float(graph, false);
-
-		// creates the bw matrix
-		bwMatrix = createBwMatrix(graph, false);
+		if (sparseCachedSources > 0) {
+			sparseDelays = new DijkstraDelayCache(graph, false, sparseCachedSources);
+			delayMatrix = null;
+			bwMatrix = null;
+		} else {
+			// creates the delay matrix
+			delayMatrix = new DelayMatrix_Float(graph, false);
+
+			// creates the bw matrix
+			bwMatrix = createBwMatrix(graph, false);
+			sparseDelays = null;
+		}
 
+		matricesOutdated = false;
 		networkEnabled = true;
 	}
 
+	/**
+	 * Generates the matrices if links were added since they were last generated.
+	 */
+	private static synchronized void updateMatrices() {
+		if (matricesOutdated) {
+			generateMatrices();
+		}
+	}
+
+	/**
+	 * Sets whether the delays are computed on demand, with Dijkstra's algorithm, instead of being held
+	 * in a delay matrix of the size of the square of the number of nodes. The delays from the most
+	 * recently used sources are cached. No bandwidth matrix is generated in this mode.
+	 * 
+	 * @param cachedSources the number of sources whose delays are cached, or 0 to use the matrices
+	 * @pre cachedSources >= 0
+	 * @post $none
+	 */
+	public static synchronized void setSparseDelays(int cachedSources) {
+		if (cachedSources < 0) {
+			throw new IllegalArgumentException("The number of cached sources must not be negative");
+		}
+		SimulationContext.checkSharedStateChange("The network topology");
+		if (cachedSources != sparseCachedSources) {
+			sparseCachedSources = cachedSources;
+			if (graph != null) {
+				matricesOutdated = true;
+			}
+		}
+	}
+
 	/**
 	 * Adds a new link in the network topology
 	 * 
@@ -99,6 +158,7 @@ public class NetworkTopology {
 	 * @post $none
 	 */
 	public static void addLink(int srcId, int destId, double bw, double lat) {
+		SimulationContext.checkSharedStateChange("The network topology");
 
 		if (graph == null) {
 			graph = new TopologicalGraph();
@@ -124,7 +184,9 @@ public class NetworkTopology {
 		// generate a new link
 		graph.addLink(new TopologicalLink(map.get(srcId), map.get(destId), (float) lat, (float) bw));
 
-		generateMatrices();
+		// the matrices are generated once all the links are added
+		matricesOutdated = true;
+		networkEnabled = true;
 
 	}
 
@@ -171,6 +233,7 @@ public class NetworkTopology {
 	 * @post $none
 	 */
 	public static void mapNode(int cloudSimEntityID, int briteID) {
+		SimulationContext.checkSharedStateChange("The network topology");
 		if (networkEnabled) {
 			try {
 				// this CloudSim entity was already mapped?
@@ -199,6 +262,7 @@ public class NetworkTopology {
 	 * @post $none
 	 */
 	public static void unmapNode(int cloudSimEntityID) {
+		SimulationContext.checkSharedStateChange("The network topology");
 		if (networkEnabled) {
 			try {
 				map.remove(cloudSimEntityID);
@@ -221,8 +285,17 @@ public class NetworkTopology {
 	public static double getDelay(int srcID, int destID) {
 		if (networkEnabled) {
 			try {
+				if (matricesOutdated) {
+					updateMatrices();
+				}
+
 				// add the network latency
-				double delay = delayMatrix.getDelay(map.get(srcID), map.get(destID));
+				double delay;
+				if (sparseDelays != null) {
+					delay = sparseDelays.getDelay(map.get(srcID), map.get(destID));
+				} else {
+					delay = delayMatrix.getDelay(map.get(srcID), map.get(destID));
+				}
 
 				return delay;
 			} catch (Exception e) {
@@ -0,0 +1,331 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A read-only store of PlanetLab-like utilization traces, memory-mapped from a binary file. A trace
+ * folder is converted once into the store file, which holds the samples of each trace contiguously;
+ * the store is then shared by the {@link UtilizationModelPlanetLabMapped} models of all the VMs, so
+ * that traces are neither parsed at every run nor copied into each model.
+ *
+ * The samples are those {@link UtilizationModelPlanetLabInMemory} would read from the trace files:
+ * the first samples are read from the lines of the file as percentages, and the last one repeats the
+ * previous sample.
+ *
+ * @since CloudSim Toolkit 3.0
+ */
+public class PlanetLabTraceStore {
+
+	/**
+	 * The encodings of the samples in the store file.
+	 */
+	public enum Encoding {
+
+		/** Integer percentages in two bytes, exact for PlanetLab traces. */
+		SHORT(2),
+
+		/** Utilization quantised to a float. */
+		FLOAT(4),
+
+		/** Utilization as a double. */
+		DOUBLE(8);
+
+		/** The size of a sample in bytes. */
+		private final int size;
+
+		private Encoding(int size) {
+			this.size = size;
+		}
+
+		/**
+		 * Gets the size of a sample.
+		 *
+		 * @return the size in bytes
+		 */
+		public int getSize() {
+			return size;
+		}
+	}
+
+	/** The magic number starting store files. */
+	private static final int MAGIC = 0x504C5453;
+
+	/** The version of the store file format. */
+	private static final int VERSION = 1;
+
+	/** The size of the header preceding the trace names. */
+	private static final int HEADER_SIZE = 24;
+
+	/** The mapped store file. */
+	private final ByteBuffer buffer;
+
+	/** The encoding of the samples. */
+	private final Encoding encoding;
+
+	/** The number of samples of each trace. */
+	private final int dataSamples;
+
+	/** The names of the traces, in the order of the store. */
+	private final List<String> traceNames;
+
+	/** The indexes of the traces by name. */
+	private final Map<String, Integer> traceIndexes;
+
+	/** The offset of the samples of the first trace. */
+	private final int dataOffset;
+
+	/**
+	 * Opens a store file.
+	 *
+	 * @param storePath the path of the store file
+	 * @throws IOException Signals that an I/O exception has occurred, or that the file is not a store.
+	 */
+	public PlanetLabTraceStore(String storePath) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(storePath, "r");
+		try {
+			if (file.length() > Integer.MAX_VALUE) {
+				throw new IOException("Trace store " + storePath + " is larger than 2 GB");
+			}
+			buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+		} finally {
+			// the mapping remains valid after the file is closed
+			file.close();
+		}
+
+		if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+			throw new IOException(storePath + " is not a trace store");
+		}
+		int encodingOrdinal = buffer.getInt(8);
+		if (encodingOrdinal < 0 || encodingOrdinal >= Encoding.values().length) {
+			throw new IOException("Trace store " + storePath + " has an unknown encoding: " + encodingOrdinal);
+		}
+		encoding = Encoding.values()[encodingOrdinal];
+		int traceCount = buffer.getInt(12);
+		dataSamples = buffer.getInt(16);
+		int namesLength = buffer.getInt(20);
+		if (traceCount < 0 || dataSamples < 0 || namesLength < 0
+				|| namesLength > buffer.limit() - HEADER_SIZE) {
+			throw new IOException("Trace store " + storePath + " has a corrupted header");
+		}
+
+		byte[] names = new byte[namesLength];
+		ByteBuffer namesBuffer = buffer.duplicate();
+		namesBuffer.position(HEADER_SIZE);
+		namesBuffer.get(names);
+		DataInputStream namesInput = new DataInputStream(new ByteArrayInputStream(names));
+		List<String> traceNames = new ArrayList<String>(traceCount);
+		traceIndexes = new HashMap<String, Integer>();
+		for (int i = 0; i < traceCount; i++) {
+			String name = namesInput.readUTF();
+			traceNames.add(name);
+			traceIndexes.put(name, i);
+		}
+		this.traceNames = Collections.unmodifiableList(traceNames);
+		dataOffset = HEADER_SIZE + namesLength;
+
+		if (buffer.limit() < dataOffset + (long) traceCount * dataSamples * encoding.getSize()) {
+			throw new IOException("Trace store " + storePath + " is truncated");
+		}
+	}
+
+	/**
+	 * Converts the trace files of a folder into a store file. The traces are stored in the order of
+	 * their file names.
+	 *
+	 * @param inputFolder the folder of the trace files, one sample per line
+	 * @param storePath the path of the store file
+	 * @param dataSamples the number of samples of each trace, including the repeated last one
+	 * @param encoding the encoding of the samples
+	 * @throws IOException Signals that an I/O exception has occurred, or that a trace has too few
+	 *             samples or cannot be encoded.
+	 */
+	public static void convert(String inputFolder, String storePath, int dataSamples, Encoding encoding)
+			throws IOException {
+		File[] files = new File(inputFolder).listFiles();
+		if (files == null) {
+			throw new IOException(inputFolder + " is not a folder");
+		}
+		Arrays.sort(files);
+		List<File> traceFiles = new ArrayList<File>();
+		ByteArrayOutputStream names = new ByteArrayOutputStream();
+		DataOutputStream namesOutput = new DataOutputStream(names);
+		for (File file : files) {
+			if (file.isFile()) {
+				traceFiles.add(file);
+				namesOutput.writeUTF(file.getName());
+			}
+		}
+
+		DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(
+				storePath)));
+		try {
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeInt(encoding.ordinal());
+			output.writeInt(traceFiles.size());
+			output.writeInt(dataSamples);
+			output.writeInt(names.size());
+			names.writeTo(output);
+			for (File file : traceFiles) {
+				writeTrace(file, dataSamples, encoding, output);
+			}
+		} finally {
+			output.close();
+		}
+	}
+
+	/**
+	 * Writes the samples of a trace file.
+	 *
+	 * @param file the trace file
+	 * @param dataSamples the number of samples, including the repeated last one
+	 * @param encoding the encoding of the samples
+	 * @param output the output
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private static void writeTrace(File file, int dataSamples, Encoding encoding, DataOutputStream output)
+			throws IOException {
+		BufferedReader input = new BufferedReader(new FileReader(file));
+		try {
+			String line = null;
+			for (int i = 0; i < dataSamples; i++) {
+				// the last sample repeats the previous one
+				if (i < dataSamples - 1) {
+					line = input.readLine();
+					if (line == null) {
+						throw new IOException("Trace " + file + " has fewer than " + (dataSamples - 1)
+								+ " samples");
+					}
+				}
+				switch (encoding) {
+					case SHORT:
+						int percentage = Integer.valueOf(line);
+						if (percentage < Short.MIN_VALUE || percentage > Short.MAX_VALUE) {
+							throw new IOException("Sample " + percentage + " of trace " + file
+									+ " does not fit in a short");
+						}
+						output.writeShort(percentage);
+						break;
+					case FLOAT:
+						output.writeFloat((float) (Double.valueOf(line) / 100.0));
+						break;
+					default:
+						output.writeDouble(Double.valueOf(line) / 100.0);
+						break;
+				}
+			}
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Gets a sample of a trace.
+	 *
+	 * @param trace the index of the trace
+	 * @param sample the index of the sample
+	 * @return the utilization
+	 */
+	public double getUtilization(int trace, int sample) {
+		if (sample < 0 || sample >= dataSamples) {
+			throw new IndexOutOfBoundsException("Sample: " + sample + ", Samples: " + dataSamples);
+		}
+		int offset = dataOffset + (trace * dataSamples + sample) * encoding.getSize();
+		switch (encoding) {
+			case SHORT:
+				return buffer.getShort(offset) / 100.0;
+			case FLOAT:
+				return buffer.getFloat(offset);
+			default:
+				return buffer.getDouble(offset);
+		}
+	}
+
+	/**
+	 * Creates a utilization model reading a trace of the store.
+	 *
+	 * @param traceName the name of the trace file
+	 * @param schedulingInterval the scheduling interval
+	 * @return the utilization model
+	 */
+	public UtilizationModel getUtilizationModel(String traceName, double schedulingInterval) {
+		return new UtilizationModelPlanetLabMapped(this, getTraceIndex(traceName), schedulingInterval);
+	}
+
+	/**
+	 * Gets the index of a trace.
+	 *
+	 * @param traceName the name of the trace file
+	 * @return the index of the trace
+	 */
+	public int getTraceIndex(String traceName) {
+		Integer trace = traceIndexes.get(traceName);
+		if (trace == null) {
+			throw new IllegalArgumentException("No trace " + traceName + " in the store");
+		}
+		return trace;
+	}
+
+	/**
+	 * Gets the names of the traces.
+	 *
+	 * @return the names of the trace files, in the order of the store
+	 */
+	public List<String> getTraceNames() {
+		return traceNames;
+	}
+
+	/**
+	 * Gets the number of traces.
+	 *
+	 * @return the number of traces
+	 */
+	public int getTraceCount() {
+		return traceNames.size();
+	}
+
+	/**
+	 * Gets the number of samples of each trace.
+	 *
+	 * @return the number of samples
+	 */
+	public int getDataSamples() {
+		return dataSamples;
+	}
+
+	/**
+	 * Gets the encoding of the samples.
+	 *
+	 * @return the encoding
+	 */
+	public Encoding getEncoding() {
+		return encoding;
+	}
+
+}
@@ -440,6 +440,22 @@ public class ResCloudlet {
 		return (long) Math.floor(length / Consts.MILLION);
 	}
 
+	/**
+	 * Gets the length of the cloudlet to process before less than one MI of it remains, i.e., before
+	 * {@link #getRemainingCloudletLength()} becomes zero.
+	 * 
+	 * @return length in Instructions (I)
+	 * @pre $none
+	 * @post $result >= 0
+	 */
+	public long getLengthToCompletion() {
+		long length = (cloudlet.getCloudletTotalLength() - 1) * Consts.MILLION + 1 - cloudletFinishedSoFar;
+		if (length < 0) {
+			return 0;
+		}
+		return length;
+	}
+
 	/**
 	 * Finalizes all relevant information before <tt>exiting</tt> the CloudResource entity. This
 	 * method sets the final data of:
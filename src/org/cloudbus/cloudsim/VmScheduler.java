@@ -42,6 +42,9 @@ public abstract class VmScheduler {
 	/** The VMs migrating out. */
 	private List<String> vmsMigratingOut;
 
+	/** The number of changes made to the allocation. */
+	private long allocationVersion;
+
 	/**
 	 * Creates a new HostAllocationPolicy.
 	 * 
@@ -221,6 +224,18 @@ public abstract class VmScheduler {
 	 */
 	protected void setAvailableMips(double availableMips) {
 		this.availableMips = availableMips;
+		allocationVersion++;
+	}
+
+	/**
+	 * Gets a counter that changes whenever PEs are allocated or released, so that callers caching
+	 * an allocation can detect that another component has changed it. All the allocation and
+	 * release paths update the free mips, which increments the counter.
+	 * 
+	 * @return the allocation version
+	 */
+	public long getAllocationVersion() {
+		return allocationVersion;
 	}
 
 	/**
@@ -0,0 +1,190 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An {@link EventQueue} backed by an array-based binary min-heap. Adding and polling events costs
+ * O(log n) without any per-event node allocation. Every event remembers its position in the heap,
+ * so removing an arbitrary event is O(log n) as well.
+ *
+ * @since CloudSim Toolkit 3.0
+ * @see EventQueue
+ */
+public class BinaryHeapEventQueue implements EventQueue {
+
+	/** The default initial capacity. */
+	private static final int DEFAULT_CAPACITY = 256;
+
+	/** The heap. */
+	private SimEvent[] heap;
+
+	/** The number of events in the heap. */
+	private int size;
+
+	/**
+	 * Creates a new heap with the default initial capacity.
+	 */
+	public BinaryHeapEventQueue() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a new heap.
+	 *
+	 * @param initialCapacity the initial capacity
+	 */
+	public BinaryHeapEventQueue(int initialCapacity) {
+		heap = new SimEvent[Math.max(initialCapacity, 2)];
+	}
+
+	@Override
+	public void add(SimEvent event) {
+		if (size == heap.length) {
+			heap = Arrays.copyOf(heap, size << 1);
+		}
+		siftUp(size++, event);
+	}
+
+	@Override
+	public SimEvent peek() {
+		return size == 0 ? null : heap[0];
+	}
+
+	@Override
+	public SimEvent poll() {
+		if (size == 0) {
+			return null;
+		}
+		SimEvent first = heap[0];
+		removeAt(0);
+		return first;
+	}
+
+	@Override
+	public boolean remove(SimEvent event) {
+		int index = event.queueIndex;
+		if (index < 0 || index >= size || heap[index] != event) {
+			return false;
+		}
+		removeAt(index);
+		return true;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			heap[i].queueIndex = -1;
+			heap[i] = null;
+		}
+		size = 0;
+	}
+
+	@Override
+	public Iterator<SimEvent> iterator() {
+		return new Iterator<SimEvent>() {
+
+			private int cursor = 0;
+
+			@Override
+			public boolean hasNext() {
+				return cursor < size;
+			}
+
+			@Override
+			public SimEvent next() {
+				if (cursor >= size) {
+					throw new NoSuchElementException();
+				}
+				return heap[cursor++];
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/**
+	 * Removes the event at the given position of the heap.
+	 *
+	 * @param index the position
+	 */
+	private void removeAt(int index) {
+		SimEvent removed = heap[index];
+		removed.queueIndex = -1;
+		int last = --size;
+		SimEvent moved = heap[last];
+		heap[last] = null;
+		if (index != last) {
+			siftDown(index, moved);
+			if (heap[index] == moved) {
+				siftUp(index, moved);
+			}
+		}
+	}
+
+	/**
+	 * Moves an event up from the given position until the heap order is restored.
+	 *
+	 * @param index the position
+	 * @param event the event
+	 */
+	private void siftUp(int index, SimEvent event) {
+		while (index > 0) {
+			int parent = (index - 1) >>> 1;
+			SimEvent p = heap[parent];
+			if (event.compareTo(p) >= 0) {
+				break;
+			}
+			heap[index] = p;
+			p.queueIndex = index;
+			index = parent;
+		}
+		heap[index] = event;
+		event.queueIndex = index;
+	}
+
+	/**
+	 * Moves an event down from the given position until the heap order is restored.
+	 *
+	 * @param index the position
+	 * @param event the event
+	 */
+	private void siftDown(int index, SimEvent event) {
+		int half = size >>> 1;
+		while (index < half) {
+			int child = (index << 1) + 1;
+			SimEvent c = heap[child];
+			int right = child + 1;
+			if (right < size && c.compareTo(heap[right]) > 0) {
+				child = right;
+				c = heap[child];
+			}
+			if (event.compareTo(c) <= 0) {
+				break;
+			}
+			heap[index] = c;
+			c.queueIndex = index;
+			index = child;
+		}
+		heap[index] = event;
+		event.queueIndex = index;
+	}
+
+}
@@ -0,0 +1,361 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An {@link EventQueue} implementing R. Brown's calendar queue. Events are hashed by time into an
+ * array of "day" buckets, each one a sorted linked list, and the queue is scanned one day at a
+ * time like a desk calendar. When the number of buckets and the bucket width follow the event
+ * density, adding and polling events take O(1) amortised time. The calendar is resized, and the
+ * bucket width re-estimated from the earliest events, whenever the number of events grows above
+ * twice or falls below half the number of buckets. Each bucket also keeps its last event, so that
+ * events added in order, such as a burst of events at the same time, are appended in constant time.
+ * <p>
+ * R. Brown, "Calendar queues: a fast O(1) priority queue implementation for the simulation event
+ * set problem", Communications of the ACM 31(10), 1988.
+ *
+ * @since CloudSim Toolkit 3.0
+ * @see EventQueue
+ */
+public class CalendarEventQueue implements EventQueue {
+
+	/** The minimal number of buckets. */
+	private static final int MIN_BUCKETS = 16;
+
+	/** The number of events sampled to estimate the bucket width. */
+	private static final int WIDTH_SAMPLE = 25;
+
+	/** The buckets, each one holding the head of a sorted list of events. */
+	private SimEvent[] buckets;
+
+	/** The last event of each bucket. */
+	private SimEvent[] tails;
+
+	/** The number of buckets minus one; the number of buckets is always a power of two. */
+	private int mask;
+
+	/** The time span covered by a bucket. */
+	private double width;
+
+	/** The virtual bucket (time divided by width) currently being scanned. */
+	private long currentDay;
+
+	/** The number of events in the queue. */
+	private int size;
+
+	/** Whether the calendar is being resized. */
+	private boolean resizing;
+
+	/**
+	 * Creates a new calendar queue with a bucket width of one time unit.
+	 */
+	public CalendarEventQueue() {
+		this(1.0);
+	}
+
+	/**
+	 * Creates a new calendar queue.
+	 *
+	 * @param initialWidth the initial time span covered by a bucket
+	 */
+	public CalendarEventQueue(double initialWidth) {
+		if (!(initialWidth > 0) || Double.isInfinite(initialWidth)) {
+			throw new IllegalArgumentException("The bucket width should be positive, but is:" + initialWidth);
+		}
+		width = initialWidth;
+		buckets = new SimEvent[MIN_BUCKETS];
+		tails = new SimEvent[MIN_BUCKETS];
+		mask = MIN_BUCKETS - 1;
+	}
+
+	@Override
+	public void add(SimEvent event) {
+		long day = dayOf(event.eventTime());
+		if (size == 0 || day < currentDay) {
+			currentDay = day;
+		}
+		insert(event, day);
+		size++;
+		if (!resizing && size > (buckets.length << 1)) {
+			resize(buckets.length << 1);
+		}
+	}
+
+	@Override
+	public SimEvent peek() {
+		return findFirst();
+	}
+
+	@Override
+	public SimEvent poll() {
+		SimEvent first = findFirst();
+		if (first == null) {
+			return null;
+		}
+		int bucket = first.queueIndex;
+		buckets[bucket] = first.queueNext;
+		if (tails[bucket] == first) {
+			tails[bucket] = null;
+		}
+		first.queueNext = null;
+		first.queueIndex = -1;
+		size--;
+		if (!resizing && buckets.length > MIN_BUCKETS && size < (buckets.length >> 1)) {
+			resize(buckets.length >> 1);
+		}
+		return first;
+	}
+
+	@Override
+	public boolean remove(SimEvent event) {
+		int bucket = event.queueIndex;
+		if (bucket < 0 || bucket >= buckets.length) {
+			return false;
+		}
+		SimEvent previous = null;
+		SimEvent current = buckets[bucket];
+		while (current != null && current != event) {
+			previous = current;
+			current = current.queueNext;
+		}
+		if (current == null) {
+			return false;
+		}
+		if (previous == null) {
+			buckets[bucket] = event.queueNext;
+		} else {
+			previous.queueNext = event.queueNext;
+		}
+		if (tails[bucket] == event) {
+			tails[bucket] = previous;
+		}
+		event.queueNext = null;
+		event.queueIndex = -1;
+		size--;
+		return true;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void clear() {
+		for (int i = 0; i < buckets.length; i++) {
+			SimEvent current = buckets[i];
+			while (current != null) {
+				SimEvent next = current.queueNext;
+				current.queueNext = null;
+				current.queueIndex = -1;
+				current = next;
+			}
+			buckets[i] = null;
+			tails[i] = null;
+		}
+		size = 0;
+	}
+
+	@Override
+	public Iterator<SimEvent> iterator() {
+		return new Iterator<SimEvent>() {
+
+			private int bucket = -1;
+
+			private SimEvent next = advance(null);
+
+			private SimEvent advance(SimEvent current) {
+				if (current != null && current.queueNext != null) {
+					return current.queueNext;
+				}
+				while (++bucket < buckets.length) {
+					if (buckets[bucket] != null) {
+						return buckets[bucket];
+					}
+				}
+				return null;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return next != null;
+			}
+
+			@Override
+			public SimEvent next() {
+				if (next == null) {
+					throw new NoSuchElementException();
+				}
+				SimEvent current = next;
+				next = advance(current);
+				return current;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/**
+	 * Gets the virtual bucket of the given time.
+	 *
+	 * @param time the time
+	 * @return the virtual bucket
+	 */
+	private long dayOf(double time) {
+		return (long) Math.floor(time / width);
+	}
+
+	/**
+	 * Inserts the event in its bucket, keeping the bucket sorted. An event that does not precede the
+	 * last event of the bucket is appended without scanning the bucket.
+	 *
+	 * @param event the event
+	 * @param day the virtual bucket of the event
+	 */
+	private void insert(SimEvent event, long day) {
+		int bucket = (int) (day & mask);
+		event.queueIndex = bucket;
+		SimEvent tail = tails[bucket];
+		if (tail == null || tail.compareTo(event) <= 0) {
+			event.queueNext = null;
+			if (tail == null) {
+				buckets[bucket] = event;
+			} else {
+				tail.queueNext = event;
+			}
+			tails[bucket] = event;
+			return;
+		}
+
+		SimEvent previous = null;
+		SimEvent current = buckets[bucket];
+		while (current != null && current.compareTo(event) <= 0) {
+			previous = current;
+			current = current.queueNext;
+		}
+		event.queueNext = current;
+		if (previous == null) {
+			buckets[bucket] = event;
+		} else {
+			previous.queueNext = event;
+		}
+	}
+
+	/**
+	 * Finds the earliest event and moves the calendar to its virtual bucket.
+	 *
+	 * @return the earliest event, or <tt>null</tt> if the queue is empty
+	 */
+	private SimEvent findFirst() {
+		if (size == 0) {
+			return null;
+		}
+
+		// scan one year of the calendar, starting from the current day
+		int days = buckets.length;
+		if (currentDay <= Long.MAX_VALUE - days) {
+			for (int i = 0; i < days; i++) {
+				long day = currentDay + i;
+				SimEvent head = buckets[(int) (day & mask)];
+				if (head != null && dayOf(head.eventTime()) <= day) {
+					currentDay = day;
+					return head;
+				}
+			}
+		}
+
+		// nothing within a year: search the heads of all buckets directly
+		SimEvent first = null;
+		for (SimEvent head : buckets) {
+			if (head != null && (first == null || head.compareTo(first) < 0)) {
+				first = head;
+			}
+		}
+		currentDay = dayOf(first.eventTime());
+		return first;
+	}
+
+	/**
+	 * Rebuilds the calendar with a new number of buckets and a bucket width estimated from the
+	 * separation of the earliest events.
+	 *
+	 * @param bucketCount the new number of buckets
+	 */
+	private void resize(int bucketCount) {
+		resizing = true;
+
+		int sampleSize = Math.min(size, WIDTH_SAMPLE);
+		SimEvent[] sample = new SimEvent[sampleSize];
+		for (int i = 0; i < sampleSize; i++) {
+			sample[i] = poll();
+		}
+		double newWidth = estimateWidth(sample);
+
+		SimEvent[] old = buckets;
+		buckets = new SimEvent[bucketCount];
+		tails = new SimEvent[bucketCount];
+		mask = bucketCount - 1;
+		if (newWidth > 0 && !Double.isInfinite(newWidth)) {
+			width = newWidth;
+		}
+
+		for (SimEvent head : old) {
+			SimEvent current = head;
+			while (current != null) {
+				SimEvent next = current.queueNext;
+				insert(current, dayOf(current.eventTime()));
+				current = next;
+			}
+		}
+		for (SimEvent event : sample) {
+			insert(event, dayOf(event.eventTime()));
+			size++;
+		}
+		if (sampleSize > 0) {
+			currentDay = dayOf(sample[0].eventTime());
+		}
+
+		resizing = false;
+	}
+
+	/**
+	 * Estimates a bucket width of about three times the average separation of the given sorted
+	 * events, ignoring separations larger than twice the average.
+	 *
+	 * @param sample the events, sorted
+	 * @return the estimated width, or zero if it cannot be estimated
+	 */
+	private static double estimateWidth(SimEvent[] sample) {
+		if (sample.length < 2) {
+			return 0;
+		}
+		int last = sample.length - 1;
+		double average = (sample[last].eventTime() - sample[0].eventTime()) / last;
+		double total = 0;
+		int count = 0;
+		for (int i = 1; i < sample.length; i++) {
+			double separation = sample[i].eventTime() - sample[i - 1].eventTime();
+			if (separation <= 2 * average) {
+				total += separation;
+				count++;
+			}
+		}
+		if (count == 0 || total <= 0) {
+			return 0;
+		}
+		return 3 * total / count;
+	}
+
+}
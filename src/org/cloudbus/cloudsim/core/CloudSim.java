@@ -9,18 +9,19 @@
 package org.cloudbus.cloudsim.core;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Calendar;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 
 import org.cloudbus.cloudsim.Log;
 import org.cloudbus.cloudsim.core.predicates.Predicate;
 import org.cloudbus.cloudsim.core.predicates.PredicateAny;
 import org.cloudbus.cloudsim.core.predicates.PredicateNone;
+import org.cloudbus.cloudsim.core.predicates.PredicateType;
 
 /**
  * This class extends the CloudSimCore to enable network simulation in CloudSim. Also, it disables
@@ -29,6 +30,9 @@ import org.cloudbus.cloudsim.core.predicates.PredicateNone;
  * network. Later, nodes in such file are mapped to CloudSim entities. Delay calculated from the
  * BRITE model are added to the messages send through CloudSim. Messages using the old model are
  * converted to the apropriate methods with the correct parameters.
+ * <p>
+ * The state of the simulation is kept in the {@link SimulationContext} of the calling thread, so
+ * independent simulations can run concurrently on different {@link SimulationThread}s.
  * 
  * @author Rodrigo N. Calheiros
  * @author Anton Beloglazov
@@ -39,32 +43,9 @@ public class CloudSim {
 	/** The Constant CLOUDSIM_VERSION_STRING. */
 	private static final String CLOUDSIM_VERSION_STRING = "3.0";
 
-	/** The id of CIS entity. */
-	private static int cisId = -1;
-
-	/** The id of CloudSimShutdown entity. */
-	@SuppressWarnings("unused")
-	private static int shutdownId = -1;
-
-	/** The CIS object. */
-	private static CloudInformationService cis = null;
-
 	/** The Constant NOT_FOUND. */
 	private static final int NOT_FOUND = -1;
 
-	/** The trace flag. */
-	@SuppressWarnings("unused")
-	private static boolean traceFlag = false;
-
-	/** The calendar. */
-	private static Calendar calendar = null;
-
-	/** The termination time. */
-	private static double terminateAt = -1;
-
-	/** The minimal time between events. Events within shorter periods after the last event are discarded. */
-	private static double minTimeBetweenEvents = 0.1;
-	
 	/**
 	 * Initialises all the common attributes.
 	 * 
@@ -78,21 +59,22 @@ public class CloudSim {
 	 */
 	private static void initCommonVariable(Calendar _calendar, boolean _traceFlag, int numUser)
 			throws Exception {
+		SimulationContext ctx = SimulationContext.current();
 		initialize();
 		// NOTE: the order for the below 3 lines are important
-		traceFlag = _traceFlag;
+		ctx.traceFlag = _traceFlag;
 
 		// Set the current Wall clock time as the starting time of
 		// simulation
 		if (_calendar == null) {
-			calendar = Calendar.getInstance();
+			ctx.calendar = Calendar.getInstance();
 		} else {
-			calendar = _calendar;
+			ctx.calendar = _calendar;
 		}
 
 		// creates a CloudSimShutdown object
 		CloudSimShutdown shutdown = new CloudSimShutdown("CloudSimShutdown", numUser);
-		shutdownId = shutdown.getId();
+		ctx.shutdownId = shutdown.getId();
 	}
 
 	/**
@@ -117,14 +99,15 @@ public class CloudSim {
 	 * @post $none
 	 */
 	public static void init(int numUser, Calendar cal, boolean traceFlag) {
+		SimulationContext ctx = SimulationContext.current();
 		try {
 			initCommonVariable(cal, traceFlag, numUser);
 
 			// create a GIS object
-			cis = new CloudInformationService("CloudInformationService");
+			ctx.cis = new CloudInformationService("CloudInformationService");
 
 			// set all the above entity IDs
-			cisId = cis.getId();
+			ctx.cisId = ctx.cis.getId();
 		} catch (IllegalArgumentException s) {
 			Log.printLine("CloudSim.init(): The simulation has been terminated due to an unexpected error");
 			Log.printLine(s.getMessage());
@@ -158,12 +141,41 @@ public class CloudSim {
 	 * @post $none
 	 */
 	public static void init(int numUser, Calendar cal, boolean traceFlag, double periodBetweenEvents) {
+		SimulationContext ctx = SimulationContext.current();
 	    if (periodBetweenEvents <= 0) {
 		throw new IllegalArgumentException("The minimal time between events should be positive, but is:" + periodBetweenEvents);
 	    }
 	    
 	    init(numUser, cal, traceFlag);
-	    minTimeBetweenEvents = periodBetweenEvents;
+	    ctx.minTimeBetweenEvents = periodBetweenEvents;
+	}
+
+	/**
+	 * Initialises CloudSim parameters, using the given engine for the future event queue. This
+	 * method should be called before creating any entities.
+	 * <p>
+	 * All the engines deliver the events in the same order, so the choice only affects the
+	 * performance of the simulation. A {@link BinaryHeapEventQueue} is used by the other
+	 * <tt>init</tt> methods; a {@link CalendarEventQueue} is usually faster when the future queue
+	 * holds a very large number of events.
+	 * 
+	 * @param numUser the number of User Entities created
+	 * @param cal starting time for this simulation. If it is <tt>null</tt>, then the time will be
+	 *            taken from <tt>Calendar.getInstance()</tt>
+	 * @param traceFlag <tt>true</tt> if CloudSim trace need to be written
+	 * @param eventQueue the empty event queue engine backing the future event queue
+	 * @see #init(int, Calendar, boolean)
+	 * @pre numUser >= 0
+	 * @post $none
+	 */
+	public static void init(int numUser, Calendar cal, boolean traceFlag, EventQueue eventQueue) {
+		SimulationContext ctx = SimulationContext.current();
+		if (eventQueue == null || eventQueue.size() > 0) {
+			throw new IllegalArgumentException("The event queue should be empty and not null.");
+		}
+
+		init(numUser, cal, traceFlag);
+		ctx.future = new FutureQueue(eventQueue);
 	}
 	
 	
@@ -175,26 +187,35 @@ public class CloudSim {
 	 * <p>
 	 * <b>Note</b>: This method should be called after all the entities have been setup and added.
 	 * 
-	 * @return the double
+	 * @return the report of the simulation, with the last clock value and the values added by the
+	 *         entities
 	 * @throws NullPointerException This happens when creating this entity before initialising
 	 *             CloudSim package or this entity name is <tt>null</tt> or empty.
 	 * @see gridsim.CloudSim#init(int, Calendar, boolean)
+	 * @see #getSimulationReport()
 	 * @pre $none
 	 * @post $none
 	 */
-	public static double startSimulation() throws NullPointerException {
+	public static SimulationReport startSimulation() throws NullPointerException {
+		SimulationContext ctx = SimulationContext.current();
 		Log.printLine("Starting CloudSim version " + CLOUDSIM_VERSION_STRING);
 		try {
+			SimulationReport report = ctx.report;
+			long start = System.currentTimeMillis();
 			double clock = run();
+			report.setClock(clock);
+			report.setEventsProcessed(ctx.eventsProcessed);
+			report.setWallClockTime(System.currentTimeMillis() - start);
 
 			// reset all static variables
-			cisId = -1;
-			shutdownId = -1;
-			cis = null;
-			calendar = null;
-			traceFlag = false;
-
-			return clock;
+			ctx.cisId = -1;
+			ctx.shutdownId = -1;
+			ctx.cis = null;
+			ctx.calendar = null;
+			ctx.traceFlag = false;
+			ctx.report = null;
+
+			return report;
 		} catch (IllegalArgumentException e) {
 			e.printStackTrace();
 			throw new NullPointerException("CloudSim.startCloudSimulation() :"
@@ -229,7 +250,8 @@ public class CloudSim {
 	 * @return true, if successful; false otherwise.
 	 */
 	public static boolean terminateSimulation() {
-		running = false;
+		SimulationContext ctx = SimulationContext.current();
+		ctx.running = false;
 		printMessage("Simulation: Reached termination time.");
 		return true;
 	}
@@ -241,10 +263,11 @@ public class CloudSim {
 	 * @return true, if successful otherwise.
 	 */
 	public static boolean terminateSimulation(double time) {
-		if (time <= clock) {
+		SimulationContext ctx = SimulationContext.current();
+		if (time <= ctx.clock) {
 			return false;
 		} else {
-			terminateAt = time;
+			ctx.terminateAt = time;
 		}
 		return true;
 	}
@@ -255,7 +278,8 @@ public class CloudSim {
 	 * @return the minimum time between events.
 	 */
 	public static double getMinTimeBetweenEvents() {
-	    return minTimeBetweenEvents;
+		SimulationContext ctx = SimulationContext.current();
+	    return ctx.minTimeBetweenEvents;
 	}
 
 	/**
@@ -268,15 +292,26 @@ public class CloudSim {
 	 * @post $none
 	 */
 	public static Calendar getSimulationCalendar() {
+		SimulationContext ctx = SimulationContext.current();
 		// make a new copy
-		Calendar clone = calendar;
-		if (calendar != null) {
-			clone = (Calendar) calendar.clone();
+		Calendar clone = ctx.calendar;
+		if (ctx.calendar != null) {
+			clone = (Calendar) ctx.calendar.clone();
 		}
 
 		return clone;
 	}
 
+	/**
+	 * Gets the report of the running simulation, to which the entities can add their results. The
+	 * report is returned by {@link #startSimulation()} when the simulation ends.
+	 * 
+	 * @return the report, or <tt>null</tt> if CloudSim hasn't been initialized
+	 */
+	public static SimulationReport getSimulationReport() {
+		return SimulationContext.current().report;
+	}
+
 	/**
 	 * Gets the entity ID of <tt>CloudInformationService</tt>.
 	 * 
@@ -285,7 +320,8 @@ public class CloudSim {
 	 * @post $result >= -1
 	 */
 	public static int getCloudInfoServiceEntityId() {
-		return cisId;
+		SimulationContext ctx = SimulationContext.current();
+		return ctx.cisId;
 	}
 
 	/**
@@ -298,59 +334,36 @@ public class CloudSim {
 	 * @post $none
 	 */
 	public static List<Integer> getCloudResourceList() {
-		if (cis == null) {
+		SimulationContext ctx = SimulationContext.current();
+		if (ctx.cis == null) {
 			return null;
 		}
 
-		return cis.getList();
+		return ctx.cis.getList();
 	}
 
 	// ======== SIMULATION METHODS ===============//
 
-	/** The entities. */
-	private static List<SimEntity> entities;
-
-	/** The future event queue. */
-	protected static FutureQueue future;
-
-	/** The deferred event queue. */
-	protected static DeferredQueue deferred;
-
-	/** The simulation clock. */
-	private static double clock;
-
-	/** Flag for checking if the simulation is running. */
-	private static boolean running;
-
-	/** The entities by name. */
-	private static Map<String, SimEntity> entitiesByName;
-
-	// The predicates used in entity wait methods
-	/** The wait predicates. */
-	private static Map<Integer, Predicate> waitPredicates;
-
-	/** The paused. */
-	private static boolean paused = false;
-
-	/** The pause at. */
-	private static long pauseAt = -1;
-
-	/** The abrupt terminate. */
-	private static boolean abruptTerminate = false;
-
 	/**
 	 * Initialise the simulation for stand alone simulations. This function should be called at the
 	 * start of the simulation.
 	 */
 	protected static void initialize() {
+		SimulationContext ctx = SimulationContext.current();
 		Log.printLine("Initialising...");
-		entities = new ArrayList<SimEntity>();
-		entitiesByName = new LinkedHashMap<String, SimEntity>();
-		future = new FutureQueue();
-		deferred = new DeferredQueue();
-		waitPredicates = new HashMap<Integer, Predicate>();
-		clock = 0;
-		running = false;
+		ctx.entities = new ArrayList<SimEntity>();
+		ctx.entitiesByName = new LinkedHashMap<String, SimEntity>();
+		ctx.future = new FutureQueue();
+		ctx.deferred = new DeferredQueue();
+		ctx.waitPredicates = new Predicate[16];
+		ctx.runnable = new BitSet();
+		ctx.batch.clear();
+		ctx.report = new SimulationReport();
+		ctx.eventsProcessed = 0;
+		Arrays.fill(ctx.eventPool, null);
+		ctx.eventPoolSize = 0;
+		ctx.clock = 0;
+		ctx.running = false;
 	}
 
 	// The two standard predicates
@@ -369,7 +382,8 @@ public class CloudSim {
 	 * @return the simulation time
 	 */
 	public static double clock() {
-		return clock;
+		SimulationContext ctx = SimulationContext.current();
+		return ctx.clock;
 	}
 
 	/**
@@ -378,7 +392,8 @@ public class CloudSim {
 	 * @return The number of entities
 	 */
 	public static int getNumEntities() {
-		return entities.size();
+		SimulationContext ctx = SimulationContext.current();
+		return ctx.entities.size();
 	}
 
 	/**
@@ -388,7 +403,8 @@ public class CloudSim {
 	 * @return The entity, or if it could not be found
 	 */
 	public static SimEntity getEntity(int id) {
-		return entities.get(id);
+		SimulationContext ctx = SimulationContext.current();
+		return ctx.entities.get(id);
 	}
 
 	/**
@@ -398,7 +414,8 @@ public class CloudSim {
 	 * @return The entity
 	 */
 	public static SimEntity getEntity(String name) {
-		return entitiesByName.get(name);
+		SimulationContext ctx = SimulationContext.current();
+		return ctx.entitiesByName.get(name);
 	}
 
 	/**
@@ -408,7 +425,8 @@ public class CloudSim {
 	 * @return The entity's unique id number
 	 */
 	public static int getEntityId(String name) {
-		SimEntity obj = entitiesByName.get(name);
+		SimulationContext ctx = SimulationContext.current();
+		SimEntity obj = ctx.entitiesByName.get(name);
 		if (obj == null) {
 			return NOT_FOUND;
 		} else {
@@ -455,10 +473,11 @@ public class CloudSim {
 	 * @return the entity iterator
 	 */
 	public static List<SimEntity> getEntityList() {
+		SimulationContext ctx = SimulationContext.current();
 		// create a new list to prevent the user from changing
 		// the list of entities used by Simulation
 		List<SimEntity> list = new LinkedList<SimEntity>();
-		list.addAll(entities);
+		list.addAll(ctx.entities);
 		return list;
 	}
 
@@ -471,17 +490,19 @@ public class CloudSim {
 	 * @param e The new entity
 	 */
 	public static void addEntity(SimEntity e) {
+		SimulationContext ctx = SimulationContext.current();
 		SimEvent evt;
-		if (running) {
+		if (ctx.running) {
 			// Post an event to make this entity
-			evt = new SimEvent(SimEvent.CREATE, clock, 1, 0, 0, e);
-			future.addEvent(evt);
+			evt = obtainEvent(SimEvent.CREATE, ctx.clock, 1, 0, 0, e);
+			ctx.future.addEvent(evt);
 		}
 		if (e.getId() == -1) { // Only add once!
-			int id = entities.size();
+			int id = ctx.entities.size();
 			e.setId(id);
-			entities.add(e);
-			entitiesByName.put(e.getName(), e);
+			ctx.entities.add(e);
+			ctx.entitiesByName.put(e.getName(), e);
+			ctx.runnable.set(id);
 		}
 	}
 
@@ -507,53 +528,95 @@ public class CloudSim {
 	 * @return true, if successful otherwise
 	 */
 	public static boolean runClockTick() {
+		SimulationContext ctx = SimulationContext.current();
 		SimEntity ent;
 		boolean queue_empty;
-		
-		int entities_size = entities.size();
 
-		for (int i = 0; i < entities_size; i++) {
-			ent = entities.get(i);
+		// Only the entities with something to process are run, in increasing order of id
+		for (int i = ctx.runnable.nextSetBit(0); i >= 0; i = ctx.runnable.nextSetBit(i + 1)) {
+			ctx.runnable.clear(i);
+			ent = ctx.entities.get(i);
 			if (ent.getState() == SimEntity.RUNNABLE) {
 				ent.run();
 			}
 		}
 				
 		// If there are more future events then deal with them
-		if (future.size() > 0) {
-			List<SimEvent> toRemove = new ArrayList<SimEvent>();
-			Iterator<SimEvent> fit = future.iterator();
+		if (ctx.future.size() > 0) {
 			queue_empty = false;
-			SimEvent first = fit.next();
-			processEvent(first);
-			future.remove(first);
-
-			fit = future.iterator();
-
-			// Check if next events are at same time...
-			boolean trymore = fit.hasNext();
-			while (trymore) {
-				SimEvent next = fit.next();
-				if (next.eventTime() == first.eventTime()) {
-					processEvent(next);
-					toRemove.add(next);
-					trymore = fit.hasNext();
-				} else {
-					trymore = false;
+
+			// Take the first event and all the next events at the same time
+			ctx.eventsProcessed += ctx.future.pollAllAt(ctx.future.peek().eventTime(), ctx.batch);
+			for (int i = 0, n = ctx.batch.size(); i < n; i++) {
+				SimEvent e = ctx.batch.get(i);
+				processEvent(ctx, e);
+				if (e.getType() != SimEvent.SEND) {
+					// only SEND events are handed to entities
+					releaseEvent(e);
 				}
 			}
-
-			future.removeAll(toRemove);
+			ctx.batch.clear();
 
 		} else {
 			queue_empty = true;
-			running = false;
+			ctx.running = false;
 			printMessage("Simulation: No more future events");
 		}
 
 		return queue_empty;
 	}
 
+	/**
+	 * Gets an event, reusing a released one if available.
+	 * 
+	 * @param evtype the internal event type
+	 * @param time the event time
+	 * @param src the id of the source entity
+	 * @param dest the id of the destination entity
+	 * @param tag the tag
+	 * @param data the data
+	 * @return the event
+	 */
+	private static SimEvent obtainEvent(int evtype, double time, int src, int dest, int tag, Object data) {
+		SimulationContext ctx = SimulationContext.current();
+		if (ctx.eventPoolSize == 0) {
+			return new SimEvent(evtype, time, src, dest, tag, data);
+		}
+		SimEvent e = ctx.eventPool[--ctx.eventPoolSize];
+		ctx.eventPool[ctx.eventPoolSize] = null;
+		e.reset(evtype, time, src, dest, tag, data);
+		return e;
+	}
+
+	/**
+	 * Releases an event that is no longer referenced by any queue or entity, so that it can be
+	 * reused for a later event.
+	 * 
+	 * @param e the event
+	 * @see SimEntity#setDirectDispatch(boolean)
+	 */
+	static void releaseEvent(SimEvent e) {
+		SimulationContext ctx = SimulationContext.current();
+		if (e.queued || ctx.eventPoolSize == SimulationContext.EVENT_POOL_CAPACITY) {
+			return;
+		}
+		e.reset(SimEvent.ENULL, -1, -1, -1, -1, null);
+		ctx.eventPool[ctx.eventPoolSize++] = e;
+	}
+
+	/**
+	 * Marks an entity as having work to do in the next clock tick. Entities that are not marked
+	 * are skipped by {@link #runClockTick()}.
+	 * 
+	 * @param id the id of the entity
+	 */
+	static void markRunnable(int id) {
+		SimulationContext ctx = SimulationContext.current();
+		if (ctx.runnable != null) {
+			ctx.runnable.set(id);
+		}
+	}
+
 	/**
 	 * Internal method used to stop the simulation. This method should <b>not</b> be used directly.
 	 */
@@ -568,9 +631,10 @@ public class CloudSim {
 	 * @param delay the delay
 	 */
 	public static void hold(int src, long delay) {
-		SimEvent e = new SimEvent(SimEvent.HOLD_DONE, clock + delay, src);
-		future.addEvent(e);
-		entities.get(src).setState(SimEntity.HOLDING);
+		SimulationContext ctx = SimulationContext.current();
+		SimEvent e = obtainEvent(SimEvent.HOLD_DONE, ctx.clock + delay, src, -1, -1, null);
+		ctx.future.addEvent(e);
+		ctx.entities.get(src).setState(SimEntity.HOLDING);
 	}
 
 	/**
@@ -580,9 +644,10 @@ public class CloudSim {
 	 * @param delay the delay
 	 */
 	public static void pause(int src, double delay) {
-		SimEvent e = new SimEvent(SimEvent.HOLD_DONE, clock + delay, src);
-		future.addEvent(e);
-		entities.get(src).setState(SimEntity.HOLDING);
+		SimulationContext ctx = SimulationContext.current();
+		SimEvent e = obtainEvent(SimEvent.HOLD_DONE, ctx.clock + delay, src, -1, -1, null);
+		ctx.future.addEvent(e);
+		ctx.entities.get(src).setState(SimEntity.HOLDING);
 	}
 
 	/**
@@ -595,12 +660,13 @@ public class CloudSim {
 	 * @param data the data
 	 */
 	public static void send(int src, int dest, double delay, int tag, Object data) {
+		SimulationContext ctx = SimulationContext.current();
 		if (delay < 0) {
 			throw new IllegalArgumentException("Send delay can't be negative.");
 		}
 
-		SimEvent e = new SimEvent(SimEvent.SEND, clock + delay, src, dest, tag, data);
-		future.addEvent(e);
+		SimEvent e = obtainEvent(SimEvent.SEND, ctx.clock + delay, src, dest, tag, data);
+		ctx.future.addEvent(e);
 	}
 
 	/**
@@ -613,12 +679,13 @@ public class CloudSim {
 	 * @param data the data
 	 */
 	public static void sendFirst(int src, int dest, double delay, int tag, Object data) {
+		SimulationContext ctx = SimulationContext.current();
 		if (delay < 0) {
 			throw new IllegalArgumentException("Send delay can't be negative.");
 		}
 
-		SimEvent e = new SimEvent(SimEvent.SEND, clock + delay, src, dest, tag, data);
-		future.addEventFirst(e);
+		SimEvent e = obtainEvent(SimEvent.SEND, ctx.clock + delay, src, dest, tag, data);
+		ctx.future.addEventFirst(e);
 	}
 
 	/**
@@ -630,10 +697,14 @@ public class CloudSim {
 	 * @param p the p
 	 */
 	public static void wait(int src, Predicate p) {
-		entities.get(src).setState(SimEntity.WAITING);
+		SimulationContext ctx = SimulationContext.current();
+		ctx.entities.get(src).setState(SimEntity.WAITING);
 		if (p != SIM_ANY) {
 			// If a predicate has been used store it in order to check it
-			waitPredicates.put(src, p);
+			if (src >= ctx.waitPredicates.length) {
+				ctx.waitPredicates = Arrays.copyOf(ctx.waitPredicates, Math.max(src + 1, ctx.waitPredicates.length << 1));
+			}
+			ctx.waitPredicates[src] = p;
 		}
 	}
 
@@ -645,12 +716,17 @@ public class CloudSim {
 	 * @return the int
 	 */
 	public static int waiting(int d, Predicate p) {
+		SimulationContext ctx = SimulationContext.current();
+		if (p == SIM_ANY) {
+			return ctx.deferred.size(d);
+		}
+
 		int count = 0;
 		SimEvent event;
-		Iterator<SimEvent> iterator = deferred.iterator();
+		Iterator<SimEvent> iterator = ctx.deferred.iterator(d);
 		while (iterator.hasNext()) {
 			event = iterator.next();
-			if ((event.getDestination() == d) && (p.match(event))) {
+			if (p.match(event)) {
 				count++;
 			}
 		}
@@ -665,16 +741,29 @@ public class CloudSim {
 	 * @return the sim event
 	 */
 	public static SimEvent select(int src, Predicate p) {
-		SimEvent ev = null;
-		Iterator<SimEvent> iterator = deferred.iterator();
+		SimulationContext ctx = SimulationContext.current();
+		SimEvent ev;
+		Iterator<SimEvent> iterator = ctx.deferred.iterator(src);
 		while (iterator.hasNext()) {
 			ev = iterator.next();
-			if (ev.getDestination() == src && p.match(ev)) {
+			if (p.match(ev)) {
 				iterator.remove();
-				break;
+				return ev;
 			}
 		}
-		return ev;
+		// as with a single deferred list, the last deferred event is returned if none matches
+		return ctx.deferred.last();
+	}
+
+	/**
+	 * Selects the first deferred event of an entity, without evaluating any predicate.
+	 * 
+	 * @param src the id of the entity
+	 * @return the sim event, or <tt>null</tt> if the entity has no deferred events
+	 */
+	static SimEvent selectFirst(int src) {
+		SimulationContext ctx = SimulationContext.current();
+		return ctx.deferred.poll(src);
 	}
 
 	/**
@@ -685,57 +774,77 @@ public class CloudSim {
 	 * @return the sim event
 	 */
 	public static SimEvent findFirstDeferred(int src, Predicate p) {
-		SimEvent ev = null;
-		Iterator<SimEvent> iterator = deferred.iterator();
+		SimulationContext ctx = SimulationContext.current();
+		SimEvent ev;
+		Iterator<SimEvent> iterator = ctx.deferred.iterator(src);
 		while (iterator.hasNext()) {
 			ev = iterator.next();
-			if (ev.getDestination() == src && p.match(ev)) {
-				break;
+			if (p.match(ev)) {
+				return ev;
 			}
 		}
-		return ev;
+		// as with a single deferred list, the last deferred event is returned if none matches
+		return ctx.deferred.last();
 	}
 
 	/**
-	 * Removes an event from the event queue.
+	 * Removes an event from the event queue. If the predicate is a {@link PredicateType}, the
+	 * event is looked up in the index of the future queue instead of scanning the whole queue.
 	 * 
 	 * @param src the src
 	 * @param p the p
 	 * @return the sim event
 	 */
 	public static SimEvent cancel(int src, Predicate p) {
+		SimulationContext ctx = SimulationContext.current();
 		SimEvent ev = null;
-		Iterator<SimEvent> iter = future.iterator();
+		if (p instanceof PredicateType) {
+			ev = ctx.future.findFirst(src, (PredicateType) p);
+			if (ev != null) {
+				ctx.future.remove(ev);
+			}
+			return ev;
+		}
+
+		// the future queue is not iterated in temporal order, so look for the earliest match
+		Iterator<SimEvent> iter = ctx.future.iterator();
 		while (iter.hasNext()) {
-			ev = iter.next();
-			if (ev.getSource() == src && p.match(ev)) {
-				iter.remove();
-				break;
+			SimEvent next = iter.next();
+			if (next.getSource() == src && p.match(next) && (ev == null || next.compareTo(ev) < 0)) {
+				ev = next;
 			}
 		}
 
+		if (ev != null) {
+			ctx.future.remove(ev);
+		}
 		return ev;
 	}
 
 	/**
 	 * Removes all events that match a given predicate from the future event queue returns true if
-	 * at least one event has been cancelled; false otherwise.
+	 * at least one event has been cancelled; false otherwise. If the predicate is a
+	 * {@link PredicateType}, only the events with the selected tags are visited.
 	 * 
 	 * @param src the src
 	 * @param p the p
 	 * @return true, if successful
 	 */
 	public static boolean cancelAll(int src, Predicate p) {
-		SimEvent ev = null;
-		int previousSize = future.size();
-		Iterator<SimEvent> iter = future.iterator();
+		SimulationContext ctx = SimulationContext.current();
+		if (p instanceof PredicateType) {
+			return ctx.future.removeAll(src, (PredicateType) p);
+		}
+
+		List<SimEvent> toRemove = new ArrayList<SimEvent>();
+		Iterator<SimEvent> iter = ctx.future.iterator();
 		while (iter.hasNext()) {
-			ev = iter.next();
+			SimEvent ev = iter.next();
 			if (ev.getSource() == src && p.match(ev)) {
-				iter.remove();
+				toRemove.add(ev);
 			}
 		}
-		return previousSize < future.size();
+		return ctx.future.removeAll(toRemove);
 	}
 
 	//
@@ -745,16 +854,17 @@ public class CloudSim {
 	/**
 	 * Processes an event.
 	 * 
+	 * @param ctx the context of the simulation
 	 * @param e the e
 	 */
-	private static void processEvent(SimEvent e) {
+	private static void processEvent(SimulationContext ctx, SimEvent e) {
 		int dest, src;
 		SimEntity dest_ent;
 		// Update the system's clock
-		if (e.eventTime() < clock) {
+		if (e.eventTime() < ctx.clock) {
 			throw new IllegalArgumentException("Past event detected.");
 		}
-		clock = e.eventTime();
+		ctx.clock = e.eventTime();
 
 		// Ok now process it
 		switch (e.getType()) {
@@ -773,19 +883,22 @@ public class CloudSim {
 					throw new IllegalArgumentException("Attempt to send to a null entity detected.");
 				} else {
 					int tag = e.getTag();
-					dest_ent = entities.get(dest);
+					dest_ent = ctx.entities.get(dest);
 					if (dest_ent.getState() == SimEntity.WAITING) {
-						Integer destObj = Integer.valueOf(dest);
-						Predicate p = waitPredicates.get(destObj);
+						Predicate p = dest < ctx.waitPredicates.length ? ctx.waitPredicates[dest] : null;
 						if ((p == null) || (tag == 9999) || (p.match(e))) {
-							dest_ent.setEventBuffer((SimEvent) e.clone());
+							// the event has left the future queue, so it can be handed over as is
+							dest_ent.setEventBuffer(e);
 							dest_ent.setState(SimEntity.RUNNABLE);
-							waitPredicates.remove(destObj);
+							if (p != null) {
+								ctx.waitPredicates[dest] = null;
+							}
 						} else {
-							deferred.addEvent(e);
+							ctx.deferred.addEvent(e);
 						}
 					} else {
-						deferred.addEvent(e);
+						ctx.deferred.addEvent(e);
+						ctx.runnable.set(dest);
 					}
 				}
 				break;
@@ -795,7 +908,7 @@ public class CloudSim {
 				if (src < 0) {
 					throw new IllegalArgumentException("Null entity holding.");
 				} else {
-					entities.get(src).setState(SimEntity.RUNNABLE);
+					ctx.entities.get(src).setState(SimEntity.RUNNABLE);
 				}
 				break;
 
@@ -809,9 +922,10 @@ public class CloudSim {
 	 * simulations.
 	 */
 	public static void runStart() {
-		running = true;
+		SimulationContext ctx = SimulationContext.current();
+		ctx.running = true;
 		// Start all the entities
-		for (SimEntity ent : entities) {
+		for (SimEntity ent : ctx.entities) {
 			ent.startEntity();
 		}
 
@@ -825,7 +939,8 @@ public class CloudSim {
 	 * @return if the simulation is still running, otherwise
 	 */
 	public static boolean running() {
-		return running;
+		SimulationContext ctx = SimulationContext.current();
+		return ctx.running;
 	}
 
 	/**
@@ -834,8 +949,9 @@ public class CloudSim {
 	 * @return true, if successful otherwise.
 	 */
 	public static boolean pauseSimulation() {
-		paused = true;
-		return paused;
+		SimulationContext ctx = SimulationContext.current();
+		ctx.paused = true;
+		return ctx.paused;
 	}
 
 	/**
@@ -845,10 +961,11 @@ public class CloudSim {
 	 * @return true, if successful otherwise.
 	 */
 	public static boolean pauseSimulation(long time) {
-		if (time <= clock) {
+		SimulationContext ctx = SimulationContext.current();
+		if (time <= ctx.clock) {
 			return false;
 		} else {
-			pauseAt = time;
+			ctx.pauseAt = time;
 		}
 		return true;
 	}
@@ -859,13 +976,14 @@ public class CloudSim {
 	 * @return if the simulation has been restarted or or otherwise.
 	 */
 	public static boolean resumeSimulation() {
-		paused = false;
+		SimulationContext ctx = SimulationContext.current();
+		ctx.paused = false;
 
-		if (pauseAt <= clock) {
-			pauseAt = -1;
+		if (ctx.pauseAt <= ctx.clock) {
+			ctx.pauseAt = -1;
 		}
 
-		return !paused;
+		return !ctx.paused;
 	}
 
 	/**
@@ -875,29 +993,29 @@ public class CloudSim {
 	 * @return the double last clock value
 	 */
 	public static double run() {
-		if (!running) {
+		SimulationContext ctx = SimulationContext.current();
+		if (!ctx.running) {
 			runStart();
 		}
 		while (true) {
-			if (runClockTick() || abruptTerminate) {
+			if (runClockTick() || ctx.abruptTerminate) {
 				break;
 			}
 
 			// this block allows termination of simulation at a specific time
-			if (terminateAt > 0.0 && clock >= terminateAt) {
+			if (ctx.terminateAt > 0.0 && ctx.clock >= ctx.terminateAt) {
 				terminateSimulation();
-				clock = terminateAt;
+				ctx.clock = ctx.terminateAt;
 				break;
 			}
 
-			if (pauseAt != -1
-					&& ((future.size() > 0 && clock <= pauseAt && pauseAt <= future.iterator().next()
-							.eventTime()) || future.size() == 0 && pauseAt <= clock)) {
+			if (ctx.pauseAt != -1
+					&& ((ctx.future.size() > 0 && ctx.clock <= ctx.pauseAt && ctx.pauseAt <= ctx.future.peek().eventTime()) || ctx.future.size() == 0 && ctx.pauseAt <= ctx.clock)) {
 				pauseSimulation();
-				clock = pauseAt;
+				ctx.clock = ctx.pauseAt;
 			}
 
-			while (paused) {
+			while (ctx.paused) {
 				try {
 					Thread.sleep(100);
 				} catch (InterruptedException e) {
@@ -919,39 +1037,42 @@ public class CloudSim {
 	 * in user simulations.
 	 */
 	public static void finishSimulation() {
+		SimulationContext ctx = SimulationContext.current();
 		// Allow all entities to exit their body method
-		if (!abruptTerminate) {
-			for (SimEntity ent : entities) {
+		if (!ctx.abruptTerminate) {
+			for (SimEntity ent : ctx.entities) {
 				if (ent.getState() != SimEntity.FINISHED) {
 					ent.run();
 				}
 			}
 		}
 
-		for (SimEntity ent : entities) {
+		for (SimEntity ent : ctx.entities) {
 			ent.shutdownEntity();
 		}
 
 		// reset all static variables
 		// Private data members
-		entities = null;
-		entitiesByName = null;
-		future = null;
-		deferred = null;
-		clock = 0L;
-		running = false;
-
-		waitPredicates = null;
-		paused = false;
-		pauseAt = -1;
-		abruptTerminate = false;
+		ctx.entities = null;
+		ctx.entitiesByName = null;
+		ctx.future = null;
+		ctx.deferred = null;
+		ctx.clock = 0L;
+		ctx.running = false;
+
+		ctx.waitPredicates = null;
+		ctx.runnable = null;
+		ctx.paused = false;
+		ctx.pauseAt = -1;
+		ctx.abruptTerminate = false;
 	}
 
 	/**
 	 * Abruptally terminate.
 	 */
 	public static void abruptallyTerminate() {
-		abruptTerminate = true;
+		SimulationContext ctx = SimulationContext.current();
+		ctx.abruptTerminate = true;
 	}
 
 	/**
@@ -969,7 +1090,8 @@ public class CloudSim {
 	 * @return true, if is paused
 	 */
 	public static boolean isPaused() {
-		return paused;
+		SimulationContext ctx = SimulationContext.current();
+		return ctx.paused;
 	}
 
 }
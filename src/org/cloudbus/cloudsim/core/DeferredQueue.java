@@ -8,15 +8,18 @@
 
 package org.cloudbus.cloudsim.core;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
-import java.util.List;
 import java.util.ListIterator;
+import java.util.NoSuchElementException;
 
 /**
- * This class implements the deferred event queue used by {@link Simulation}. The event queue uses a
- * linked list to store the events.
- * 
+ * This class implements the deferred event queue used by {@link Simulation}. The events are kept
+ * in one mailbox per destination entity, indexed by entity id, so that looking up the events of
+ * an entity only visits its own events. Each mailbox is a linked list in temporal order.
+ *
  * @author Marcos Dias de Assuncao
  * @since CloudSim Toolkit 1.0
  * @see Simulation
@@ -24,65 +27,213 @@ import java.util.ListIterator;
  */
 public class DeferredQueue {
 
-	/** The list. */
-	private final List<SimEvent> list = new LinkedList<SimEvent>();
+	/** The mailboxes, indexed by destination entity id. */
+	private Mailbox[] mailboxes = new Mailbox[16];
 
-	/** The max time. */
-	private double maxTime = -1;
+	/** The number of events in all the mailboxes. */
+	private int size = 0;
 
 	/**
 	 * Adds a new event to the queue. Adding a new event to the queue preserves the temporal order
 	 * of the events.
-	 * 
+	 *
 	 * @param newEvent The event to be added to the queue.
 	 */
 	public void addEvent(SimEvent newEvent) {
-		// The event has to be inserted as the last of all events
-		// with the same event_time(). Yes, this matters.
-		double eventTime = newEvent.eventTime();
-		if (eventTime >= maxTime) {
-			list.add(newEvent);
-			maxTime = eventTime;
-			return;
+		int dest = newEvent.getDestination();
+		if (dest < 0) {
+			throw new IllegalArgumentException("Attempt to defer an event to a null entity.");
+		}
+		if (dest >= mailboxes.length) {
+			mailboxes = Arrays.copyOf(mailboxes, Math.max(dest + 1, mailboxes.length << 1));
+		}
+		Mailbox mailbox = mailboxes[dest];
+		if (mailbox == null) {
+			mailbox = new Mailbox();
+			mailboxes[dest] = mailbox;
 		}
+		mailbox.addEvent(newEvent);
+		size++;
+	}
 
-		ListIterator<SimEvent> iterator = list.listIterator();
-		SimEvent event;
-		while (iterator.hasNext()) {
-			event = iterator.next();
-			if (event.eventTime() > eventTime) {
-				iterator.previous();
-				iterator.add(newEvent);
-				return;
-			}
+	/**
+	 * Returns an iterator to the events of an entity, in temporal order. The iterator supports
+	 * removal.
+	 *
+	 * @param dest the id of the destination entity
+	 * @return the iterator
+	 */
+	public Iterator<SimEvent> iterator(int dest) {
+		if (dest < 0 || dest >= mailboxes.length || mailboxes[dest] == null) {
+			return Collections.<SimEvent> emptyList().iterator();
 		}
+		final Iterator<SimEvent> iterator = mailboxes[dest].list.iterator();
+		return new Iterator<SimEvent>() {
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public SimEvent next() {
+				return iterator.next();
+			}
 
-		list.add(newEvent);
+			@Override
+			public void remove() {
+				iterator.remove();
+				size--;
+			}
+		};
+	}
+
+	/**
+	 * Removes and returns the first event of an entity.
+	 *
+	 * @param dest the id of the destination entity
+	 * @return the event, or <tt>null</tt> if the entity has no events
+	 */
+	public SimEvent poll(int dest) {
+		if (dest < 0 || dest >= mailboxes.length || mailboxes[dest] == null) {
+			return null;
+		}
+		SimEvent event = mailboxes[dest].list.pollFirst();
+		if (event != null) {
+			size--;
+		}
+		return event;
 	}
 
 	/**
-	 * Returns an iterator to the events in the queue.
-	 * 
+	 * Returns a read-only iterator to the events in the queue. The events are grouped by
+	 * destination entity, in increasing order of entity id.
+	 *
 	 * @return the iterator
 	 */
 	public Iterator<SimEvent> iterator() {
-		return list.iterator();
+		return new Iterator<SimEvent>() {
+
+			private int dest = -1;
+
+			private Iterator<SimEvent> current = Collections.<SimEvent> emptyList().iterator();
+
+			@Override
+			public boolean hasNext() {
+				while (!current.hasNext()) {
+					if (++dest >= mailboxes.length) {
+						return false;
+					}
+					if (mailboxes[dest] != null) {
+						current = mailboxes[dest].list.iterator();
+					}
+				}
+				return true;
+			}
+
+			@Override
+			public SimEvent next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return current.next();
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/**
+	 * Returns the number of events of an entity.
+	 *
+	 * @param dest the id of the destination entity
+	 * @return the number of events
+	 */
+	public int size(int dest) {
+		if (dest < 0 || dest >= mailboxes.length || mailboxes[dest] == null) {
+			return 0;
+		}
+		return mailboxes[dest].list.size();
+	}
+
+	/**
+	 * Returns the event that would be the last one if all the mailboxes were merged in temporal
+	 * order, i.e. the latest event of the queue.
+	 *
+	 * @return the last event, or <tt>null</tt> if the queue is empty
+	 */
+	public SimEvent last() {
+		SimEvent last = null;
+		for (Mailbox mailbox : mailboxes) {
+			if (mailbox != null && !mailbox.list.isEmpty()) {
+				SimEvent event = mailbox.list.getLast();
+				if (last == null || event.compareTo(last) > 0) {
+					last = event;
+				}
+			}
+		}
+		return last;
 	}
 
 	/**
 	 * Returns the size of this event queue.
-	 * 
+	 *
 	 * @return the number of events in the queue.
 	 */
 	public int size() {
-		return list.size();
+		return size;
 	}
 
 	/**
 	 * Clears the queue.
 	 */
 	public void clear() {
-		list.clear();
+		Arrays.fill(mailboxes, null);
+		size = 0;
+	}
+
+	/**
+	 * The deferred events of a single entity.
+	 */
+	private static final class Mailbox {
+
+		/** The list. */
+		private final LinkedList<SimEvent> list = new LinkedList<SimEvent>();
+
+		/** The max time. */
+		private double maxTime = -1;
+
+		/**
+		 * Adds a new event to the mailbox, preserving the temporal order of the events.
+		 *
+		 * @param newEvent the event
+		 */
+		private void addEvent(SimEvent newEvent) {
+			// The event has to be inserted as the last of all events
+			// with the same event_time(). Yes, this matters.
+			double eventTime = newEvent.eventTime();
+			if (eventTime >= maxTime) {
+				list.add(newEvent);
+				maxTime = eventTime;
+				return;
+			}
+
+			ListIterator<SimEvent> iterator = list.listIterator();
+			SimEvent event;
+			while (iterator.hasNext()) {
+				event = iterator.next();
+				if (event.eventTime() > eventTime) {
+					iterator.previous();
+					iterator.add(newEvent);
+					return;
+				}
+			}
+
+			list.add(newEvent);
+		}
 	}
 
-}
\ No newline at end of file
+}
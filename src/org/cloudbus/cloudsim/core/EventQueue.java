@@ -0,0 +1,74 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.Iterator;
+
+/**
+ * The priority queue engine behind {@link FutureQueue}. Implementations keep {@link SimEvent}s
+ * ordered by {@link SimEvent#compareTo(SimEvent)}, i.e. by event time and then by serial number,
+ * so that every engine hands the events to the simulation in exactly the same order.
+ *
+ * @since CloudSim Toolkit 3.0
+ * @see FutureQueue
+ * @see BinaryHeapEventQueue
+ * @see CalendarEventQueue
+ */
+public interface EventQueue {
+
+	/**
+	 * Adds an event to the queue. The serial number of the event must already be set.
+	 *
+	 * @param event the event
+	 */
+	void add(SimEvent event);
+
+	/**
+	 * Returns the earliest event without removing it.
+	 *
+	 * @return the earliest event, or <tt>null</tt> if the queue is empty
+	 */
+	SimEvent peek();
+
+	/**
+	 * Removes and returns the earliest event.
+	 *
+	 * @return the earliest event, or <tt>null</tt> if the queue is empty
+	 */
+	SimEvent poll();
+
+	/**
+	 * Removes the given event from the queue.
+	 *
+	 * @param event the event
+	 * @return true, if the event was in the queue
+	 */
+	boolean remove(SimEvent event);
+
+	/**
+	 * Returns the number of events in the queue.
+	 *
+	 * @return the size
+	 */
+	int size();
+
+	/**
+	 * Removes all the events from the queue.
+	 */
+	void clear();
+
+	/**
+	 * Returns a read-only iterator over the events in the queue. The iteration order is not
+	 * specified.
+	 *
+	 * @return the iterator
+	 */
+	Iterator<SimEvent> iterator();
+
+}
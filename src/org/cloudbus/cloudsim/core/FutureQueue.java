@@ -8,92 +8,485 @@
 
 package org.cloudbus.cloudsim.core;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.cloudbus.cloudsim.core.predicates.PredicateType;
 
 /**
- * This class implements the future event queue used by {@link Simulation}. The event queue uses a
- * {@link TreeSet} in order to store the events.
- * 
+ * This class implements the future event queue used by {@link Simulation}. The events are stored
+ * in a pluggable {@link EventQueue} engine, a {@link BinaryHeapEventQueue} by default, which keeps
+ * them ordered by time and then by the serial number assigned here.
+ * <p>
+ * The pending events are also indexed by source entity and tag, so that all the events of a given
+ * source and tag can be cancelled without scanning the queue. Removed events are not taken out of
+ * the engine right away: they are left behind as tombstones, which are discarded when they reach
+ * the head of the queue or when they outnumber the pending events.
+ *
  * @author Marcos Dias de Assuncao
  * @since CloudSim Toolkit 1.0
  * @see Simulation
- * @see java.util.TreeSet
+ * @see EventQueue
  */
 public class FutureQueue {
 
-	/** The sorted set. */
-	private final SortedSet<SimEvent> sortedSet = new TreeSet<SimEvent>();
+	/** The minimal number of tombstones before the engine is purged. */
+	private static final int PURGE_THRESHOLD = 1024;
+
+	/** The event queue engine. */
+	private final EventQueue queue;
 
 	/** The serial. */
 	private long serial = 0;
 
+	/** The serial of the events added to the head of the queue. */
+	private long firstSerial = Long.MIN_VALUE;
+
+	/** The number of pending events. */
+	private int size = 0;
+
+	/** The number of removed events still held by the engine. */
+	private int tombstones = 0;
+
+	/** The pending events indexed by source entity id and then by tag. */
+	private SourceIndex[] sources = new SourceIndex[16];
+
+	/**
+	 * Creates a future queue backed by a {@link BinaryHeapEventQueue}.
+	 */
+	public FutureQueue() {
+		this(new BinaryHeapEventQueue());
+	}
+
+	/**
+	 * Creates a future queue backed by the given engine.
+	 *
+	 * @param queue the event queue engine, which must be empty
+	 */
+	public FutureQueue(EventQueue queue) {
+		if (queue == null) {
+			throw new IllegalArgumentException("The event queue can't be null.");
+		}
+		this.queue = queue;
+	}
+
 	/**
 	 * Add a new event to the queue. Adding a new event to the queue preserves the temporal order of
 	 * the events in the queue.
-	 * 
+	 *
 	 * @param newEvent The event to be put in the queue.
 	 */
 	public void addEvent(SimEvent newEvent) {
 		newEvent.setSerial(serial++);
-		sortedSet.add(newEvent);
+		add(newEvent);
 	}
 
 	/**
-	 * Add a new event to the head of the queue.
-	 * 
+	 * Add a new event to the head of the queue. The event is placed before all the events
+	 * scheduled for the same time, except those previously added to the head.
+	 *
 	 * @param newEvent The event to be put in the queue.
 	 */
 	public void addEventFirst(SimEvent newEvent) {
-		newEvent.setSerial(0);
-		sortedSet.add(newEvent);
+		newEvent.setSerial(firstSerial++);
+		add(newEvent);
+	}
+
+	/**
+	 * Returns the first event of the queue without removing it.
+	 *
+	 * @return the first event, or <tt>null</tt> if the queue is empty
+	 */
+	public SimEvent peek() {
+		SimEvent first = queue.peek();
+		while (first != null && !first.queued) {
+			queue.poll();
+			tombstones--;
+			first = queue.peek();
+		}
+		return first;
 	}
 
 	/**
-	 * Returns an iterator to the queue.
-	 * 
+	 * Removes and returns the first event of the queue.
+	 *
+	 * @return the first event, or <tt>null</tt> if the queue is empty
+	 */
+	public SimEvent poll() {
+		SimEvent first = queue.poll();
+		while (first != null && !first.queued) {
+			tombstones--;
+			first = queue.poll();
+		}
+		if (first != null) {
+			unindex(first);
+			first.queued = false;
+			size--;
+		}
+		return first;
+	}
+
+	/**
+	 * Removes all the events scheduled for the given time from the head of the queue and appends
+	 * them, in order, to the given batch. The batch is not cleared, so the caller can reuse the
+	 * same buffer for every call.
+	 *
+	 * @param time the time of the events, usually the time of the first event
+	 * @param batch the list the events are appended to
+	 * @return the number of events removed
+	 */
+	public int pollAllAt(double time, List<SimEvent> batch) {
+		int count = 0;
+		SimEvent next = peek();
+		while (next != null && next.eventTime() == time) {
+			batch.add(poll());
+			count++;
+			next = peek();
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the earliest pending event with the given source and tag.
+	 *
+	 * @param src the id of the source entity
+	 * @param tag the tag
+	 * @return the event, or <tt>null</tt> if there is none
+	 */
+	public SimEvent findFirst(int src, int tag) {
+		SimEvent first = null;
+		SimEvent event = head(src, tag);
+		while (event != null) {
+			if (first == null || event.compareTo(first) < 0) {
+				first = event;
+			}
+			event = event.indexNext;
+		}
+		return first;
+	}
+
+	/**
+	 * Returns the earliest pending event with the given source and any of the tags of a predicate.
+	 *
+	 * @param src the id of the source entity
+	 * @param p the predicate selecting the tags
+	 * @return the event, or <tt>null</tt> if there is none
+	 */
+	public SimEvent findFirst(int src, PredicateType p) {
+		SimEvent first = null;
+		for (int i = 0; i < p.getTagCount(); i++) {
+			SimEvent event = findFirst(src, p.getTag(i));
+			if (event != null && (first == null || event.compareTo(first) < 0)) {
+				first = event;
+			}
+		}
+		return first;
+	}
+
+	/**
+	 * Removes all the pending events with the given source and any of the tags of a predicate.
+	 *
+	 * @param src the id of the source entity
+	 * @param p the predicate selecting the tags
+	 * @return true, if at least one event has been removed
+	 */
+	public boolean removeAll(int src, PredicateType p) {
+		boolean removed = false;
+		for (int i = 0; i < p.getTagCount(); i++) {
+			removed |= removeAll(src, p.getTag(i));
+		}
+		return removed;
+	}
+
+	/**
+	 * Removes all the pending events with the given source and tag. The time taken only depends on
+	 * the number of events removed.
+	 *
+	 * @param src the id of the source entity
+	 * @param tag the tag
+	 * @return true, if at least one event has been removed
+	 */
+	public boolean removeAll(int src, int tag) {
+		if (src < 0 || src >= sources.length || sources[src] == null) {
+			return false;
+		}
+		SourceIndex index = sources[src];
+		int slot = index.slotOf(tag);
+		if (slot < 0 || index.heads[slot] == null) {
+			return false;
+		}
+
+		SimEvent event = index.heads[slot];
+		index.heads[slot] = null;
+		while (event != null) {
+			SimEvent next = event.indexNext;
+			event.indexPrev = null;
+			event.indexNext = null;
+			event.queued = false;
+			size--;
+			tombstones++;
+			event = next;
+		}
+		purgeIfNeeded();
+		return true;
+	}
+
+	/**
+	 * Returns a read-only iterator to the queue. The iteration order depends on the event queue
+	 * engine and is not necessarily the temporal order.
+	 *
 	 * @return the iterator
 	 */
 	public Iterator<SimEvent> iterator() {
-		return sortedSet.iterator();
+		final Iterator<SimEvent> iterator = queue.iterator();
+		return new Iterator<SimEvent>() {
+
+			private SimEvent next = advance();
+
+			private SimEvent advance() {
+				while (iterator.hasNext()) {
+					SimEvent event = iterator.next();
+					if (event.queued) {
+						return event;
+					}
+				}
+				return null;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return next != null;
+			}
+
+			@Override
+			public SimEvent next() {
+				if (next == null) {
+					throw new NoSuchElementException();
+				}
+				SimEvent current = next;
+				next = advance();
+				return current;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
 	}
 
 	/**
 	 * Returns the size of this event queue.
-	 * 
+	 *
 	 * @return the size
 	 */
 	public int size() {
-		return sortedSet.size();
+		return size;
 	}
 
 	/**
 	 * Removes the event from the queue.
-	 * 
+	 *
 	 * @param event the event
 	 * @return true, if successful
 	 */
 	public boolean remove(SimEvent event) {
-		return sortedSet.remove(event);
+		if (!event.queued) {
+			return false;
+		}
+		unindex(event);
+		event.queued = false;
+		size--;
+		tombstones++;
+		purgeIfNeeded();
+		return true;
 	}
 
 	/**
 	 * Removes all the events from the queue.
-	 * 
+	 *
 	 * @param events the events
 	 * @return true, if successful
 	 */
 	public boolean removeAll(Collection<SimEvent> events) {
-		return sortedSet.removeAll(events);
+		boolean removed = false;
+		for (SimEvent event : events) {
+			removed |= remove(event);
+		}
+		return removed;
 	}
 
 	/**
 	 * Clears the queue.
 	 */
 	public void clear() {
-		sortedSet.clear();
+		Iterator<SimEvent> iterator = queue.iterator();
+		while (iterator.hasNext()) {
+			SimEvent event = iterator.next();
+			event.queued = false;
+			event.indexPrev = null;
+			event.indexNext = null;
+		}
+		queue.clear();
+		Arrays.fill(sources, null);
+		size = 0;
+		tombstones = 0;
+	}
+
+	/**
+	 * Adds an event with its serial already set to the engine and the index.
+	 *
+	 * @param event the event
+	 */
+	private void add(SimEvent event) {
+		event.queued = true;
+		index(event);
+		queue.add(event);
+		size++;
+	}
+
+	/**
+	 * Takes the tombstones out of the engine when they outnumber the pending events.
+	 */
+	private void purgeIfNeeded() {
+		if (tombstones < PURGE_THRESHOLD || tombstones < size) {
+			return;
+		}
+		List<SimEvent> removed = new ArrayList<SimEvent>(tombstones);
+		Iterator<SimEvent> iterator = queue.iterator();
+		while (iterator.hasNext()) {
+			SimEvent event = iterator.next();
+			if (!event.queued) {
+				removed.add(event);
+			}
+		}
+		for (SimEvent event : removed) {
+			queue.remove(event);
+		}
+		tombstones = 0;
+	}
+
+	/**
+	 * Gets the most recently added pending event with the given source and tag.
+	 *
+	 * @param src the id of the source entity
+	 * @param tag the tag
+	 * @return the event, or <tt>null</tt> if there is none
+	 */
+	private SimEvent head(int src, int tag) {
+		if (src < 0 || src >= sources.length || sources[src] == null) {
+			return null;
+		}
+		SourceIndex index = sources[src];
+		int slot = index.slotOf(tag);
+		return slot < 0 ? null : index.heads[slot];
+	}
+
+	/**
+	 * Links the event to the list of pending events with the same source and tag.
+	 *
+	 * @param event the event
+	 */
+	private void index(SimEvent event) {
+		int src = event.getSource();
+		if (src < 0) {
+			return;
+		}
+		if (src >= sources.length) {
+			sources = Arrays.copyOf(sources, Math.max(src + 1, sources.length << 1));
+		}
+		SourceIndex index = sources[src];
+		if (index == null) {
+			index = new SourceIndex();
+			sources[src] = index;
+		}
+		int slot = index.slotOrAdd(event.getTag());
+		SimEvent head = index.heads[slot];
+		event.indexPrev = null;
+		event.indexNext = head;
+		if (head != null) {
+			head.indexPrev = event;
+		}
+		index.heads[slot] = event;
+	}
+
+	/**
+	 * Unlinks the event from the list of pending events with the same source and tag.
+	 *
+	 * @param event the event
+	 */
+	private void unindex(SimEvent event) {
+		int src = event.getSource();
+		if (src < 0) {
+			return;
+		}
+		SimEvent previous = event.indexPrev;
+		SimEvent next = event.indexNext;
+		if (previous != null) {
+			previous.indexNext = next;
+		} else {
+			SourceIndex index = sources[src];
+			index.heads[index.slotOf(event.getTag())] = next;
+		}
+		if (next != null) {
+			next.indexPrev = previous;
+		}
+		event.indexPrev = null;
+		event.indexNext = null;
+	}
+
+	/**
+	 * The pending events of a source entity, grouped by tag. Entities use a handful of tags, so
+	 * the tags are looked up linearly.
+	 */
+	private static final class SourceIndex {
+
+		/** The tags. */
+		private int[] tags = new int[4];
+
+		/** The most recently added pending event of each tag. */
+		private SimEvent[] heads = new SimEvent[4];
+
+		/** The number of tags. */
+		private int count = 0;
+
+		/**
+		 * Gets the slot of the given tag.
+		 *
+		 * @param tag the tag
+		 * @return the slot, or -1 if the tag has never been used
+		 */
+		private int slotOf(int tag) {
+			for (int i = 0; i < count; i++) {
+				if (tags[i] == tag) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * Gets the slot of the given tag, adding it if needed.
+		 *
+		 * @param tag the tag
+		 * @return the slot
+		 */
+		private int slotOrAdd(int tag) {
+			int slot = slotOf(tag);
+			if (slot >= 0) {
+				return slot;
+			}
+			if (count == tags.length) {
+				tags = Arrays.copyOf(tags, count << 1);
+				heads = Arrays.copyOf(heads, count << 1);
+			}
+			tags[count] = tag;
+			return count++;
+		}
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,92 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+/**
+ * The outcome of one simulation run by a {@link ReplicationRunner}.
+ *
+ * @param <R> the type of the value returned by the replication
+ * @since CloudSim Toolkit 3.0
+ * @see ReplicationRunner
+ */
+public class ReplicationResult<R> {
+
+	/** The position of the replication in the submitted list. */
+	private final int index;
+
+	/** The value returned by the replication. */
+	private final R result;
+
+	/** The error thrown by the replication. */
+	private final Throwable error;
+
+	/** The wall clock time taken by the replication, in milliseconds. */
+	private final long wallClockTime;
+
+	/**
+	 * Creates a new replication result.
+	 *
+	 * @param index the position of the replication in the submitted list
+	 * @param result the value returned by the replication
+	 * @param error the error thrown by the replication, or <tt>null</tt> if it succeeded
+	 * @param wallClockTime the wall clock time taken by the replication, in milliseconds
+	 */
+	public ReplicationResult(int index, R result, Throwable error, long wallClockTime) {
+		this.index = index;
+		this.result = result;
+		this.error = error;
+		this.wallClockTime = wallClockTime;
+	}
+
+	/**
+	 * Gets the position of the replication in the submitted list.
+	 *
+	 * @return the index
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * Gets the value returned by the replication.
+	 *
+	 * @return the result, or <tt>null</tt> if the replication failed
+	 */
+	public R getResult() {
+		return result;
+	}
+
+	/**
+	 * Gets the error thrown by the replication.
+	 *
+	 * @return the error, or <tt>null</tt> if the replication succeeded
+	 */
+	public Throwable getError() {
+		return error;
+	}
+
+	/**
+	 * Checks if the replication completed without error.
+	 *
+	 * @return true, if successful
+	 */
+	public boolean isSuccessful() {
+		return error == null;
+	}
+
+	/**
+	 * Gets the wall clock time taken by the replication.
+	 *
+	 * @return the wall clock time, in milliseconds
+	 */
+	public long getWallClockTime() {
+		return wallClockTime;
+	}
+
+}
@@ -0,0 +1,155 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs independent simulations, e.g. the same scenario with different seeds or configurations,
+ * concurrently in the same JVM. Each replication is a {@link Callable} that initialises CloudSim,
+ * builds its entities, starts the simulation and returns whatever results it needs. It runs on a
+ * {@link SimulationThread} bound to a fresh {@link SimulationContext}, so it does not share any
+ * simulation state with the other replications.
+ * <p>
+ * The configuration classes, the {@link org.cloudbus.cloudsim.Log} output and the
+ * {@link org.cloudbus.cloudsim.NetworkTopology} are still shared by all the replications, so they
+ * should be set up before calling {@link #run(List)} and the log should usually be disabled. Their
+ * setters throw an {@link IllegalStateException} when a replication calls them while others run
+ * (see {@link SimulationContext#checkSharedStateChange(String)}). Replications must not call
+ * <tt>System.exit</tt>.
+ *
+ * @since CloudSim Toolkit 3.0
+ * @see SimulationContext
+ * @see ReplicationResult
+ */
+public class ReplicationRunner {
+
+	/** The number of replications run at the same time. */
+	private final int parallelism;
+
+	/**
+	 * Creates a runner using one thread per available processor.
+	 */
+	public ReplicationRunner() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a runner.
+	 *
+	 * @param parallelism the number of replications run at the same time
+	 */
+	public ReplicationRunner(int parallelism) {
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException("The parallelism should be positive, but is:" + parallelism);
+		}
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Runs the replications and waits for all of them to complete. A replication that throws an
+	 * exception does not stop the others; the exception is reported in its result.
+	 *
+	 * @param replications the replications
+	 * @return the results, in the order of the replications
+	 * @throws InterruptedException if the calling thread is interrupted while waiting
+	 */
+	public <R> List<ReplicationResult<R>> run(List<? extends Callable<R>> replications)
+			throws InterruptedException {
+		ExecutorService executor = Executors.newFixedThreadPool(
+				Math.min(parallelism, Math.max(1, replications.size())),
+				new SimulationThreadFactory());
+		try {
+			List<Future<ReplicationResult<R>>> futures = new ArrayList<Future<ReplicationResult<R>>>();
+			for (int i = 0; i < replications.size(); i++) {
+				futures.add(executor.submit(new Replication<R>(i, replications.get(i))));
+			}
+
+			List<ReplicationResult<R>> results = new ArrayList<ReplicationResult<R>>();
+			for (Future<ReplicationResult<R>> future : futures) {
+				try {
+					results.add(future.get());
+				} catch (ExecutionException e) {
+					// Replication catches everything thrown by the simulation
+					throw new IllegalStateException(e.getCause());
+				}
+			}
+			return results;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * A replication run in a fresh simulation context.
+	 *
+	 * @param <R> the type of the value returned by the replication
+	 */
+	private static class Replication<R> implements Callable<ReplicationResult<R>> {
+
+		/** The position of the replication. */
+		private final int index;
+
+		/** The simulation. */
+		private final Callable<R> simulation;
+
+		/**
+		 * Creates a new replication.
+		 *
+		 * @param index the position of the replication
+		 * @param simulation the simulation
+		 */
+		public Replication(int index, Callable<R> simulation) {
+			this.index = index;
+			this.simulation = simulation;
+		}
+
+		@Override
+		public ReplicationResult<R> call() {
+			SimulationThread thread = (SimulationThread) Thread.currentThread();
+			thread.setContext(new SimulationContext());
+			SimulationContext.setThreadSimulationRunning(true);
+			long start = System.currentTimeMillis();
+			try {
+				R result = simulation.call();
+				return new ReplicationResult<R>(index, result, null, System.currentTimeMillis() - start);
+			} catch (Throwable e) {
+				return new ReplicationResult<R>(index, null, e, System.currentTimeMillis() - start);
+			} finally {
+				SimulationContext.setThreadSimulationRunning(false);
+				thread.setContext(null);
+			}
+		}
+	}
+
+	/**
+	 * Creates the simulation threads of the runner.
+	 */
+	private static class SimulationThreadFactory implements ThreadFactory {
+
+		/** The number of threads created. */
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable r) {
+			SimulationThread thread = new SimulationThread(r, "Replication-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+}
@@ -42,6 +42,9 @@ public abstract class SimEntity implements Cloneable {
 	/** The entity's current state. */
 	private int state;
 
+	/** Whether events are dispatched directly to this entity and recycled afterwards. */
+	private boolean directDispatch;
+
 	/**
 	 * Creates a new entity.
 	 * 
@@ -376,6 +379,12 @@ public abstract class SimEntity implements Cloneable {
 	 * @return the simulation event
 	 */
 	public SimEvent getNextEvent() {
+		if (directDispatch) {
+			if (!CloudSim.running()) {
+				return null;
+			}
+			return CloudSim.selectFirst(id);
+		}
 		return getNextEvent(CloudSim.SIM_ANY);
 	}
 
@@ -404,6 +413,9 @@ public abstract class SimEntity implements Cloneable {
 
 		while (ev != null) {
 			processEvent(ev);
+			if (directDispatch) {
+				CloudSim.releaseEvent(ev);
+			}
 			if (state != RUNNABLE) {
 				break;
 			}
@@ -474,6 +486,30 @@ public abstract class SimEntity implements Cloneable {
 	/** The Constant FINISHED. */
 	public static final int FINISHED = 3;
 
+	/**
+	 * Checks if events are dispatched directly to this entity.
+	 * 
+	 * @return true, if direct dispatch is enabled
+	 * @see #setDirectDispatch(boolean)
+	 */
+	public boolean isDirectDispatch() {
+		return directDispatch;
+	}
+
+	/**
+	 * Enables or disables direct dispatch of events to this entity. An entity may only enable it if
+	 * it never waits for events matching a predicate and never keeps a reference to a
+	 * {@link SimEvent} after {@link #processEvent(SimEvent)} returns. Its deferred events are then
+	 * taken straight from its mailbox, without evaluating predicates, and every event is released
+	 * to the simulation for reuse as soon as it has been processed. The data carried by the event
+	 * is not affected.
+	 * 
+	 * @param directDispatch true to enable direct dispatch
+	 */
+	protected void setDirectDispatch(boolean directDispatch) {
+		this.directDispatch = directDispatch;
+	}
+
 	/**
 	 * Sets the state.
 	 * 
@@ -481,6 +517,9 @@ public abstract class SimEntity implements Cloneable {
 	 */
 	protected void setState(int state) {
 		this.state = state;
+		if (state == RUNNABLE && id >= 0) {
+			CloudSim.markRunnable(id);
+		}
 	}
 
 	/**
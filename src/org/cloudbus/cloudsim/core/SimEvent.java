@@ -18,10 +18,10 @@ package org.cloudbus.cloudsim.core;
 public class SimEvent implements Cloneable, Comparable<SimEvent> {
 
 	/** internal event type **/
-	private final int etype;
+	private int etype;
 
 	/** time at which event should occur **/
-	private final double time;
+	private double time;
 
 	/** time that the event was removed from the queue for service **/
 	private double endWaitingTime;
@@ -33,13 +33,25 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 	private int entDst;
 
 	/** the user defined type of the event **/
-	private final int tag;
+	private int tag;
 
 	/** any data the event is carrying **/
-	private final Object data;
+	private Object data;
 
 	private long serial = -1;
 
+	/** position of the event inside the {@link EventQueue} holding it, or -1 **/
+	int queueIndex = -1;
+
+	/** next event in the same bucket of a {@link CalendarEventQueue} **/
+	SimEvent queueNext;
+
+	/** whether the event is pending in a {@link FutureQueue} **/
+	boolean queued;
+
+	/** neighbours in the list of pending events with the same source and tag **/
+	SimEvent indexPrev, indexNext;
+
 	// Internal event types
 
 	public static final int ENULL = 0;
@@ -82,10 +94,34 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 		data = null;
 	}
 
+	/**
+	 * Reinitialises a released event so that it can be scheduled again, as if it had just been
+	 * created with the same arguments.
+	 */
+	void reset(int evtype, double time, int src, int dest, int tag, Object edata) {
+		etype = evtype;
+		this.time = time;
+		endWaitingTime = 0;
+		entSrc = src;
+		entDst = dest;
+		this.tag = tag;
+		data = edata;
+		serial = -1;
+	}
+
 	protected void setSerial(long serial) {
 		this.serial = serial;
 	}
 
+	/**
+	 * Gets the serial number used to order events scheduled for the same time.
+	 * 
+	 * @return the serial
+	 */
+	protected long getSerial() {
+		return serial;
+	}
+
 	/**
 	 * Used to set the time at which this event finished waiting in the event
 	 * 
@@ -125,10 +161,10 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 			return 1;
 		} else if (serial < event.serial) {
 			return -1;
-		} else if (this == event) {
-			return 0;
-		} else {
+		} else if (serial > event.serial) {
 			return 1;
+		} else {
+			return 0;
 		}
 	}
 
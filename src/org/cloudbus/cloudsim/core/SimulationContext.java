@@ -0,0 +1,183 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+
+/**
+ * Holds the whole state of one simulation: the entities, the event queues, the clock and the
+ * state of the modules built on top of CloudSim, which register it as extensions. The static
+ * methods of {@link CloudSim} operate on the context of the calling thread, so several
+ * simulations can run concurrently in the same JVM as long as each one runs on its own
+ * {@link SimulationThread}. Any other thread uses a shared default context, which gives the usual
+ * single simulation per JVM behaviour.
+ *
+ * @since CloudSim Toolkit 3.0
+ * @see SimulationThread
+ * @see ReplicationRunner
+ */
+public class SimulationContext {
+
+	/** The context used by threads that are not simulation threads. */
+	private static final SimulationContext DEFAULT = new SimulationContext();
+
+	/** The number of simulations running on simulation threads. */
+	private static final AtomicInteger threadSimulations = new AtomicInteger();
+
+	/** The maximal number of released events kept for reuse. */
+	static final int EVENT_POOL_CAPACITY = 4096;
+
+	/** The id of CIS entity. */
+	int cisId = -1;
+
+	/** The id of CloudSimShutdown entity. */
+	int shutdownId = -1;
+
+	/** The CIS object. */
+	CloudInformationService cis = null;
+
+	/** The trace flag. */
+	boolean traceFlag = false;
+
+	/** The calendar. */
+	Calendar calendar = null;
+
+	/** The termination time. */
+	double terminateAt = -1;
+
+	/** The minimal time between events. Events within shorter periods after the last event are discarded. */
+	double minTimeBetweenEvents = 0.1;
+
+	/** The entities. */
+	List<SimEntity> entities;
+
+	/** The future event queue. */
+	FutureQueue future;
+
+	/** The deferred event queue. */
+	DeferredQueue deferred;
+
+	/**
+	 * The ids of the entities that may have work to do in the next clock tick, i.e. that have
+	 * become runnable or received a deferred event since they last ran.
+	 */
+	BitSet runnable;
+
+	/** The events processed in the current clock tick, reused across ticks. */
+	final List<SimEvent> batch = new ArrayList<SimEvent>();
+
+	/** The simulation clock. */
+	double clock;
+
+	/** Flag for checking if the simulation is running. */
+	boolean running;
+
+	/** The entities by name. */
+	Map<String, SimEntity> entitiesByName;
+
+	/** The wait predicates, indexed by entity id. */
+	Predicate[] waitPredicates;
+
+	/** The released events kept for reuse. */
+	final SimEvent[] eventPool = new SimEvent[EVENT_POOL_CAPACITY];
+
+	/** The number of events in the pool. */
+	int eventPoolSize = 0;
+
+	/** The paused. */
+	volatile boolean paused = false;
+
+	/** The pause at. */
+	long pauseAt = -1;
+
+	/** The abrupt terminate. */
+	boolean abruptTerminate = false;
+
+	/** The report of the simulation. */
+	SimulationReport report;
+
+	/** The number of events processed. */
+	long eventsProcessed;
+
+	/** The state of other modules, keyed by the class owning it. */
+	private final Map<Class<?>, Object> extensions = new HashMap<Class<?>, Object>();
+
+	/**
+	 * Gets the context of the calling thread.
+	 *
+	 * @return the context of the current {@link SimulationThread}, or the default context
+	 */
+	public static SimulationContext current() {
+		Thread thread = Thread.currentThread();
+		if (thread instanceof SimulationThread) {
+			SimulationContext context = ((SimulationThread) thread).getContext();
+			if (context != null) {
+				return context;
+			}
+		}
+		return DEFAULT;
+	}
+
+	/**
+	 * Records that a simulation thread starts or ends running a simulation.
+	 *
+	 * @param running true if the simulation starts, false if it ends
+	 */
+	static void setThreadSimulationRunning(boolean running) {
+		if (running) {
+			threadSimulations.incrementAndGet();
+		} else {
+			threadSimulations.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Checks that state shared by all the simulations of the JVM, such as the log output or the
+	 * network topology, can be changed: a simulation thread may only change it while no other
+	 * simulation thread runs. The other threads should set it up before starting the replications.
+	 *
+	 * @param owner the name of the shared state, for the error message
+	 * @throws IllegalStateException if another simulation runs concurrently on a simulation thread
+	 */
+	public static void checkSharedStateChange(String owner) {
+		if (Thread.currentThread() instanceof SimulationThread && threadSimulations.get() > 1) {
+			throw new IllegalStateException(owner
+					+ " is shared by all the simulations and can't be changed while replications run concurrently");
+		}
+	}
+
+	/**
+	 * Gets the state registered by a module for this simulation.
+	 *
+	 * @param type the class owning the state
+	 * @return the state, or <tt>null</tt> if none has been registered
+	 */
+	public <T> T getExtension(Class<T> type) {
+		return type.cast(extensions.get(type));
+	}
+
+	/**
+	 * Registers the state of a module for this simulation.
+	 *
+	 * @param type the class owning the state
+	 * @param extension the state
+	 */
+	public <T> void setExtension(Class<T> type, T extension) {
+		extensions.put(type, extension);
+	}
+
+}
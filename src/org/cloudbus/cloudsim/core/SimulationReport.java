@@ -0,0 +1,157 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The results of a simulation, returned by {@link CloudSim#startSimulation()}. Besides the final
+ * clock, the number of events processed and the wall clock time, which are filled in by CloudSim,
+ * the report holds named values that the entities add while the simulation runs, e.g. energy
+ * consumption or latencies. The names are flat; a dot can be used to group related values, e.g.
+ * <tt>energy.cloud</tt>.
+ *
+ * @since CloudSim Toolkit 3.0
+ * @see CloudSim#getSimulationReport()
+ * @see org.cloudbus.cloudsim.core.report.ReportExporter
+ */
+public class SimulationReport {
+
+	/** The name of the final clock in {@link #toMap()}. */
+	public static final String CLOCK = "clock";
+
+	/** The name of the number of events processed in {@link #toMap()}. */
+	public static final String EVENTS_PROCESSED = "eventsProcessed";
+
+	/** The name of the wall clock time in {@link #toMap()}. */
+	public static final String WALL_CLOCK_TIME = "wallClockTime";
+
+	/** The final simulation clock. */
+	private double clock;
+
+	/** The number of events processed. */
+	private long eventsProcessed;
+
+	/** The wall clock time taken by the simulation, in milliseconds. */
+	private long wallClockTime;
+
+	/** The values added by the entities, in insertion order. */
+	private final Map<String, Object> values = new LinkedHashMap<String, Object>();
+
+	/**
+	 * Gets the final simulation clock.
+	 *
+	 * @return the clock
+	 */
+	public double getClock() {
+		return clock;
+	}
+
+	/**
+	 * Sets the final simulation clock.
+	 *
+	 * @param clock the clock
+	 */
+	void setClock(double clock) {
+		this.clock = clock;
+	}
+
+	/**
+	 * Gets the number of events processed by the simulation.
+	 *
+	 * @return the number of events
+	 */
+	public long getEventsProcessed() {
+		return eventsProcessed;
+	}
+
+	/**
+	 * Sets the number of events processed by the simulation.
+	 *
+	 * @param eventsProcessed the number of events
+	 */
+	void setEventsProcessed(long eventsProcessed) {
+		this.eventsProcessed = eventsProcessed;
+	}
+
+	/**
+	 * Gets the wall clock time taken by the simulation.
+	 *
+	 * @return the wall clock time, in milliseconds
+	 */
+	public long getWallClockTime() {
+		return wallClockTime;
+	}
+
+	/**
+	 * Sets the wall clock time taken by the simulation.
+	 *
+	 * @param wallClockTime the wall clock time, in milliseconds
+	 */
+	void setWallClockTime(long wallClockTime) {
+		this.wallClockTime = wallClockTime;
+	}
+
+	/**
+	 * Adds a numeric value to the report, replacing any value with the same name.
+	 *
+	 * @param name the name
+	 * @param value the value
+	 */
+	public void put(String name, Number value) {
+		values.put(name, value);
+	}
+
+	/**
+	 * Adds a text value to the report, replacing any value with the same name.
+	 *
+	 * @param name the name
+	 * @param value the value
+	 */
+	public void put(String name, String value) {
+		values.put(name, value);
+	}
+
+	/**
+	 * Gets a value added to the report.
+	 *
+	 * @param name the name
+	 * @return the value, or <tt>null</tt> if there is none
+	 */
+	public Object get(String name) {
+		return values.get(name);
+	}
+
+	/**
+	 * Gets the values added to the report by the entities.
+	 *
+	 * @return a read-only view of the values, in insertion order
+	 */
+	public Map<String, Object> getValues() {
+		return Collections.unmodifiableMap(values);
+	}
+
+	/**
+	 * Gets all the values of the report: the clock, the number of events processed and the wall
+	 * clock time, followed by the values added by the entities.
+	 *
+	 * @return a new map with all the values, in order
+	 */
+	public Map<String, Object> toMap() {
+		Map<String, Object> map = new LinkedHashMap<String, Object>();
+		map.put(CLOCK, clock);
+		map.put(EVENTS_PROCESSED, eventsProcessed);
+		map.put(WALL_CLOCK_TIME, wallClockTime);
+		map.putAll(values);
+		return map;
+	}
+
+}
@@ -0,0 +1,51 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+/**
+ * A thread bound to a {@link SimulationContext}. All the calls to {@link CloudSim} made from this
+ * thread use its context instead of the default one.
+ *
+ * @since CloudSim Toolkit 3.0
+ * @see SimulationContext
+ */
+public class SimulationThread extends Thread {
+
+	/** The context. */
+	private SimulationContext context;
+
+	/**
+	 * Creates a new simulation thread.
+	 *
+	 * @param target the runnable executed by the thread
+	 * @param name the name of the thread
+	 */
+	public SimulationThread(Runnable target, String name) {
+		super(target, name);
+	}
+
+	/**
+	 * Gets the context used by this thread.
+	 *
+	 * @return the context, or <tt>null</tt> if the default context is used
+	 */
+	public SimulationContext getContext() {
+		return context;
+	}
+
+	/**
+	 * Sets the context used by this thread. It should only be called from the thread itself.
+	 *
+	 * @param context the context, or <tt>null</tt> to use the default context
+	 */
+	public void setContext(SimulationContext context) {
+		this.context = context;
+	}
+
+}
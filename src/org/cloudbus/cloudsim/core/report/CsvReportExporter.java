@@ -0,0 +1,86 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core.report;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.cloudbus.cloudsim.core.SimulationReport;
+
+/**
+ * Writes simulation reports as CSV (RFC 4180): a header with the names of all the values found
+ * in the reports, then one row per report. A value missing from a report is left empty.
+ *
+ * @since CloudSim Toolkit 3.0
+ */
+public class CsvReportExporter implements ReportExporter {
+
+	@Override
+	public void export(List<SimulationReport> reports, Writer writer) throws IOException {
+		Set<String> columns = new LinkedHashSet<String>();
+		for (SimulationReport report : reports) {
+			columns.addAll(report.toMap().keySet());
+		}
+
+		writeRow(columns, writer);
+		for (SimulationReport report : reports) {
+			Map<String, Object> values = report.toMap();
+			boolean first = true;
+			for (String column : columns) {
+				if (!first) {
+					writer.write(',');
+				}
+				Object value = values.get(column);
+				if (value != null) {
+					writer.write(escape(value.toString()));
+				}
+				first = false;
+			}
+			writer.write("\r\n");
+		}
+	}
+
+	/**
+	 * Writes a row of text cells.
+	 *
+	 * @param cells the cells
+	 * @param writer the writer
+	 * @throws IOException if the row cannot be written
+	 */
+	private static void writeRow(Set<String> cells, Writer writer) throws IOException {
+		boolean first = true;
+		for (String cell : cells) {
+			if (!first) {
+				writer.write(',');
+			}
+			writer.write(escape(cell));
+			first = false;
+		}
+		writer.write("\r\n");
+	}
+
+	/**
+	 * Quotes a cell if it contains a separator, a quote or a line break.
+	 *
+	 * @param cell the cell
+	 * @return the escaped cell
+	 */
+	private static String escape(String cell) {
+		if (cell.indexOf(',') < 0 && cell.indexOf('"') < 0 && cell.indexOf('\n') < 0
+				&& cell.indexOf('\r') < 0) {
+			return cell;
+		}
+		return "\"" + cell.replace("\"", "\"\"") + "\"";
+	}
+
+}
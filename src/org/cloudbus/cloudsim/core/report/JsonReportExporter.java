@@ -0,0 +1,70 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core.report;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.core.SimulationReport;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+
+/**
+ * Writes simulation reports as a JSON array with one object per report. Numbers that JSON cannot
+ * represent, i.e. NaN and infinities, are written as <tt>null</tt>.
+ *
+ * @since CloudSim Toolkit 3.0
+ */
+public class JsonReportExporter implements ReportExporter {
+
+	@Override
+	public void export(List<SimulationReport> reports, Writer writer) throws IOException {
+		writer.write('[');
+		boolean firstReport = true;
+		for (SimulationReport report : reports) {
+			if (!firstReport) {
+				writer.write(',');
+			}
+			writer.write('{');
+			boolean first = true;
+			for (Map.Entry<String, Object> entry : report.toMap().entrySet()) {
+				if (!first) {
+					writer.write(',');
+				}
+				writer.write('"');
+				writer.write(JSONObject.escape(entry.getKey()));
+				writer.write("\":");
+				writer.write(toJson(entry.getValue()));
+				first = false;
+			}
+			writer.write('}');
+			firstReport = false;
+		}
+		writer.write(']');
+	}
+
+	/**
+	 * Converts a value to JSON.
+	 *
+	 * @param value the value
+	 * @return the JSON text
+	 */
+	private static String toJson(Object value) {
+		if (value instanceof Double || value instanceof Float) {
+			double number = ((Number) value).doubleValue();
+			if (Double.isNaN(number) || Double.isInfinite(number)) {
+				return "null";
+			}
+		}
+		return JSONValue.toJSONString(value);
+	}
+
+}
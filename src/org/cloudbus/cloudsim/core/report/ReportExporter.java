@@ -0,0 +1,35 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core.report;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+import org.cloudbus.cloudsim.core.SimulationReport;
+
+/**
+ * Writes simulation reports in a given format, usually the reports of many runs of a parameter
+ * sweep at once.
+ *
+ * @since CloudSim Toolkit 3.0
+ * @see SimulationReport
+ */
+public interface ReportExporter {
+
+	/**
+	 * Writes the reports. The writer is neither flushed nor closed.
+	 *
+	 * @param reports the reports
+	 * @param writer the writer
+	 * @throws IOException if the reports cannot be written
+	 */
+	void export(List<SimulationReport> reports, Writer writer) throws IOException;
+
+}
@@ -0,0 +1,226 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.network;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class computes the delays between the nodes of a topology on demand, with Dijkstra's algorithm,
+ * instead of holding the delays between all the nodes as {@link DelayMatrix_Float} does. The delays
+ * from the most recently used sources are kept in a bounded LRU cache, so the memory used is linear in
+ * the number of nodes and links.
+ * <p>
+ * Links are interpreted as by {@link DelayMatrix_Float}: a link with a zero delay is ignored, a link
+ * replaces any previous link between the same nodes, and the delay between unconnected nodes is
+ * Float.MAX_VALUE. Delays must not be negative. As the delays of a path are summed in a different
+ * order, they may differ from those of the delay matrix in the last bits.
+ *
+ * @since CloudSim Toolkit 3.0
+ */
+public class DijkstraDelayCache {
+
+	/**
+	 * number of nodes in the topology
+	 */
+	private final int mTotalNodeNum;
+
+	/**
+	 * index in mNeighbours and mDelays of the first link of each node, plus the total number of links
+	 */
+	private final int[] mFirstLink;
+
+	/**
+	 * destination node of each link, grouped by source node
+	 */
+	private final int[] mNeighbours;
+
+	/**
+	 * delay of each link, grouped by source node
+	 */
+	private final float[] mDelays;
+
+	/**
+	 * delays from the cached sources to every node, least recently used first
+	 */
+	private final LinkedHashMap<Integer, float[]> mSourceDelays;
+
+	/**
+	 * binary heap of the nodes to visit, as their tentative delay in the high bits and their ID in the
+	 * low bits
+	 */
+	private long[] mHeap;
+
+	/**
+	 * creates the cache of delays of a topology
+	 *
+	 * @param graph the topological graph
+	 * @param directed true if the graph is directed; false otherwise
+	 * @param maxCachedSources the maximum number of sources whose delays are cached
+	 */
+	public DijkstraDelayCache(TopologicalGraph graph, boolean directed, final int maxCachedSources) {
+		if (maxCachedSources <= 0) {
+			throw new IllegalArgumentException("The number of cached sources must be positive");
+		}
+		mTotalNodeNum = graph.getNumberOfNodes();
+
+		// a link replaces any previous link between the same nodes, as in the delay matrix
+		Map<Long, Float> links = new LinkedHashMap<Long, Float>();
+		Iterator<TopologicalLink> itr = graph.getLinkIterator();
+		while (itr.hasNext()) {
+			TopologicalLink edge = itr.next();
+			links.put(getLinkKey(edge.getSrcNodeID(), edge.getDestNodeID()), edge.getLinkDelay());
+			if (!directed) {
+				links.put(getLinkKey(edge.getDestNodeID(), edge.getSrcNodeID()), edge.getLinkDelay());
+			}
+		}
+
+		mFirstLink = new int[mTotalNodeNum + 1];
+		Map<Long, Float> usedLinks = new HashMap<Long, Float>();
+		for (Map.Entry<Long, Float> link : links.entrySet()) {
+			// links with a zero delay are ignored, as by the Floyd-Warshall algorithm
+			if (link.getValue() != 0) {
+				usedLinks.put(link.getKey(), link.getValue());
+				mFirstLink[(int) (link.getKey() >>> 32) + 1]++;
+			}
+		}
+		for (int node = 0; node < mTotalNodeNum; node++) {
+			mFirstLink[node + 1] += mFirstLink[node];
+		}
+		mNeighbours = new int[usedLinks.size()];
+		mDelays = new float[usedLinks.size()];
+		int[] nextLink = Arrays.copyOf(mFirstLink, mTotalNodeNum);
+		for (Map.Entry<Long, Float> link : usedLinks.entrySet()) {
+			int index = nextLink[(int) (link.getKey() >>> 32)]++;
+			mNeighbours[index] = (int) (long) link.getKey();
+			mDelays[index] = link.getValue();
+		}
+
+		mSourceDelays = new LinkedHashMap<Integer, float[]>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, float[]> eldest) {
+				return size() > maxCachedSources;
+			}
+		};
+		mHeap = new long[16];
+	}
+
+	private static long getLinkKey(int srcID, int destID) {
+		return ((long) srcID << 32) | destID;
+	}
+
+	/**
+	 * returns the delay between two nodes
+	 *
+	 * @param srcID the id of the source node
+	 * @param destID the id of the destination node
+	 * @return the delay between the nodes
+	 */
+	public synchronized float getDelay(int srcID, int destID) {
+		// check the nodeIDs against internal array-boundarys
+		if (srcID < 0 || destID < 0 || srcID >= mTotalNodeNum || destID >= mTotalNodeNum) {
+			throw new ArrayIndexOutOfBoundsException("srcID or destID is higher than highest stored node-ID!");
+		}
+		float[] delays = mSourceDelays.get(srcID);
+		if (delays == null) {
+			delays = calculateShortestPaths(srcID);
+			mSourceDelays.put(srcID, delays);
+		}
+		return delays[destID];
+	}
+
+	/**
+	 * calculates the delays from a node to every node
+	 *
+	 * @param srcID the id of the source node
+	 * @return the delays, indexed by node
+	 */
+	private float[] calculateShortestPaths(int srcID) {
+		float[] delays = new float[mTotalNodeNum];
+		Arrays.fill(delays, Float.MAX_VALUE);
+		delays[srcID] = 0;
+
+		int heapSize = 0;
+		heapSize = push(heapSize, 0, srcID);
+		while (heapSize > 0) {
+			long top = mHeap[0];
+			heapSize = pop(heapSize);
+			float delay = Float.intBitsToFloat((int) (top >>> 32));
+			int node = (int) top;
+			if (delay > delays[node]) {
+				// outdated entry of a node reached again with a shorter delay
+				continue;
+			}
+			for (int link = mFirstLink[node]; link < mFirstLink[node + 1]; link++) {
+				int neighbour = mNeighbours[link];
+				float newDelay = delay + mDelays[link];
+				if (newDelay < delays[neighbour]) {
+					delays[neighbour] = newDelay;
+					heapSize = push(heapSize, newDelay, neighbour);
+				}
+			}
+		}
+		return delays;
+	}
+
+	/**
+	 * adds a node to the heap; as delays are not negative, the order of their bits is their order
+	 */
+	private int push(int heapSize, float delay, int node) {
+		if (heapSize == mHeap.length) {
+			mHeap = Arrays.copyOf(mHeap, heapSize * 2);
+		}
+		long entry = ((long) Float.floatToIntBits(delay) << 32) | node;
+		int position = heapSize;
+		while (position > 0 && mHeap[(position - 1) / 2] > entry) {
+			mHeap[position] = mHeap[(position - 1) / 2];
+			position = (position - 1) / 2;
+		}
+		mHeap[position] = entry;
+		return heapSize + 1;
+	}
+
+	/**
+	 * removes the first node of the heap
+	 */
+	private int pop(int heapSize) {
+		heapSize--;
+		long entry = mHeap[heapSize];
+		int position = 0;
+		while (2 * position + 1 < heapSize) {
+			int child = 2 * position + 1;
+			if (child + 1 < heapSize && mHeap[child + 1] < mHeap[child]) {
+				child++;
+			}
+			if (mHeap[child] >= entry) {
+				break;
+			}
+			mHeap[position] = mHeap[child];
+			position = child;
+		}
+		mHeap[position] = entry;
+		return heapSize;
+	}
+
+	/**
+	 * returns the number of sources whose delays are currently cached
+	 *
+	 * @return the number of cached sources
+	 */
+	public synchronized int getCachedSourceNum() {
+		return mSourceDelays.size();
+	}
+
+}
@@ -102,6 +102,17 @@ public class NetworkHost extends Host {
 
 	}
 
+	/**
+	 * Checks if the host is idle, which also requires that it has no packet to deliver or send.
+	 * 
+	 * @return true, if the host is idle
+	 */
+	@Override
+	public boolean isIdle() {
+		return super.isIdle() && packetrecieved.isEmpty() && packetTosendLocal.isEmpty()
+				&& packetTosendGlobal.isEmpty();
+	}
+
 	/**
 	 * Receives packet and forward it to the corresponding VM for processing host.
 	 * 
@@ -0,0 +1,186 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.power;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.cloudbus.cloudsim.Host;
+import org.cloudbus.cloudsim.Vm;
+
+/**
+ * An index of the hosts of a VM allocation policy ordered by their free MIPS, which also records
+ * their free RAM. It gives the hosts that may be suitable for a VM without testing the others: a
+ * host whose VM scheduler has less available MIPS than the VM requests, or whose RAM provisioner
+ * has less available RAM, fails {@link Host#isSuitableForVm(Vm)}.
+ * <p>
+ * The index is not notified of the changes made to the hosts. The allocation policy has to call
+ * {@link #update(Host)} whenever it creates or destroys a VM on a host, and {@link #updateAll()}
+ * when the hosts may have changed without it, e.g. when the datacenter reallocated the MIPS of
+ * the VMs. Each entry records the allocation version of the VM scheduler of its host, so updating
+ * a host that did not change costs a comparison.
+ *
+ * @since CloudSim Toolkit 3.0
+ * @see PowerVmAllocationPolicyAbstract#getHostCapacityIndex()
+ */
+public class HostCapacityIndex {
+
+	/**
+	 * The free capacity of a host when it was indexed.
+	 */
+	private static class Entry {
+
+		/** The host. */
+		private final PowerHost host;
+
+		/** The position of the host in the host list. */
+		private final int position;
+
+		/** The available MIPS of the VM scheduler of the host. */
+		private final double availableMips;
+
+		/** The available RAM of the host. */
+		private final int availableRam;
+
+		/** The allocation version of the VM scheduler of the host. */
+		private final long allocationVersion;
+
+		/**
+		 * Creates an entry with the current free capacity of a host.
+		 *
+		 * @param host the host
+		 * @param position the position of the host in the host list
+		 */
+		public Entry(PowerHost host, int position) {
+			this.host = host;
+			this.position = position;
+			availableMips = host.getVmScheduler().getAvailableMips();
+			availableRam = host.getRamProvisioner().getAvailableRam();
+			allocationVersion = host.getVmScheduler().getAllocationVersion();
+		}
+
+		/**
+		 * Checks if the host changed since it was indexed.
+		 *
+		 * @return true, if the host changed
+		 */
+		public boolean isStale() {
+			return allocationVersion != host.getVmScheduler().getAllocationVersion()
+					|| availableRam != host.getRamProvisioner().getAvailableRam();
+		}
+	}
+
+	/** Orders the entries by decreasing available MIPS, then by position in the host list. */
+	private static final Comparator<Entry> BY_AVAILABLE_MIPS = new Comparator<Entry>() {
+
+		@Override
+		public int compare(Entry entry1, Entry entry2) {
+			int result = Double.compare(entry2.availableMips, entry1.availableMips);
+			return result != 0 ? result : entry1.position - entry2.position;
+		}
+	};
+
+	/** The entries, by decreasing available MIPS. */
+	private final TreeSet<Entry> entries = new TreeSet<Entry>(BY_AVAILABLE_MIPS);
+
+	/** The entry of each host. */
+	private final Map<Host, Entry> entryOfHost = new HashMap<Host, Entry>();
+
+	/**
+	 * Creates an index of hosts.
+	 *
+	 * @param hostList the host list
+	 */
+	public HostCapacityIndex(List<? extends PowerHost> hostList) {
+		int position = 0;
+		for (PowerHost host : hostList) {
+			add(new Entry(host, position++));
+		}
+	}
+
+	/**
+	 * Gets the hosts that have the MIPS and the RAM requested by a VM available, by decreasing
+	 * available MIPS. The RAM of the host of the VM is not checked, as it is already allocated to the
+	 * VM. The hosts with the same available MIPS are in the order of the host list; callers needing
+	 * the order of the host list can compare the {@link #getPosition(Host) positions}.
+	 *
+	 * @param vm the vm
+	 * @return the candidate hosts
+	 */
+	public List<PowerHost> getCandidateHosts(Vm vm) {
+		double requestedMips = vm.getCurrentRequestedTotalMips();
+		int requestedRam = vm.getCurrentRequestedRam();
+		List<PowerHost> hosts = new ArrayList<PowerHost>();
+		for (Entry entry : entries) {
+			if (entry.availableMips < requestedMips) {
+				// the other hosts have less available MIPS
+				break;
+			}
+			if (entry.availableRam >= requestedRam || entry.host == vm.getHost()) {
+				hosts.add(entry.host);
+			}
+		}
+		return hosts;
+	}
+
+	/**
+	 * Gets the position of a host in the host list.
+	 *
+	 * @param host the host
+	 * @return the position, or -1 if the host is not indexed
+	 */
+	public int getPosition(Host host) {
+		Entry entry = entryOfHost.get(host);
+		return entry == null ? -1 : entry.position;
+	}
+
+	/**
+	 * Re-indexes a host if it changed since it was indexed.
+	 *
+	 * @param host the host
+	 */
+	public void update(Host host) {
+		Entry entry = entryOfHost.get(host);
+		if (entry != null && entry.isStale()) {
+			entries.remove(entry);
+			add(new Entry(entry.host, entry.position));
+		}
+	}
+
+	/**
+	 * Re-indexes the hosts that changed since they were indexed.
+	 */
+	public void updateAll() {
+		List<Entry> staleEntries = new ArrayList<Entry>();
+		for (Entry entry : entries) {
+			if (entry.isStale()) {
+				staleEntries.add(entry);
+			}
+		}
+		for (Entry entry : staleEntries) {
+			entries.remove(entry);
+			add(new Entry(entry.host, entry.position));
+		}
+	}
+
+	/**
+	 * Adds an entry to the index.
+	 *
+	 * @param entry the entry
+	 */
+	private void add(Entry entry) {
+		entries.add(entry);
+		entryOfHost.put(entry.host, entry);
+	}
+
+}
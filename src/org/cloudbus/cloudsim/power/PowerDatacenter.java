@@ -170,32 +170,51 @@ public class PowerDatacenter extends Datacenter {
 		double minTime = Double.MAX_VALUE;
 		double timeDiff = currentTime - getLastProcessTime();
 		double timeFrameDatacenterEnergy = 0.0;
-
-		Log.printLine("\n\n--------------------------------------------------------------\n\n");
-		Log.formatLine("New resource usage for the time frame starting at %.2f:", currentTime);
+		// checked once so that the arguments of the log lines are not boxed when logging is disabled
+		boolean logging = !Log.isDisabled();
+		// idle hosts are skipped, as their update has no effect and their energy is zero, unless their
+		// utilization has to be logged
+		boolean skipIdleHosts = !logging;
+
+		if (logging) {
+			Log.printLine("\n\n--------------------------------------------------------------\n\n");
+			Log.formatLine("New resource usage for the time frame starting at %.2f:", currentTime);
+		}
 
 		for (PowerHost host : this.<PowerHost> getHostList()) {
-			Log.printLine();
+			if (skipIdleHosts && host.isIdle()) {
+				continue;
+			}
+			if (logging) {
+				Log.printLine();
+			}
 
 			double time = host.updateVmsProcessing(currentTime); // inform VMs to update processing
 			if (time < minTime) {
 				minTime = time;
 			}
 
-			Log.formatLine(
+			if (logging) {
+				Log.formatLine(
 					"%.2f: [Host #%d] utilization is %.2f%%",
 					currentTime,
 					host.getId(),
 					host.getUtilizationOfCpu() * 100);
+			}
 		}
 
 		if (timeDiff > 0) {
-			Log.formatLine(
+			if (logging) {
+				Log.formatLine(
 					"\nEnergy consumption for the last time frame from %.2f to %.2f:",
 					getLastProcessTime(),
 					currentTime);
+			}
 
 			for (PowerHost host : this.<PowerHost> getHostList()) {
+				if (skipIdleHosts && host.isIdle()) {
+					continue;
+				}
 				double previousUtilizationOfCpu = host.getPreviousUtilizationOfCpu();
 				double utilizationOfCpu = host.getUtilizationOfCpu();
 				double timeFrameHostEnergy = host.getEnergyLinearInterpolation(
@@ -204,6 +223,9 @@ public class PowerDatacenter extends Datacenter {
 						timeDiff);
 				timeFrameDatacenterEnergy += timeFrameHostEnergy;
 
+				if (!logging) {
+					continue;
+				}
 				Log.printLine();
 				Log.formatLine(
 						"%.2f: [Host #%d] utilization at %.2f was %.2f%%, now is %.2f%%",
@@ -219,10 +241,12 @@ public class PowerDatacenter extends Datacenter {
 						timeFrameHostEnergy);
 			}
 
-			Log.formatLine(
+			if (logging) {
+				Log.formatLine(
 					"\n%.2f: Data center's energy is %.2f W*sec\n",
 					currentTime,
 					timeFrameDatacenterEnergy);
+			}
 		}
 
 		setPower(getPower() + timeFrameDatacenterEnergy);
@@ -232,6 +256,9 @@ public class PowerDatacenter extends Datacenter {
 		/** Remove completed VMs **/
 		
 		for (PowerHost host : this.<PowerHost> getHostList()) {
+			if (host.isIdle()) {
+				continue;
+			}
 			for (Vm vm : host.getCompletedVms()) {
 				getVmAllocationPolicy().deallocateHostForVm(vm);
 				getVmList().remove(vm);
@@ -239,7 +266,9 @@ public class PowerDatacenter extends Datacenter {
 			}
 		}
 		
-		Log.printLine();
+		if (logging) {
+			Log.printLine();
+		}
 
 		setLastProcessTime(currentTime);
 		return minTime;
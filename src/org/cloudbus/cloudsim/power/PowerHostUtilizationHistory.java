@@ -15,6 +15,7 @@ import org.cloudbus.cloudsim.VmScheduler;
 import org.cloudbus.cloudsim.power.models.PowerModel;
 import org.cloudbus.cloudsim.provisioners.BwProvisioner;
 import org.cloudbus.cloudsim.provisioners.RamProvisioner;
+import org.cloudbus.cloudsim.util.DoubleRingBuffer;
 import org.cloudbus.cloudsim.util.MathUtil;
 
 /**
@@ -62,14 +63,40 @@ public class PowerHostUtilizationHistory extends PowerHost {
 	 * @return the host utilization history
 	 */
 	protected double[] getUtilizationHistory() {
+		return getUtilizationHistory(null);
+	}
+
+	/**
+	 * Gets the utilization history the host would have if a VM were created on it, without creating
+	 * it.
+	 * 
+	 * @param additionalVm the VM, or null
+	 * @return the host utilization history
+	 */
+	protected double[] getUtilizationHistory(PowerVm additionalVm) {
 		double[] utilizationHistory = new double[PowerVm.HISTORY_LENGTH];
 		double hostMips = getTotalMips();
 		for (PowerVm vm : this.<PowerVm> getVmList()) {
-			for (int i = 0; i < vm.getUtilizationHistory().size(); i++) {
-				utilizationHistory[i] += vm.getUtilizationHistory().get(i) * vm.getMips() / hostMips;
-			}
+			addUtilizationHistory(utilizationHistory, vm, hostMips);
+		}
+		if (additionalVm != null) {
+			addUtilizationHistory(utilizationHistory, additionalVm, hostMips);
 		}
 		return MathUtil.trimZeroTail(utilizationHistory);
 	}
 
+	/**
+	 * Adds the utilization history of a VM to the utilization history of the host.
+	 * 
+	 * @param utilizationHistory the host utilization history
+	 * @param vm the vm
+	 * @param hostMips the total MIPS of the host
+	 */
+	private static void addUtilizationHistory(double[] utilizationHistory, PowerVm vm, double hostMips) {
+		DoubleRingBuffer vmUtilizationHistory = vm.getUtilizationHistoryBuffer();
+		for (int i = 0; i < vmUtilizationHistory.size(); i++) {
+			utilizationHistory[i] += vmUtilizationHistory.get(i) * vm.getMips() / hostMips;
+		}
+	}
+
 }
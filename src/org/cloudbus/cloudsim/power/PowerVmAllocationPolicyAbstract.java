@@ -37,6 +37,9 @@ public abstract class PowerVmAllocationPolicyAbstract extends VmAllocationPolicy
 	/** The vm table. */
 	private final Map<String, Host> vmTable = new HashMap<String, Host>();
 
+	/** The host capacity index, created when first used. */
+	private HostCapacityIndex hostCapacityIndex;
+
 	/**
 	 * Instantiates a new power vm allocation policy abstract.
 	 * 
@@ -68,6 +71,7 @@ public abstract class PowerVmAllocationPolicyAbstract extends VmAllocationPolicy
 		}
 		if (host.vmCreate(vm)) { // if vm has been succesfully created in the host
 			getVmTable().put(vm.getUid(), host);
+			getHostCapacityIndex().update(host);
 			Log.formatLine(
 					"%.2f: VM #" + vm.getId() + " has been allocated to the host #" + host.getId(),
 					CloudSim.clock());
@@ -103,6 +107,7 @@ public abstract class PowerVmAllocationPolicyAbstract extends VmAllocationPolicy
 		Host host = getVmTable().remove(vm.getUid());
 		if (host != null) {
 			host.vmDestroy(vm);
+			getHostCapacityIndex().update(host);
 		}
 	}
 
@@ -124,6 +129,19 @@ public abstract class PowerVmAllocationPolicyAbstract extends VmAllocationPolicy
 		return getVmTable().get(Vm.getUid(userId, vmId));
 	}
 
+	/**
+	 * Gets the index of the hosts by free capacity. It is updated when a VM is allocated or
+	 * deallocated by the policy; subclasses changing the hosts otherwise have to update it.
+	 * 
+	 * @return the host capacity index
+	 */
+	protected HostCapacityIndex getHostCapacityIndex() {
+		if (hostCapacityIndex == null) {
+			hostCapacityIndex = new HostCapacityIndex(this.<PowerHost> getHostList());
+		}
+		return hostCapacityIndex;
+	}
+
 	/**
 	 * Gets the vm table.
 	 * 
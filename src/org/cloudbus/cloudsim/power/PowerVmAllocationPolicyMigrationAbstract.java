@@ -92,6 +92,9 @@ public abstract class PowerVmAllocationPolicyMigrationAbstract extends PowerVmAl
 	public List<Map<String, Object>> optimizeAllocation(List<? extends Vm> vmList) {
 		ExecutionTimeMeasurer.start("optimizeAllocationTotal");
 
+		// the datacenter reallocated the MIPS of the VMs since the last optimization
+		getHostCapacityIndex().updateAll();
+
 		ExecutionTimeMeasurer.start("optimizeAllocationHostSelection");
 		List<PowerHostUtilizationHistory> overUtilizedHosts = getOverUtilizedHosts();
 		getExecutionTimeHistoryHostSelection().add(
@@ -203,7 +206,9 @@ public abstract class PowerVmAllocationPolicyMigrationAbstract extends PowerVmAl
 	}
 
 	/**
-	 * Find host for vm.
+	 * Find host for vm. Only the hosts of the host capacity index having the MIPS and the RAM
+	 * requested by the VM available are evaluated, as the others are not suitable for the VM. Among
+	 * the hosts with the same power increase, the first in the host list is chosen.
 	 * 
 	 * @param vm the vm
 	 * @param excludedHosts the excluded hosts
@@ -212,8 +217,9 @@ public abstract class PowerVmAllocationPolicyMigrationAbstract extends PowerVmAl
 	public PowerHost findHostForVm(Vm vm, Set<? extends Host> excludedHosts) {
 		double minPower = Double.MAX_VALUE;
 		PowerHost allocatedHost = null;
+		HostCapacityIndex hostCapacityIndex = getHostCapacityIndex();
 
-		for (PowerHost host : this.<PowerHost> getHostList()) {
+		for (PowerHost host : hostCapacityIndex.getCandidateHosts(vm)) {
 			if (excludedHosts.contains(host)) {
 				continue;
 			}
@@ -226,7 +232,8 @@ public abstract class PowerVmAllocationPolicyMigrationAbstract extends PowerVmAl
 					double powerAfterAllocation = getPowerAfterAllocation(host, vm);
 					if (powerAfterAllocation != -1) {
 						double powerDiff = powerAfterAllocation - host.getPower();
-						if (powerDiff < minPower) {
+						if (powerDiff < minPower || powerDiff == minPower
+								&& hostCapacityIndex.getPosition(host) < hostCapacityIndex.getPosition(allocatedHost)) {
 							minPower = powerDiff;
 							allocatedHost = host;
 						}
@@ -239,21 +246,56 @@ public abstract class PowerVmAllocationPolicyMigrationAbstract extends PowerVmAl
 	}
 
 	/**
-	 * Checks if is host over utilized after allocation.
+	 * Checks if is host over utilized after allocation. The VM is temporarily created on the host to
+	 * evaluate it; policies able to evaluate the host as if the VM were on it should override this
+	 * method, using {@link #canCreateVm(PowerHost, Vm)} to check whether the VM could be created.
 	 * 
 	 * @param host the host
 	 * @param vm the vm
-	 * @return true, if is host over utilized after allocation
+	 * @return true, if is host over utilized after allocation, or if the VM cannot be created on the
+	 *         host
 	 */
 	protected boolean isHostOverUtilizedAfterAllocation(PowerHost host, Vm vm) {
 		boolean isHostOverUtilizedAfterAllocation = true;
 		if (host.vmCreate(vm)) {
 			isHostOverUtilizedAfterAllocation = isHostOverUtilized(host);
 			host.vmDestroy(vm);
+			getHostCapacityIndex().update(host);
 		}
 		return isHostOverUtilizedAfterAllocation;
 	}
 
+	/**
+	 * Checks if a VM can be created on a host suitable for it, as {@link Host#vmCreate(Vm)} would
+	 * decide.
+	 * 
+	 * @param host the host
+	 * @param vm the vm
+	 * @return true, if the VM can be created on the host
+	 */
+	protected boolean canCreateVm(PowerHost host, Vm vm) {
+		return host.getStorage() >= vm.getSize() && host.isSuitableForVm(vm);
+	}
+
+	/**
+	 * Gets the CPU utilization of a host from the MIPS requested by its VMs and by an additional VM,
+	 * as if the VM were created on the host.
+	 * 
+	 * @param host the host
+	 * @param vm the additional vm, or null
+	 * @return the requested utilization of the host
+	 */
+	protected double getRequestedUtilizationOfCpu(PowerHost host, Vm vm) {
+		double totalRequestedMips = 0;
+		for (Vm hostVm : host.getVmList()) {
+			totalRequestedMips += hostVm.getCurrentRequestedTotalMips();
+		}
+		if (vm != null) {
+			totalRequestedMips += vm.getCurrentRequestedTotalMips();
+		}
+		return totalRequestedMips / host.getTotalMips();
+	}
+
 	/**
 	 * Find host for vm.
 	 * 
@@ -266,6 +308,8 @@ public abstract class PowerVmAllocationPolicyMigrationAbstract extends PowerVmAl
 		if (vm.getHost() != null) {
 			excludedHosts.add(vm.getHost());
 		}
+		// the datacenter may have reallocated the MIPS of the VMs since the last allocation
+		getHostCapacityIndex().updateAll();
 		return findHostForVm(vm, excludedHosts);
 	}
 
@@ -299,6 +343,7 @@ public abstract class PowerVmAllocationPolicyMigrationAbstract extends PowerVmAl
 			PowerHost allocatedHost = findHostForVm(vm, excludedHosts);
 			if (allocatedHost != null) {
 				allocatedHost.vmCreate(vm);
+				getHostCapacityIndex().update(allocatedHost);
 				Log.printLine("VM #" + vm.getId() + " allocated to host #" + allocatedHost.getId());
 
 				Map<String, Object> migrate = new HashMap<String, Object>();
@@ -326,6 +371,7 @@ public abstract class PowerVmAllocationPolicyMigrationAbstract extends PowerVmAl
 			PowerHost allocatedHost = findHostForVm(vm, excludedHosts);
 			if (allocatedHost != null) {
 				allocatedHost.vmCreate(vm);
+				getHostCapacityIndex().update(allocatedHost);
 				Log.printLine("VM #" + vm.getId() + " allocated to host #" + allocatedHost.getId());
 
 				Map<String, Object> migrate = new HashMap<String, Object>();
@@ -336,6 +382,7 @@ public abstract class PowerVmAllocationPolicyMigrationAbstract extends PowerVmAl
 				Log.printLine("Not all VMs can be reallocated from the host, reallocation cancelled");
 				for (Map<String, Object> map : migrationMap) {
 					((Host) map.get("host")).vmDestroy((Vm) map.get("vm"));
+					getHostCapacityIndex().update((Host) map.get("host"));
 				}
 				migrationMap.clear();
 				break;
@@ -362,6 +409,7 @@ public abstract class PowerVmAllocationPolicyMigrationAbstract extends PowerVmAl
 				}
 				vmsToMigrate.add(vm);
 				host.vmDestroy(vm);
+				getHostCapacityIndex().update(host);
 				if (!isHostOverUtilized(host)) {
 					break;
 				}
@@ -524,6 +572,7 @@ public abstract class PowerVmAllocationPolicyMigrationAbstract extends PowerVmAl
 			}
 			getVmTable().put(vm.getUid(), host);
 		}
+		getHostCapacityIndex().updateAll();
 	}
 
 	/**
@@ -89,11 +89,39 @@ public class PowerVmAllocationPolicyMigrationLocalRegression extends PowerVmAllo
 	 */
 	@Override
 	protected boolean isHostOverUtilized(PowerHost host) {
+		return isHostOverUtilized(host, null);
+	}
+
+	/**
+	 * Checks if is host over utilized after allocation, from the utilization history of the host and
+	 * the VM, without creating the VM on the host.
+	 * 
+	 * @param host the host
+	 * @param vm the vm
+	 * @return true, if is host over utilized after allocation, or if the VM cannot be created on the
+	 *         host
+	 */
+	@Override
+	protected boolean isHostOverUtilizedAfterAllocation(PowerHost host, Vm vm) {
+		if (!canCreateVm(host, vm)) {
+			return true;
+		}
+		return isHostOverUtilized(host, vm);
+	}
+
+	/**
+	 * Checks if is host over utilized, as if a VM were created on it.
+	 * 
+	 * @param host the host
+	 * @param vm the vm, or null
+	 * @return true, if is host over utilized
+	 */
+	private boolean isHostOverUtilized(PowerHost host, Vm vm) {
 		PowerHostUtilizationHistory _host = (PowerHostUtilizationHistory) host;
-		double[] utilizationHistory = _host.getUtilizationHistory();
+		double[] utilizationHistory = _host.getUtilizationHistory((PowerVm) vm);
 		int length = 10; // we use 10 to make the regression responsive enough to latest values
 		if (utilizationHistory.length < length) {
-			return getFallbackVmAllocationPolicy().isHostOverUtilized(host);
+			return isFallbackHostOverUtilized(host, vm);
 		}
 		double[] utilizationHistoryReversed = new double[length];
 		for (int i = 0; i < length; i++) {
@@ -103,9 +131,11 @@ public class PowerVmAllocationPolicyMigrationLocalRegression extends PowerVmAllo
 		try {
 			estimates = getParameterEstimates(utilizationHistoryReversed);
 		} catch (IllegalArgumentException e) {
-			return getFallbackVmAllocationPolicy().isHostOverUtilized(host);
+			return isFallbackHostOverUtilized(host, vm);
 		}
-		double migrationIntervals = Math.ceil(getMaximumVmMigrationTime(_host) / getSchedulingInterval());
+		double maximumVmMigrationTime = vm == null ? getMaximumVmMigrationTime(_host)
+				: getMaximumVmMigrationTime(_host, vm);
+		double migrationIntervals = Math.ceil(maximumVmMigrationTime / getSchedulingInterval());
 		double predictedUtilization = estimates[0] + estimates[1] * (length + migrationIntervals);
 		predictedUtilization *= getSafetyParameter();
 
@@ -131,6 +161,17 @@ public class PowerVmAllocationPolicyMigrationLocalRegression extends PowerVmAllo
 	 * @return the maximum vm migration time
 	 */
 	protected double getMaximumVmMigrationTime(PowerHost host) {
+		return getMaximumVmMigrationTime(host, null);
+	}
+
+	/**
+	 * Gets the maximum vm migration time, as if a VM were created on the host.
+	 * 
+	 * @param host the host
+	 * @param additionalVm the vm, or null
+	 * @return the maximum vm migration time
+	 */
+	private double getMaximumVmMigrationTime(PowerHost host, Vm additionalVm) {
 		int maxRam = Integer.MIN_VALUE;
 		for (Vm vm : host.getVmList()) {
 			int ram = vm.getRam();
@@ -138,9 +179,26 @@ public class PowerVmAllocationPolicyMigrationLocalRegression extends PowerVmAllo
 				maxRam = ram;
 			}
 		}
+		if (additionalVm != null && additionalVm.getRam() > maxRam) {
+			maxRam = additionalVm.getRam();
+		}
 		return maxRam / ((double) host.getBw() / (2 * 8000));
 	}
 
+	/**
+	 * Checks if is host over utilized according to the fallback policy, as if a VM were created on it.
+	 * 
+	 * @param host the host
+	 * @param vm the vm, or null
+	 * @return true, if is host over utilized
+	 */
+	private boolean isFallbackHostOverUtilized(PowerHost host, Vm vm) {
+		if (vm != null) {
+			return getFallbackVmAllocationPolicy().isHostOverUtilizedAfterAllocation(host, vm);
+		}
+		return getFallbackVmAllocationPolicy().isHostOverUtilized(host);
+	}
+
 	/**
 	 * Sets the scheduling interval.
 	 * 
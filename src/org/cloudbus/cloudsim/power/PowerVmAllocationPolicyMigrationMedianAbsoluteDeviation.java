@@ -82,20 +82,48 @@ public class PowerVmAllocationPolicyMigrationMedianAbsoluteDeviation extends
 	 */
 	@Override
 	protected boolean isHostOverUtilized(PowerHost host) {
+		return isHostOverUtilized(host, null);
+	}
+
+	/**
+	 * Checks if is host over utilized after allocation, from the utilization history of the host and
+	 * the VM, without creating the VM on the host.
+	 * 
+	 * @param host the host
+	 * @param vm the vm
+	 * @return true, if is host over utilized after allocation, or if the VM cannot be created on the
+	 *         host
+	 */
+	@Override
+	protected boolean isHostOverUtilizedAfterAllocation(PowerHost host, Vm vm) {
+		if (!canCreateVm(host, vm)) {
+			return true;
+		}
+		return isHostOverUtilized(host, vm);
+	}
+
+	/**
+	 * Checks if is host over utilized, as if a VM were created on it.
+	 * 
+	 * @param host the host
+	 * @param vm the vm, or null
+	 * @return true, if is host over utilized
+	 */
+	private boolean isHostOverUtilized(PowerHost host, Vm vm) {
 		PowerHostUtilizationHistory _host = (PowerHostUtilizationHistory) host;
 		double upperThreshold = 0;
 		try {
-			upperThreshold = 1 - getSafetyParameter() * getHostUtilizationMad(_host);
+			double mad = vm == null ? getHostUtilizationMad(_host) : getUtilizationMad(_host
+					.getUtilizationHistory((PowerVm) vm));
+			upperThreshold = 1 - getSafetyParameter() * mad;
 		} catch (IllegalArgumentException e) {
+			if (vm != null) {
+				return getFallbackVmAllocationPolicy().isHostOverUtilizedAfterAllocation(host, vm);
+			}
 			return getFallbackVmAllocationPolicy().isHostOverUtilized(host);
 		}
 		addHistoryEntry(host, upperThreshold);
-		double totalRequestedMips = 0;
-		for (Vm vm : host.getVmList()) {
-			totalRequestedMips += vm.getCurrentRequestedTotalMips();
-		}
-		double utilization = totalRequestedMips / host.getTotalMips();
-		return utilization > upperThreshold;
+		return getRequestedUtilizationOfCpu(host, vm) > upperThreshold;
 	}
 
 	/**
@@ -105,7 +133,17 @@ public class PowerVmAllocationPolicyMigrationMedianAbsoluteDeviation extends
 	 * @return the host utilization mad
 	 */
 	protected double getHostUtilizationMad(PowerHostUtilizationHistory host) throws IllegalArgumentException {
-		double[] data = host.getUtilizationHistory();
+		return getUtilizationMad(host.getUtilizationHistory());
+	}
+
+	/**
+	 * Gets the mad of a utilization history.
+	 * 
+	 * @param data the utilization history
+	 * @return the mad
+	 * @throws IllegalArgumentException if the history is too short
+	 */
+	private double getUtilizationMad(double[] data) throws IllegalArgumentException {
 		if (MathUtil.countNonZeroBeginning(data) >= 12) { // 12 has been suggested as a safe value
 			return MathUtil.mad(data);
 		}
@@ -64,6 +64,25 @@ public class PowerVmAllocationPolicyMigrationStaticThreshold extends PowerVmAllo
 		return utilization > getUtilizationThreshold();
 	}
 
+	/**
+	 * Checks if is host over utilized after allocation, from the MIPS requested by its VMs and the VM,
+	 * without creating the VM on the host.
+	 * 
+	 * @param host the host
+	 * @param vm the vm
+	 * @return true, if is host over utilized after allocation, or if the VM cannot be created on the
+	 *         host
+	 */
+	@Override
+	protected boolean isHostOverUtilizedAfterAllocation(PowerHost host, Vm vm) {
+		if (!canCreateVm(host, vm)) {
+			return true;
+		}
+		// recorded as isHostOverUtilized would after creating the VM
+		addHistoryEntry(host, getUtilizationThreshold());
+		return getRequestedUtilizationOfCpu(host, vm) > getUtilizationThreshold();
+	}
+
 	/**
 	 * Sets the utilization threshold.
 	 * 
@@ -194,7 +194,8 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 		}
 		
 		double eft = channel.addTransmission(new Transmission(pkg));
-		Log.printLine(CloudSim.clock() + ": " + getName() + ".addPackageToChannel ("+channel
+		if(!Log.isDisabled())
+			Log.printLine(CloudSim.clock() + ": " + getName() + ".addPackageToChannel ("+channel
 				+"): Transmission added:" + 
 				NetworkOperatingSystem.debugVmIdName.get(src) + "->"+
 				NetworkOperatingSystem.debugVmIdName.get(dst) + ", flow ="+flowId + " / eft="+eft);
@@ -215,7 +216,8 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 		if(channelTable.size() != 0) {
 			// More to process. Send event again
 			double delay = this.nextFinishTime();
-			Log.printLine(CloudSim.clock() + ": " + getName() + ".sendInternalEvent(): next finish time: "+ delay);
+			if(!Log.isDisabled())
+				Log.printLine(CloudSim.clock() + ": " + getName() + ".sendInternalEvent(): next finish time: "+ delay);
 			
 			send(this.getId(), delay, Constants.SDN_INTERNAL_PACKAGE_PROCESS);
 		}
@@ -268,7 +270,8 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 				//Node sender = pkgTable.remove(pkg);
 				//Node nextHop = sender.getRoute(pkg.getOrigin(),pkg.getDestination(),pkg.getFlowId());
 				
-				Log.printLine(CloudSim.clock() + ": " + getName() + ": Package completed: "+pkg +". Send to destination:"+dest);
+				if(!Log.isDisabled())
+					Log.printLine(CloudSim.clock() + ": " + getName() + ": Package completed: "+pkg +". Send to destination:"+dest);
 				sendNow(dest.getAddress(),Constants.SDN_PACKAGE,pkg);
 			}
 		}
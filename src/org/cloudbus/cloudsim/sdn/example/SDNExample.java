@@ -159,7 +159,7 @@ public class SDNExample {
 			if(!SDNExample.logEnabled) 
 				Log.disable();
 			
-			double finishTime = CloudSim.startSimulation();
+			double finishTime = CloudSim.startSimulation().getClock();
 			CloudSim.stopSimulation();
 			Log.enable();
 
@@ -0,0 +1,134 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.util;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * A fixed-capacity history of double values, most recent first. Once the buffer is full, adding a
+ * value discards the oldest one. Values are stored unboxed in a circular array, so adding a value and
+ * accessing any of them take constant time.
+ *
+ * @since CloudSim Toolkit 3.0
+ */
+public class DoubleRingBuffer {
+
+	/** The values, in a circular array. */
+	private final double[] values;
+
+	/** The index of the most recent value. */
+	private int head;
+
+	/** The number of values. */
+	private int size;
+
+	/** The read-only list view of the values. */
+	private final List<Double> list = new AbstractList<Double>() {
+
+		@Override
+		public Double get(int index) {
+			return DoubleRingBuffer.this.get(index);
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	};
+
+	/**
+	 * Instantiates a new ring buffer.
+	 *
+	 * @param capacity the maximum number of values kept
+	 */
+	public DoubleRingBuffer(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+		}
+		values = new double[capacity];
+	}
+
+	/**
+	 * Adds a value as the most recent one, discarding the oldest value if the buffer is full.
+	 *
+	 * @param value the value
+	 */
+	public void add(double value) {
+		head = (head == 0 ? values.length : head) - 1;
+		values[head] = value;
+		if (size < values.length) {
+			size++;
+		}
+	}
+
+	/**
+	 * Gets a value.
+	 *
+	 * @param index the age of the value, 0 being the most recent
+	 * @return the value
+	 */
+	public double get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		int position = head + index;
+		return values[position < values.length ? position : position - values.length];
+	}
+
+	/**
+	 * Gets the number of values.
+	 *
+	 * @return the number of values
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Checks if the buffer is empty.
+	 *
+	 * @return true, if there is no value
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Gets the capacity.
+	 *
+	 * @return the maximum number of values kept
+	 */
+	public int getCapacity() {
+		return values.length;
+	}
+
+	/**
+	 * Copies the values into a new array, most recent first.
+	 *
+	 * @return the values
+	 */
+	public double[] toArray() {
+		double[] array = new double[size];
+		int firstPart = Math.min(size, values.length - head);
+		System.arraycopy(values, head, array, 0, firstPart);
+		System.arraycopy(values, 0, array, firstPart, size - firstPart);
+		return array;
+	}
+
+	/**
+	 * Gets a read-only list view of the values, most recent first.
+	 *
+	 * @return the list view
+	 */
+	public List<Double> asList() {
+		return list;
+	}
+
+}
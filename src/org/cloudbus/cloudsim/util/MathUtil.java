@@ -10,8 +10,10 @@ package org.cloudbus.cloudsim.util;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.apache.commons.math3.stat.descriptive.rank.Percentile;
 import org.apache.commons.math3.stat.regression.OLSMultipleLinearRegression;
 import org.apache.commons.math3.stat.regression.SimpleRegression;
 
@@ -23,6 +25,9 @@ import org.apache.commons.math3.stat.regression.SimpleRegression;
  */
 public class MathUtil {
 
+	/** The tricube weights of the windows up to the length of the utilization histories, by length. */
+	private static final AtomicReferenceArray<double[]> tricubeWeights = new AtomicReferenceArray<double[]>(64);
+
 	/**
 	 * Sums a list of numbers.
 	 * 
@@ -69,7 +74,8 @@ public class MathUtil {
 	 * @return the median
 	 */
 	public static double median(final double[] list) {
-		return getStatistics(list).getPercentile(50);
+		// same estimate as DescriptiveStatistics, without copying the values into one
+		return new Percentile().evaluate(list, 50);
 	}
 
 	/**
@@ -324,6 +330,24 @@ public class MathUtil {
 	 * @return the tricube weigts
 	 */
 	public static double[] getTricubeWeigts(final int n) {
+		if (n >= tricubeWeights.length()) {
+			return computeTricubeWeigts(n);
+		}
+		double[] weights = tricubeWeights.get(n);
+		if (weights == null) {
+			weights = computeTricubeWeigts(n);
+			tricubeWeights.set(n, weights);
+		}
+		return weights.clone();
+	}
+
+	/**
+	 * Computes the tricube weigts.
+	 * 
+	 * @param n the n
+	 * @return the tricube weigts
+	 */
+	private static double[] computeTricubeWeigts(final int n) {
 		double[] weights = new double[n];
 		double top = n - 1;
 		double spread = top;
@@ -9,7 +9,9 @@ import org.apache.commons.math3.util.Pair;
 import org.cloudbus.cloudsim.CloudletScheduler;
 import org.cloudbus.cloudsim.power.PowerVm;
 import org.fog.application.selectivity.SelectivityModel;
+import org.fog.scheduler.ProcessorSharingTupleScheduler;
 import org.fog.scheduler.TupleScheduler;
+import org.fog.utils.Config;
 import org.fog.utils.FogUtils;
 
 /**
@@ -76,7 +78,7 @@ public class AppModule extends PowerVm{
 		setDownInstanceIdsMaps(new HashMap<String, List<Integer>>());
 	}
 	public AppModule(AppModule operator) {
-		super(FogUtils.generateEntityId(), operator.getUserId(), operator.getMips(), 1, operator.getRam(), operator.getBw(), operator.getSize(), 1, operator.getVmm(), new TupleScheduler(operator.getMips(), 1), operator.getSchedulingInterval());
+		super(FogUtils.generateEntityId(), operator.getUserId(), operator.getMips(), 1, operator.getRam(), operator.getBw(), operator.getSize(), 1, operator.getVmm(), createTupleScheduler(operator.getMips()), operator.getSchedulingInterval());
 		setName(operator.getName());
 		setAppId(operator.getAppId());
 		setInMigration(false);
@@ -89,6 +91,17 @@ public class AppModule extends PowerVm{
 		setDownInstanceIdsMaps(new HashMap<String, List<Integer>>());
 	}
 	
+	/**
+	 * Creates the scheduler of the tuples executed by a module instance, as selected by {@link Config#PROCESSOR_SHARING_TUPLE_SCHEDULER}
+	 * @param mips MIPS of the module instance
+	 * @return
+	 */
+	static CloudletScheduler createTupleScheduler(double mips){
+		if(Config.PROCESSOR_SHARING_TUPLE_SCHEDULER)
+			return new ProcessorSharingTupleScheduler(mips, 1);
+		return new TupleScheduler(mips, 1);
+	}
+	
 	public void subscribeActuator(int id, String tuplyType){
 		if(!getActuatorSubscriptions().containsKey(tuplyType))
 			getActuatorSubscriptions().put(tuplyType, new ArrayList<Integer>());
@@ -0,0 +1,261 @@
+package org.fog.application;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.commons.math3.util.Pair;
+import org.fog.application.selectivity.SelectivityModel;
+
+/**
+ * Immutable execution plan compiled from an {@link Application}, used on the per-tuple paths so
+ * that their cost does not depend on the number of modules, edges and loops of the application.
+ * Module and tuple type names are interned to ids, the output edges are indexed by (module, input
+ * tuple type) and the loops are indexed by the edges they contain.
+ *
+ * All the lookups preserve the order of the application's edges and loops, so that selectivity
+ * models are evaluated and loop ids consumed in the same order as when scanning the lists.
+ */
+public class ApplicationPlan {
+
+	private static final Output[] NO_OUTPUTS = new Output[0];
+	private static final AppLoop[] NO_LOOPS = new AppLoop[0];
+	private static final EdgeLoops NO_EDGE_LOOPS = new EdgeLoops(NO_LOOPS, null, null);
+
+	/**
+	 * Ids of the module names, and of the other names (sensor and actuator types) found in loops
+	 */
+	private final Map<String, Integer> nodeIds;
+	private final Map<String, Integer> tupleTypeIds;
+	private final AppModule[] modules;
+
+	/**
+	 * Output edges of each module, indexed by module id and then by input tuple type id
+	 */
+	private final Output[][][] outputs;
+
+	/**
+	 * Loops containing each edge: for each source node id, the sorted destination node ids and their loops
+	 */
+	private final int[][] edgeDests;
+	private final EdgeLoops[][] edgeLoops;
+
+	/**
+	 * An output edge of a module for a given input tuple type, with its selectivity model.
+	 */
+	public static class Output {
+		private final AppEdge edge;
+		private final SelectivityModel selectivityModel;
+
+		private Output(AppEdge edge, SelectivityModel selectivityModel){
+			this.edge = edge;
+			this.selectivityModel = selectivityModel;
+		}
+
+		public AppEdge getEdge() {
+			return edge;
+		}
+
+		public SelectivityModel getSelectivityModel() {
+			return selectivityModel;
+		}
+	}
+
+	private static class EdgeLoops {
+		private final AppLoop[] starting;
+		private final AppLoop firstEnding;
+		private final AppLoop first;
+
+		private EdgeLoops(AppLoop[] starting, AppLoop firstEnding, AppLoop first){
+			this.starting = starting;
+			this.firstEnding = firstEnding;
+			this.first = first;
+		}
+	}
+
+	public ApplicationPlan(Application application){
+		nodeIds = new HashMap<String, Integer>();
+		tupleTypeIds = new HashMap<String, Integer>();
+
+		// modules first, so that module ids index the module arrays; the first module of a name wins
+		List<AppModule> moduleList = new ArrayList<AppModule>();
+		for(AppModule module : application.getModules()){
+			if(!nodeIds.containsKey(module.getName())){
+				nodeIds.put(module.getName(), moduleList.size());
+				moduleList.add(module);
+			}
+		}
+		modules = moduleList.toArray(new AppModule[moduleList.size()]);
+
+		for(AppEdge edge : application.getEdges()){
+			intern(tupleTypeIds, edge.getTupleType());
+			intern(nodeIds, edge.getSource());
+			intern(nodeIds, edge.getDestination());
+		}
+		for(AppLoop loop : application.getLoops()){
+			for(String module : loop.getModules())
+				intern(nodeIds, module);
+		}
+		for(AppModule module : modules){
+			for(Pair<String, String> mapping : module.getSelectivityMap().keySet())
+				intern(tupleTypeIds, mapping.getFirst());
+		}
+
+		outputs = new Output[modules.length][][];
+		for(int moduleId = 0; moduleId < modules.length; moduleId++){
+			AppModule module = modules[moduleId];
+			Output[][] byInputType = null;
+			for(Map.Entry<Pair<String, String>, SelectivityModel> mapping : module.getSelectivityMap().entrySet()){
+				if(mapping.getValue() == null)
+					continue;
+				String inputType = mapping.getKey().getFirst();
+				int inputTypeId = tupleTypeIds.get(inputType);
+				if(byInputType == null)
+					byInputType = new Output[tupleTypeIds.size()][];
+				if(byInputType[inputTypeId] != null)
+					continue;
+				List<Output> list = new ArrayList<Output>();
+				for(AppEdge edge : application.getEdges()){
+					if(!edge.getSource().equals(module.getName()))
+						continue;
+					SelectivityModel selectivityModel = module.getSelectivityMap().get(
+							new Pair<String, String>(inputType, edge.getTupleType()));
+					if(selectivityModel != null)
+						list.add(new Output(edge, selectivityModel));
+				}
+				byInputType[inputTypeId] = list.toArray(new Output[list.size()]);
+			}
+			outputs[moduleId] = byInputType;
+		}
+
+		List<AppLoop> loops = application.getLoops();
+		Map<Long, BitSet> loopsWithEdge = new TreeMap<Long, BitSet>();
+		for(int i = 0; i < loops.size(); i++){
+			List<String> loopModules = loops.get(i).getModules();
+			for(int j = 0; j < loopModules.size() - 1; j++){
+				long key = key(nodeIds.get(loopModules.get(j)), nodeIds.get(loopModules.get(j+1)));
+				BitSet bits = loopsWithEdge.get(key);
+				if(bits == null){
+					bits = new BitSet();
+					loopsWithEdge.put(key, bits);
+				}
+				bits.set(i);
+			}
+		}
+		// the edges are sorted by source and then by destination
+		int[] degrees = new int[nodeIds.size()];
+		for(long key : loopsWithEdge.keySet())
+			degrees[(int) (key >>> 32)]++;
+		edgeDests = new int[nodeIds.size()][];
+		edgeLoops = new EdgeLoops[nodeIds.size()][];
+		for(Map.Entry<Long, BitSet> entry : loopsWithEdge.entrySet()){
+			int src = (int) (entry.getKey() >>> 32);
+			int dest = (int) (long) entry.getKey();
+			List<AppLoop> starting = new ArrayList<AppLoop>();
+			AppLoop firstEnding = null;
+			BitSet bits = entry.getValue();
+			for(int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)){
+				AppLoop loop = loops.get(i);
+				if(nodeIds.get(loop.getStartModule()) == src)
+					starting.add(loop);
+				if(firstEnding == null && nodeIds.get(loop.getEndModule()) == dest)
+					firstEnding = loop;
+			}
+			if(edgeDests[src] == null){
+				edgeDests[src] = new int[degrees[src]];
+				edgeLoops[src] = new EdgeLoops[degrees[src]];
+				degrees[src] = 0;
+			}
+			edgeDests[src][degrees[src]] = dest;
+			edgeLoops[src][degrees[src]++] = new EdgeLoops(starting.toArray(new AppLoop[starting.size()]),
+					firstEnding, loops.get(bits.nextSetBit(0)));
+		}
+	}
+
+	private static void intern(Map<String, Integer> ids, String name){
+		if(name != null && !ids.containsKey(name))
+			ids.put(name, ids.size());
+	}
+
+	private static long key(int src, int dest){
+		return ((long) src << 32) | (dest & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Gets the id of a module or of another name found in the loops.
+	 * @return the id, or -1 if the name is unknown
+	 */
+	public int getNodeId(String name){
+		Integer id = name == null ? null : nodeIds.get(name);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Gets the id of a tuple type.
+	 * @return the id, or -1 if the tuple type is unknown
+	 */
+	public int getTupleTypeId(String tupleType){
+		Integer id = tupleType == null ? null : tupleTypeIds.get(tupleType);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Gets the first module with the given name.
+	 * @return the module, or null if there is none
+	 */
+	public AppModule getModule(String moduleName){
+		int id = getNodeId(moduleName);
+		return id >= 0 && id < modules.length ? modules[id] : null;
+	}
+
+	/**
+	 * Gets the edges on which a module emits tuples when executing a tuple of the given type, in
+	 * the order of the application's edges.
+	 */
+	public Output[] getOutputs(String moduleName, String inputTupleType){
+		int moduleId = getNodeId(moduleName);
+		if(moduleId < 0 || moduleId >= modules.length || outputs[moduleId] == null)
+			return NO_OUTPUTS;
+		int typeId = getTupleTypeId(inputTupleType);
+		if(typeId < 0 || outputs[moduleId][typeId] == null)
+			return NO_OUTPUTS;
+		return outputs[moduleId][typeId];
+	}
+
+	private EdgeLoops getEdgeLoops(String src, String dest){
+		int srcId = getNodeId(src);
+		int destId = getNodeId(dest);
+		if(srcId < 0 || destId < 0 || edgeDests[srcId] == null)
+			return NO_EDGE_LOOPS;
+		int i = Arrays.binarySearch(edgeDests[srcId], destId);
+		return i < 0 ? NO_EDGE_LOOPS : edgeLoops[srcId][i];
+	}
+
+	/**
+	 * Gets the loops containing the edge from <i>src</i> to <i>dest</i> and starting at <i>src</i>,
+	 * in the order of the application's loops.
+	 */
+	public AppLoop[] getLoopsStartingWith(String src, String dest){
+		return getEdgeLoops(src, dest).starting;
+	}
+
+	/**
+	 * Gets the first loop containing the edge from <i>src</i> to <i>dest</i> and ending at <i>dest</i>.
+	 * @return the loop, or null if there is none
+	 */
+	public AppLoop getFirstLoopEndingWith(String src, String dest){
+		return getEdgeLoops(src, dest).firstEnding;
+	}
+
+	/**
+	 * Gets the first loop containing the edge from <i>src</i> to <i>dest</i>.
+	 * @return the loop, or null if there is none
+	 */
+	public AppLoop getFirstLoopWith(String src, String dest){
+		return getEdgeLoops(src, dest).first;
+	}
+}
@@ -7,6 +7,7 @@ public class FogBroker extends PowerDatacenterBroker{
 
 	public FogBroker(String name) throws Exception {
 		super(name);
+		setDirectDispatch(true);
 		// TODO Auto-generated constructor stub
 	}
 
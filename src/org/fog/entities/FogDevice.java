@@ -1,6 +1,7 @@
 package org.fog.entities;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -15,6 +16,7 @@ import org.cloudbus.cloudsim.Pe;
 import org.cloudbus.cloudsim.Storage;
 import org.cloudbus.cloudsim.Vm;
 import org.cloudbus.cloudsim.VmAllocationPolicy;
+import org.cloudbus.cloudsim.VmScheduler;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.CloudSimTags;
 import org.cloudbus.cloudsim.core.SimEvent;
@@ -28,6 +30,10 @@ import org.fog.application.AppEdge;
 import org.fog.application.AppLoop;
 import org.fog.application.AppModule;
 import org.fog.application.Application;
+import org.fog.network.DownRoutingTable;
+import org.fog.network.FifoLink;
+import org.fog.network.LinkModel;
+import org.fog.network.ProcessorSharingLink;
 import org.fog.policy.AppModuleAllocationPolicy;
 import org.fog.scheduler.StreamOperatorScheduler;
 import org.fog.utils.Config;
@@ -37,6 +43,8 @@ import org.fog.utils.Logger;
 import org.fog.utils.ModuleLaunchConfig;
 import org.fog.utils.NetworkUsageMonitor;
 import org.fog.utils.TimeKeeper;
+import org.fog.utils.TraceEvent;
+import org.fog.utils.Tracer;
 
 public class FogDevice extends PowerDatacenter {
 	protected Queue<Tuple> northTupleQueue;
@@ -79,6 +87,22 @@ public class FogDevice extends PowerDatacenter {
 	 */
 	protected boolean isNorthLinkBusy;
 	
+	/**
+	 * Links used instead of the tuple queues when the link model is not SHARED, created on first use
+	 */
+	protected LinkModel linkModel = Config.LINK_MODEL;
+	private FifoLink northFifoLink;
+	private Map<Integer, FifoLink> southFifoLinks = new HashMap<Integer, FifoLink>();
+	private ProcessorSharingLink northSharedLink;
+	private ProcessorSharingLink southSharedLink;
+	
+	/**
+	 * Next hops towards the subtree of this device, used instead of broadcasting DOWN and ACTUATOR tuples
+	 * to all the children unless broadcastDownTuples is set
+	 */
+	protected DownRoutingTable downRoutes = new DownRoutingTable();
+	protected boolean broadcastDownTuples = Config.BROADCAST_DOWN_TUPLES;
+	
 	protected double uplinkBandwidth;
 	protected double downlinkBandwidth;
 	protected double uplinkLatency;
@@ -87,6 +111,10 @@ public class FogDevice extends PowerDatacenter {
 	protected double energyConsumption;
 	protected double lastUtilizationUpdateTime;
 	protected double lastUtilization;
+	/**
+	 * Version of the VM scheduler when lastUtilization was computed
+	 */
+	private long utilizationVersion = -1;
 	private int level;
 	
 	protected double ratePerMips;
@@ -95,6 +123,32 @@ public class FogDevice extends PowerDatacenter {
 	
 	protected Map<String, Map<String, Integer>> moduleInstanceCount;
 	
+	/**
+	 * Index of the modules hosted on this device by name, rebuilt lazily when the VMs of the host change.
+	 * The first and the last module of a name are kept, as the lookups used to scan the VM list for either.
+	 */
+	private Map<String, AppModule> firstModuleByName;
+	private Map<String, AppModule> lastModuleByName;
+	private int indexedVmCount = -1;
+	
+	/**
+	 * Loop and network accounting of the simulation the device belongs to
+	 */
+	private final TimeKeeper timeKeeper = TimeKeeper.getInstance();
+	private final NetworkUsageMonitor networkUsageMonitor = NetworkUsageMonitor.getInstance();
+	
+	private static final List<Double> IDLE_MIPS_SHARE = Collections.singletonList(0.0);
+	private List<Double> fullMipsShare;
+	
+	/**
+	 * MIPS allocation last applied by updateAllocatedMips : the VMs of the host, whether each of them was
+	 * given the whole host, and the version of the VM scheduler once applied
+	 */
+	private Vm[] allocatedVms = new Vm[0];
+	private boolean[] allocatedActive = new boolean[0];
+	private long allocatedVersion = -1;
+	private long mipsReallocationsAvoided;
+	
 	public FogDevice(
 			String name, 
 			FogDeviceCharacteristics characteristics,
@@ -103,6 +157,7 @@ public class FogDevice extends PowerDatacenter {
 			double schedulingInterval,
 			double uplinkBandwidth, double downlinkBandwidth, double uplinkLatency, double ratePerMips) throws Exception {
 		super(name, characteristics, vmAllocationPolicy, storageList, schedulingInterval);
+		setDirectDispatch(true);
 		setCharacteristics(characteristics);
 		setVmAllocationPolicy(vmAllocationPolicy);
 		setLastProcessTime(0.0);
@@ -152,6 +207,7 @@ public class FogDevice extends PowerDatacenter {
 			String name, long mips, int ram, 
 			double uplinkBandwidth, double downlinkBandwidth, double ratePerMips, PowerModel powerModel) throws Exception {
 		super(name, null, null, new LinkedList<Storage>(), 0);
+		setDirectDispatch(true);
 		
 		List<Pe> peList = new ArrayList<Pe>();
 
@@ -270,6 +326,9 @@ public class FogDevice extends PowerDatacenter {
 		case FogEvents.UPDATE_SOUTH_TUPLE_QUEUE:
 			updateSouthTupleQueue();
 			break;
+		case FogEvents.LINK_TRANSFER_COMPLETE:
+			processLinkTransferComplete(ev);
+			break;
 		case FogEvents.ACTIVE_APP_UPDATE:
 			updateActiveApplications(ev);
 			break;
@@ -309,14 +368,59 @@ public class FogDevice extends PowerDatacenter {
 	}
 
 	private AppModule getModuleByName(String moduleName){
-		AppModule module = null;
+		indexModules();
+		return firstModuleByName.get(moduleName);
+	}
+	
+	private void indexModules(){
+		// modules placed before the simulation starts are added to the host directly, hence the size check
+		if(firstModuleByName != null && indexedVmCount == getHost().getVmList().size())
+			return;
+		firstModuleByName = new HashMap<String, AppModule>();
+		lastModuleByName = new HashMap<String, AppModule>();
 		for(Vm vm : getHost().getVmList()){
-			if(((AppModule)vm).getName().equals(moduleName)){
-				module=(AppModule)vm;
-				break;
-			}
+			AppModule module = (AppModule)vm;
+			if(!firstModuleByName.containsKey(module.getName()))
+				firstModuleByName.put(module.getName(), module);
+			lastModuleByName.put(module.getName(), module);
 		}
-		return module;
+		indexedVmCount = getHost().getVmList().size();
+	}
+	
+	private void invalidateModuleIndex(){
+		firstModuleByName = null;
+		lastModuleByName = null;
+	}
+	
+	@Override
+	protected void processVmCreate(SimEvent ev, boolean ack) {
+		super.processVmCreate(ev, ack);
+		invalidateModuleIndex();
+		updateUtilization();
+	}
+	
+	/**
+	 * Destroys a VM. When the VM is a module instance hosted by this device, the routes to the instance, and to
+	 * its module if this device no longer leads to another instance of it, are removed from the devices above.
+	 */
+	@Override
+	protected void processVmDestroy(SimEvent ev, boolean ack) {
+		Vm vm = (Vm)ev.getData();
+		boolean hosted = getVmList().contains(vm);
+		if(hosted)
+			updateVmsProcessingBeforeReallocation();
+		super.processVmDestroy(ev, ack);
+		invalidateModuleIndex();
+		updateUtilization();
+		if(hosted && vm instanceof AppModule)
+			forgetModule((AppModule)vm);
+	}
+	
+	@Override
+	protected void processVmMigrate(SimEvent ev, boolean ack) {
+		super.processVmMigrate(ev, ack);
+		invalidateModuleIndex();
+		updateUtilization();
 	}
 	
 	/**
@@ -348,6 +452,11 @@ public class FogDevice extends PowerDatacenter {
 		int actuatorId = ev.getSource();
 		double delay = (double)ev.getData();
 		getAssociatedActuatorIds().add(new Pair<Integer, Double>(actuatorId, delay));
+		FogDevice parent = getParentDevice();
+		if(parent != null){
+			parent.learnEntityRoute(actuatorId, getId());
+			parent.learnActuatorRoute(((Actuator)CloudSim.getEntity(actuatorId)).getActuatorType(), getId());
+		}
 	}
 
 	
@@ -375,16 +484,22 @@ public class FogDevice extends PowerDatacenter {
 		double minTime = Double.MAX_VALUE;
 		double timeDiff = currentTime - getLastProcessTime();
 		double timeFrameDatacenterEnergy = 0.0;
+		// checked once so that the arguments of the log lines are not boxed when logging is disabled
+		boolean logging = !Log.isDisabled();
 
 		for (PowerHost host : this.<PowerHost> getHostList()) {
-			Log.printLine();
+			if (logging)
+				Log.printLine();
 
 			double time = host.updateVmsProcessing(currentTime); // inform VMs to update processing
 			if (time < minTime) {
 				minTime = time;
 			}
+			// the host reallocates the MIPS requested by the VMs
+			updateUtilization();
 
-			Log.formatLine(
+			if (logging)
+				Log.formatLine(
 					"%.2f: [Host #%d] utilization is %.2f%%",
 					currentTime,
 					host.getId(),
@@ -392,7 +507,8 @@ public class FogDevice extends PowerDatacenter {
 		}
 
 		if (timeDiff > 0) {
-			Log.formatLine(
+			if (logging)
+				Log.formatLine(
 					"\nEnergy consumption for the last time frame from %.2f to %.2f:",
 					getLastProcessTime(),
 					currentTime);
@@ -406,6 +522,8 @@ public class FogDevice extends PowerDatacenter {
 						timeDiff);
 				timeFrameDatacenterEnergy += timeFrameHostEnergy;
 
+				if (!logging)
+					continue;
 				Log.printLine();
 				Log.formatLine(
 						"%.2f: [Host #%d] utilization at %.2f was %.2f%%, now is %.2f%%",
@@ -421,7 +539,8 @@ public class FogDevice extends PowerDatacenter {
 						timeFrameHostEnergy);
 			}
 
-			Log.formatLine(
+			if (logging)
+				Log.formatLine(
 					"\n%.2f: Data center's energy is %.2f W*sec\n",
 					currentTime,
 					timeFrameDatacenterEnergy);
@@ -443,7 +562,8 @@ public class FogDevice extends PowerDatacenter {
 			}
 		}*/
 		
-		Log.printLine();
+		if (logging)
+			Log.printLine();
 
 		setLastProcessTime(currentTime);
 		return minTime;
@@ -462,16 +582,21 @@ public class FogDevice extends PowerDatacenter {
 						
 						cloudletCompleted = true;
 						Tuple tuple = (Tuple)cl;
-						TimeKeeper.getInstance().tupleEndedExecution(tuple);
+						timeKeeper.tupleEndedExecution(tuple);
 						Application application = getApplicationMap().get(tuple.getAppId());
-						Logger.debug(getName(), "Completed execution of tuple "+tuple.getCloudletId()+"on "+tuple.getDestModuleName());
+						Tracer.trace(TraceEvent.TUPLE_EXECUTION_COMPLETED, getId(), tuple.getCloudletId(), vm.getId());
 						List<Tuple> resultantTuples = application.getResultantTuples(tuple.getDestModuleName(), tuple, getId(), vm.getId());
+						Map<String, Integer> moduleCopyMap = resultantTuples.isEmpty() ? null :
+							tuple.getModuleCopyMapAfter(((AppModule)vm).getName(), vm.getId());
+						boolean loopContinued = false;
 						for(Tuple resTuple : resultantTuples){
-							resTuple.setModuleCopyMap(new HashMap<String, Integer>(tuple.getModuleCopyMap()));
-							resTuple.getModuleCopyMap().put(((AppModule)vm).getName(), vm.getId());
+							resTuple.setModuleCopyMap(moduleCopyMap);
 							updateTimingsOnSending(resTuple);
+							loopContinued |= resTuple.getActualTupleId() == tuple.getActualTupleId();
 							sendToSelf(resTuple);
 						}
+						if(!loopContinued)
+							updateTimingsOnDropping(tuple);
 						sendNow(cl.getUserId(), CloudSimTags.CLOUDLET_RETURN, cl);
 					}
 				}
@@ -486,29 +611,173 @@ public class FogDevice extends PowerDatacenter {
 		// WILL NEED TO CHECK IF A NEW LOOP STARTS AND INSERT A UNIQUE TUPLE ID TO IT.
 		String srcModule = resTuple.getSrcModuleName();
 		String destModule = resTuple.getDestModuleName();
-		for(AppLoop loop : getApplicationMap().get(resTuple.getAppId()).getLoops()){
-			if(loop.hasEdge(srcModule, destModule) && loop.isStartModule(srcModule)){
-				int tupleId = TimeKeeper.getInstance().getUniqueId();
-				resTuple.setActualTupleId(tupleId);
-				if(!TimeKeeper.getInstance().getLoopIdToTupleIds().containsKey(loop.getLoopId()))
-					TimeKeeper.getInstance().getLoopIdToTupleIds().put(loop.getLoopId(), new ArrayList<Integer>());
-				TimeKeeper.getInstance().getLoopIdToTupleIds().get(loop.getLoopId()).add(tupleId);
-				TimeKeeper.getInstance().getEmitTimes().put(tupleId, CloudSim.clock());
-				
-				//Logger.debug(getName(), "\tSENDING\t"+tuple.getActualTupleId()+"\tSrc:"+srcModule+"\tDest:"+destModule);
-				
-			}
+		for(AppLoop loop : getApplicationMap().get(resTuple.getAppId()).getPlan().getLoopsStartingWith(srcModule, destModule)){
+			int tupleId = timeKeeper.getUniqueId();
+			resTuple.setActualTupleId(tupleId);
+			timeKeeper.tupleEmitted(loop.getLoopId(), tupleId);
 		}
 	}
 
+	/**
+	 * Forgets the emission of a tuple on a loop path that goes no further, because its execution produced no
+	 * tuple carrying its id on or because it reached the top of the hierarchy without finding its module.
+	 * Tuples off the loop paths are ignored, as another branch may still end the loop.
+	 */
+	protected void updateTimingsOnDropping(Tuple tuple) {
+		if(tuple.getActualTupleId() < 0)
+			return;
+		Application application = getApplicationMap().get(tuple.getAppId());
+		if(application != null
+				&& application.getPlan().getFirstLoopWith(tuple.getSrcModuleName(), tuple.getDestModuleName()) == null)
+			return;
+		timeKeeper.loopAbandoned(tuple.getActualTupleId());
+	}
+
 	protected int getChildIdWithRouteTo(int targetDeviceId){
-		for(Integer childId : getChildrenIds()){
-			if(targetDeviceId == childId)
-				return childId;
-			if(((FogDevice)CloudSim.getEntity(childId)).getChildIdWithRouteTo(targetDeviceId) != -1)
-				return childId;
+		return downRoutes.getChildWithEntity(targetDeviceId);
+	}
+	
+	/**
+	 * Gets the parent device if it has this device among its children.
+	 */
+	private FogDevice getParentDevice(){
+		if(parentId < 0 || !(CloudSim.getEntity(parentId) instanceof FogDevice))
+			return null;
+		FogDevice parent = (FogDevice)CloudSim.getEntity(parentId);
+		return parent.getChildrenIds().contains(getId()) ? parent : null;
+	}
+	
+	/*
+	 * Each of the following adds a route through a child and passes it on to the parent, through this device.
+	 */
+	
+	protected void learnEntityRoute(int entityId, int childId){
+		downRoutes.addEntityRoute(entityId, childId);
+		FogDevice parent = getParentDevice();
+		if(parent != null)
+			parent.learnEntityRoute(entityId, getId());
+	}
+	
+	protected void learnVmRoute(int vmId, int childId){
+		downRoutes.addVmRoute(vmId, childId);
+		FogDevice parent = getParentDevice();
+		if(parent != null)
+			parent.learnVmRoute(vmId, getId());
+	}
+	
+	protected void learnModuleRoute(String appId, String moduleName, int childId){
+		downRoutes.addModuleRoute(appId, moduleName, childId, getChildrenIds());
+		FogDevice parent = getParentDevice();
+		if(parent != null)
+			parent.learnModuleRoute(appId, moduleName, getId());
+	}
+	
+	/*
+	 * Each of the following removes a route through a child and passes the removal on to the parent, unless
+	 * this device still leads to the module instance or to the module.
+	 */
+	
+	protected void forgetVmRoute(int vmId, int childId){
+		if(!downRoutes.removeVmRoute(vmId, childId) || hostsVm(vmId))
+			return;
+		FogDevice parent = getParentDevice();
+		if(parent != null)
+			parent.forgetVmRoute(vmId, getId());
+	}
+	
+	protected void forgetModuleRoute(String appId, String moduleName, int childId){
+		if(!downRoutes.removeModuleRoute(appId, moduleName, childId) || hostsModule(appId, moduleName))
+			return;
+		FogDevice parent = getParentDevice();
+		if(parent != null)
+			parent.forgetModuleRoute(appId, moduleName, getId());
+	}
+	
+	private boolean hostsVm(int vmId){
+		for(Vm vm : getHost().getVmList()){
+			if(vm.getId() == vmId)
+				return true;
+		}
+		return false;
+	}
+	
+	private boolean hostsModule(String appId, String moduleName){
+		return appToModulesMap.containsKey(appId) && appToModulesMap.get(appId).contains(moduleName);
+	}
+	
+	/**
+	 * Forgets a module instance that this device no longer hosts, and the routes leading to it from above.
+	 */
+	private void forgetModule(AppModule module){
+		String appId = module.getAppId();
+		if(appToModulesMap.containsKey(appId))
+			appToModulesMap.get(appId).remove(module.getName());
+		FogDevice parent = getParentDevice();
+		if(parent == null)
+			return;
+		// the instance may already have been launched again below this device
+		if(downRoutes.getChildWithVm(module.getId()) == -1)
+			parent.forgetVmRoute(module.getId(), getId());
+		if(!hostsModule(appId, module.getName()) && downRoutes.getChildrenWithModule(appId, module.getName()).isEmpty())
+			parent.forgetModuleRoute(appId, module.getName(), getId());
+	}
+	
+	protected void learnActuatorRoute(String actuatorType, int childId){
+		downRoutes.addActuatorRoute(actuatorType, childId, getChildrenIds());
+		FogDevice parent = getParentDevice();
+		if(parent != null)
+			parent.learnActuatorRoute(actuatorType, getId());
+	}
+	
+	/**
+	 * Adds the routes to a newly connected child and to everything below it, and passes them on to the parent.
+	 * @param child a device that has just been added to the children of this device
+	 */
+	public void learnRoutesFromChild(FogDevice child){
+		int childId = child.getId();
+		learnEntityRoute(childId, childId);
+		for(Pair<Integer, Double> actuatorAssociation : child.getAssociatedActuatorIds()){
+			learnEntityRoute(actuatorAssociation.getFirst(), childId);
+			learnActuatorRoute(((Actuator)CloudSim.getEntity(actuatorAssociation.getFirst())).getActuatorType(), childId);
+		}
+		for(String appId : child.appToModulesMap.keySet()){
+			for(String moduleName : child.appToModulesMap.get(appId))
+				learnModuleRoute(appId, moduleName, childId);
+		}
+		for(Vm vm : child.getHost().getVmList()){
+			AppModule module = (AppModule)vm;
+			if(child.appToModulesMap.containsKey(module.getAppId()) && child.appToModulesMap.get(module.getAppId()).contains(module.getName()))
+				learnVmRoute(module.getId(), childId);
+		}
+		DownRoutingTable childRoutes = child.getDownRoutes();
+		for(int entityId : childRoutes.getEntityRoutes().keySet())
+			learnEntityRoute(entityId, childId);
+		for(int vmId : childRoutes.getVmRoutes().keySet())
+			learnVmRoute(vmId, childId);
+		for(String appId : childRoutes.getModuleRoutes().keySet()){
+			for(String moduleName : childRoutes.getModuleRoutes().get(appId).keySet())
+				learnModuleRoute(appId, moduleName, childId);
+		}
+		for(String actuatorType : childRoutes.getActuatorRoutes().keySet())
+			learnActuatorRoute(actuatorType, childId);
+	}
+	
+	/**
+	 * Sends a DOWN tuple to the children leading to the devices that can execute it : the device hosting its
+	 * module instance if the tuple is bound to one, or else every device of the subtree hosting its module.
+	 */
+	protected void sendDownRouted(Tuple tuple){
+		if(isBroadcastDownTuples()){
+			for(int childId : getChildrenIds())
+				sendDown(tuple, childId);
+		}else if(tuple.getModuleCopyMap().containsKey(tuple.getDestModuleName())){
+			int childId = downRoutes.getChildWithVm(tuple.getModuleCopyMap().get(tuple.getDestModuleName()));
+			if(childId != -1)
+				sendDown(tuple, childId);
+		}else{
+			for(int childId : downRoutes.getChildrenWithModule(tuple.getAppId(), tuple.getDestModuleName()))
+				sendDown(tuple, childId);
 		}
-		return -1;
 	}
 	
 	protected int getChildIdForTuple(Tuple tuple){
@@ -519,34 +788,110 @@ public class FogDevice extends PowerDatacenter {
 		return -1;
 	}
 	
+	/**
+	 * Gives the whole host to the VMs executing tuples (and to the incoming operator) and nothing to the others.
+	 * The VMs are only reallocated when one of them changed status or the VM scheduler was changed by someone
+	 * else since the last allocation, as the allocation would otherwise be the same.
+	 * @param incomingOperator name of the module about to receive a tuple
+	 */
 	protected void updateAllocatedMips(String incomingOperator){
-		getHost().getVmScheduler().deallocatePesForAllVms();
-		for(final Vm vm : getHost().getVmList()){
-			if(vm.getCloudletScheduler().runningCloudlets() > 0 || ((AppModule)vm).getName().equals(incomingOperator)){
-				getHost().getVmScheduler().allocatePesForVm(vm, new ArrayList<Double>(){
-					protected static final long serialVersionUID = 1L;
-				{add((double) getHost().getTotalMips());}});
-			}else{
-				getHost().getVmScheduler().allocatePesForVm(vm, new ArrayList<Double>(){
-					protected static final long serialVersionUID = 1L;
-				{add(0.0);}});
-			}
+		updateVmsProcessingBeforeReallocation();
+		List<Vm> vms = getHost().getVmList();
+		VmScheduler vmScheduler = getHost().getVmScheduler();
+		boolean unchanged = allocatedVersion == vmScheduler.getAllocationVersion() && allocatedVms.length == vms.size();
+		for(int i = 0; unchanged && i < vms.size(); i++){
+			Vm vm = vms.get(i);
+			unchanged = allocatedVms[i] == vm && allocatedActive[i] == isActive(vm, incomingOperator);
+		}
+		if(unchanged){
+			mipsReallocationsAvoided++;
+			updateEnergyConsumption(false);
+			return;
 		}
 		
-		updateEnergyConsumption();
+		if(allocatedVms.length != vms.size()){
+			allocatedVms = new Vm[vms.size()];
+			allocatedActive = new boolean[vms.size()];
+		}
+		vmScheduler.deallocatePesForAllVms();
+		for(int i = 0; i < vms.size(); i++){
+			Vm vm = vms.get(i);
+			allocatedVms[i] = vm;
+			allocatedActive[i] = isActive(vm, incomingOperator);
+			vmScheduler.allocatePesForVm(vm, allocatedActive[i] ? getFullMipsShare() : IDLE_MIPS_SHARE);
+		}
 		
+		updateEnergyConsumption(true);
+		allocatedVersion = vmScheduler.getAllocationVersion();
+	}
+	
+	private boolean isActive(Vm vm, String incomingOperator){
+		return vm.getCloudletScheduler().runningCloudlets() > 0 || ((AppModule)vm).getName().equals(incomingOperator);
+	}
+	
+	private List<Double> getFullMipsShare(){
+		if(fullMipsShare == null)
+			fullMipsShare = Collections.singletonList((double) getHost().getTotalMips());
+		return fullMipsShare;
+	}
+	
+	/**
+	 * Gets the number of MIPS reallocations skipped because the allocation of the host was unchanged.
+	 */
+	public long getMipsReallocationsAvoided() {
+		return mipsReallocationsAvoided;
 	}
 	
 	private void updateEnergyConsumption() {
-		double totalMipsAllocated = 0;
+		updateEnergyConsumption(true);
+	}
+	
+	/**
+	 * @param allocationChanged if false, the VMs already updated at the current time are skipped, their
+	 * MIPS share being the same
+	 */
+	private void updateEnergyConsumption(boolean allocationChanged) {
+		double timeNow = CloudSim.clock();
 		for(final Vm vm : getHost().getVmList()){
 			AppModule operator = (AppModule)vm;
-			operator.updateVmProcessing(CloudSim.clock(), getVmAllocationPolicy().getHost(operator).getVmScheduler()
-					.getAllocatedMipsForVm(operator));
-			totalMipsAllocated += getHost().getTotalAllocatedMipsForVm(vm);
+			if(allocationChanged || operator.getCloudletScheduler().getPreviousTime() != timeNow)
+				operator.updateVmProcessing(timeNow, getVmAllocationPolicy().getHost(operator).getVmScheduler()
+						.getAllocatedMipsForVm(operator));
 		}
-		
+		if(Config.PERIODIC_RESOURCE_MGMT)
+			integrateUtilization(timeNow);
+		else
+			updateUtilization();
+	}
+	
+	/**
+	 * Brings the processing of the VMs up to the current time at the MIPS allocated to them so far, as the
+	 * time since their last update would otherwise be processed at the MIPS about to be allocated.
+	 */
+	private void updateVmsProcessingBeforeReallocation() {
 		double timeNow = CloudSim.clock();
+		for(final Vm vm : getHost().getVmList()){
+			if(vm.getCloudletScheduler().getPreviousTime() != timeNow)
+				vm.updateVmProcessing(timeNow, getHost().getVmScheduler().getAllocatedMipsForVm(vm));
+		}
+	}
+	
+	/**
+	 * Accounts for a change of the MIPS allocated on the host. The power and the cost only change with the
+	 * utilization, so integrating them at these changes only gives the totals of the periodic resource
+	 * management events.
+	 */
+	private void updateUtilization() {
+		if(utilizationVersion == getHost().getVmScheduler().getAllocationVersion())
+			return;
+		integrateUtilization(CloudSim.clock());
+	}
+	
+	/**
+	 * Adds the energy consumed and the cost incurred since the last update, during which the utilization
+	 * was lastUtilization, and records the current utilization.
+	 */
+	private void integrateUtilization(double timeNow) {
 		double currentEnergyConsumption = getEnergyConsumption();
 		double newEnergyConsumption = currentEnergyConsumption + (timeNow-lastUtilizationUpdateTime)*getHost().getPowerModel().getPower(lastUtilization);
 		setEnergyConsumption(newEnergyConsumption);
@@ -562,8 +907,19 @@ public class FogDevice extends PowerDatacenter {
 		double newcost = currentCost + (timeNow-lastUtilizationUpdateTime)*getRatePerMips()*lastUtilization*getHost().getTotalMips();
 		setTotalCost(newcost);
 		
+		double totalMipsAllocated = 0;
+		for(final Vm vm : getHost().getVmList())
+			totalMipsAllocated += getHost().getTotalAllocatedMipsForVm(vm);
 		lastUtilization = Math.min(1, totalMipsAllocated/getHost().getTotalMips());
 		lastUtilizationUpdateTime = timeNow;
+		utilizationVersion = getHost().getVmScheduler().getAllocationVersion();
+	}
+	
+	/**
+	 * Brings the energy consumption and the cost up to the current time, at the end of the simulation.
+	 */
+	public void flushEnergyConsumption() {
+		integrateUtilization(CloudSim.clock());
 	}
 
 	protected void processAppSubmit(SimEvent ev) {
@@ -574,8 +930,11 @@ public class FogDevice extends PowerDatacenter {
 	protected void addChild(int childId){
 		if(CloudSim.getEntityName(childId).toLowerCase().contains("sensor"))
 			return;
-		if(!getChildrenIds().contains(childId) && childId != getId())
+		if(!getChildrenIds().contains(childId) && childId != getId()){
 			getChildrenIds().add(childId);
+			if(CloudSim.getEntity(childId) instanceof FogDevice)
+				learnRoutesFromChild((FogDevice)CloudSim.getEntity(childId));
+		}
 		if(!getChildToOperatorsMap().containsKey(childId))
 			getChildToOperatorsMap().put(childId, new ArrayList<String>());
 	}
@@ -608,7 +967,8 @@ public class FogDevice extends PowerDatacenter {
 				return;
 			}
 		}
-		for(int childId : getChildrenIds()){
+		List<Integer> childIds = isBroadcastDownTuples() ? getChildrenIds() : downRoutes.getChildrenWithActuator(tuple.getDestModuleName());
+		for(int childId : childIds){
 			sendDown(tuple, childId);
 		}
 	}
@@ -623,12 +983,8 @@ public class FogDevice extends PowerDatacenter {
 		/*if(getName().equals("d-0") && tuple.getTupleType().equals("_SENSOR")){
 			System.out.println(++numClients);
 		}*/
-		Logger.debug(getName(), "Received tuple "+tuple.getCloudletId()+"with tupleType = "+tuple.getTupleType()+"\t| Source : "+
-		CloudSim.getEntityName(ev.getSource())+"|Dest : "+CloudSim.getEntityName(ev.getDestination()));
-		send(ev.getSource(), CloudSim.getMinTimeBetweenEvents(), FogEvents.TUPLE_ACK);
-		
-		if(FogUtils.appIdToGeoCoverageMap.containsKey(tuple.getAppId())){
-		}
+		Tracer.trace(TraceEvent.TUPLE_RECEIVED, getId(), tuple.getCloudletId(), ev.getSource());
+		sendTupleAck(ev);
 		
 		if(tuple.getDirection() == Tuple.ACTUATOR){
 			sendTupleToActuator(tuple);
@@ -638,10 +994,16 @@ public class FogDevice extends PowerDatacenter {
 		if(getHost().getVmList().size() > 0){
 			final AppModule operator = (AppModule)getHost().getVmList().get(0);
 			if(CloudSim.clock() > 0){
-				getHost().getVmScheduler().deallocatePesForVm(operator);
-				getHost().getVmScheduler().allocatePesForVm(operator, new ArrayList<Double>(){
-					protected static final long serialVersionUID = 1L;
-				{add((double) getHost().getTotalMips());}});
+				if(allocatedVersion == getHost().getVmScheduler().getAllocationVersion()
+						&& allocatedVms.length > 0 && allocatedVms[0] == operator && allocatedActive[0]){
+					// the operator already has the whole host
+					mipsReallocationsAvoided++;
+				}else{
+					updateVmsProcessingBeforeReallocation();
+					getHost().getVmScheduler().deallocatePesForVm(operator);
+					getHost().getVmScheduler().allocatePesForVm(operator, getFullMipsShare());
+					updateUtilization();
+				}
 			}
 		}
 		
@@ -652,11 +1014,9 @@ public class FogDevice extends PowerDatacenter {
 		
 		if(appToModulesMap.containsKey(tuple.getAppId())){
 			if(appToModulesMap.get(tuple.getAppId()).contains(tuple.getDestModuleName())){
-				int vmId = -1;
-				for(Vm vm : getHost().getVmList()){
-					if(((AppModule)vm).getName().equals(tuple.getDestModuleName()))
-						vmId = vm.getId();
-				}
+				indexModules();
+				AppModule destModule = lastModuleByName.get(tuple.getDestModuleName());
+				int vmId = destModule == null ? -1 : destModule.getId();
 				if(vmId < 0
 						|| (tuple.getModuleCopyMap().containsKey(tuple.getDestModuleName()) && 
 								tuple.getModuleCopyMap().get(tuple.getDestModuleName())!=vmId )){
@@ -672,8 +1032,7 @@ public class FogDevice extends PowerDatacenter {
 				if(tuple.getDirection() == Tuple.UP)
 					sendUp(tuple);
 				else if(tuple.getDirection() == Tuple.DOWN){
-					for(int childId : getChildrenIds())
-						sendDown(tuple, childId);
+					sendDownRouted(tuple);
 				}
 			}else{
 				sendUp(tuple);
@@ -682,8 +1041,7 @@ public class FogDevice extends PowerDatacenter {
 			if(tuple.getDirection() == Tuple.UP)
 				sendUp(tuple);
 			else if(tuple.getDirection() == Tuple.DOWN){
-				for(int childId : getChildrenIds())
-					sendDown(tuple, childId);
+				sendDownRouted(tuple);
 			}
 		}
 	}
@@ -692,37 +1050,28 @@ public class FogDevice extends PowerDatacenter {
 		Application app = getApplicationMap().get(tuple.getAppId());
 		String srcModule = tuple.getSrcModuleName();
 		String destModule = tuple.getDestModuleName();
-		List<AppLoop> loops = app.getLoops();
-		for(AppLoop loop : loops){
-			if(loop.hasEdge(srcModule, destModule) && loop.isEndModule(destModule)){				
-				Double startTime = TimeKeeper.getInstance().getEmitTimes().get(tuple.getActualTupleId());
-				if(startTime==null)
-					break;
-				if(!TimeKeeper.getInstance().getLoopIdToCurrentAverage().containsKey(loop.getLoopId())){
-					TimeKeeper.getInstance().getLoopIdToCurrentAverage().put(loop.getLoopId(), 0.0);
-					TimeKeeper.getInstance().getLoopIdToCurrentNum().put(loop.getLoopId(), 0);
-				}
-				double currentAverage = TimeKeeper.getInstance().getLoopIdToCurrentAverage().get(loop.getLoopId());
-				int currentCount = TimeKeeper.getInstance().getLoopIdToCurrentNum().get(loop.getLoopId());
-				double delay = CloudSim.clock()- TimeKeeper.getInstance().getEmitTimes().get(tuple.getActualTupleId());
-				TimeKeeper.getInstance().getEmitTimes().remove(tuple.getActualTupleId());
-				double newAverage = (currentAverage*currentCount + delay)/(currentCount+1);
-				TimeKeeper.getInstance().getLoopIdToCurrentAverage().put(loop.getLoopId(), newAverage);
-				TimeKeeper.getInstance().getLoopIdToCurrentNum().put(loop.getLoopId(), currentCount+1);
-				break;
-			}
-		}
+		AppLoop loop = app.getPlan().getFirstLoopEndingWith(srcModule, destModule);
+		if(loop != null)
+			timeKeeper.loopEnded(loop.getLoopId(), tuple.getActualTupleId());
 	}
 
 	protected void processSensorJoining(SimEvent ev){
-		send(ev.getSource(), CloudSim.getMinTimeBetweenEvents(), FogEvents.TUPLE_ACK);
+		sendTupleAck(ev);
+	}
+	
+	/**
+	 * Acknowledges a tuple, except to sensor groups which do not use the acknowledgements
+	 */
+	private void sendTupleAck(SimEvent ev){
+		if(!(CloudSim.getEntity(ev.getSource()) instanceof SensorGroup))
+			send(ev.getSource(), CloudSim.getMinTimeBetweenEvents(), FogEvents.TUPLE_ACK);
 	}
 	
 	protected void executeTuple(SimEvent ev, String moduleName){
-		Logger.debug(getName(), "Executing tuple on module "+moduleName);
 		Tuple tuple = (Tuple)ev.getData();
 		
 		AppModule module = getModuleByName(moduleName);
+		Tracer.trace(TraceEvent.TUPLE_EXECUTION_STARTED, getId(), tuple.getCloudletId(), module.getId());
 		
 		if(tuple.getDirection() == Tuple.UP){
 			String srcModule = tuple.getSrcModuleName();
@@ -738,7 +1087,7 @@ public class FogDevice extends PowerDatacenter {
 			module.setNumInstances(instances);
 		}
 		
-		TimeKeeper.getInstance().tupleStartedExecution(tuple);
+		timeKeeper.tupleStartedExecution(tuple);
 		updateAllocatedMips(moduleName);
 		processCloudletSubmit(ev, false);
 		updateAllocatedMips(moduleName);
@@ -754,6 +1103,11 @@ public class FogDevice extends PowerDatacenter {
 			appToModulesMap.put(appId, new ArrayList<String>());
 		}
 		appToModulesMap.get(appId).add(module.getName());
+		FogDevice parent = getParentDevice();
+		if(parent != null){
+			parent.learnModuleRoute(appId, module.getName(), getId());
+			parent.learnVmRoute(module.getId(), getId());
+		}
 		processVmCreate(ev, false);
 		if (module.isBeingInstantiated()) {
 			module.setBeingInstantiated(false);
@@ -774,8 +1128,15 @@ public class FogDevice extends PowerDatacenter {
 		}
 	}
 
+	/**
+	 * Releases a module instance hosted by this device, e.g. before it is launched on another device.
+	 * @param ev event carrying the AppModule to release
+	 */
 	protected void processOperatorRelease(SimEvent ev){
-		this.processVmMigrate(ev, false);
+		AppModule module = (AppModule)ev.getData();
+		processVmDestroy(ev, false);
+		// the module placement already created the module on the host before it was launched
+		getHost().getVmList().removeAll(Collections.singleton(module));
 	}
 	
 	
@@ -793,16 +1154,27 @@ public class FogDevice extends PowerDatacenter {
 		setNorthLinkBusy(true);
 		send(getId(), networkDelay, FogEvents.UPDATE_NORTH_TUPLE_QUEUE);
 		send(parentId, networkDelay+getUplinkLatency(), FogEvents.TUPLE_ARRIVAL, tuple);
-		NetworkUsageMonitor.sendingTuple(getUplinkLatency(), tuple.getCloudletFileSize());
+		networkUsageMonitor.tupleSent(getUplinkLatency(), tuple.getCloudletFileSize());
 	}
 	
 	protected void sendUp(Tuple tuple){
 		if(parentId > 0){
-			if(!isNorthLinkBusy()){
+			if(getLinkModel() == LinkModel.PER_CHILD){
+				if(northFifoLink == null)
+					northFifoLink = new FifoLink(getUplinkBandwidth());
+				sendOnLink(northFifoLink, parentId, tuple);
+			}else if(getLinkModel() == LinkModel.PROCESSOR_SHARING){
+				if(northSharedLink == null)
+					northSharedLink = new ProcessorSharingLink(getUplinkBandwidth());
+				sendOnLink(northSharedLink, parentId, tuple);
+			}else if(!isNorthLinkBusy()){
 				sendUpFreeLink(tuple);
 			}else{
 				northTupleQueue.add(tuple);
 			}
+		}else{
+			// no module on the way up to the top of the hierarchy
+			updateTimingsOnDropping(tuple);
 		}
 	}
 	
@@ -823,12 +1195,23 @@ public class FogDevice extends PowerDatacenter {
 		double latency = getChildToLatencyMap().get(childId);
 		send(getId(), networkDelay, FogEvents.UPDATE_SOUTH_TUPLE_QUEUE);
 		send(childId, networkDelay+latency, FogEvents.TUPLE_ARRIVAL, tuple);
-		NetworkUsageMonitor.sendingTuple(latency, tuple.getCloudletFileSize());
+		networkUsageMonitor.tupleSent(latency, tuple.getCloudletFileSize());
 	}
 	
 	protected void sendDown(Tuple tuple, int childId){
 		if(getChildrenIds().contains(childId)){
-			if(!isSouthLinkBusy()){
+			if(getLinkModel() == LinkModel.PER_CHILD){
+				FifoLink link = southFifoLinks.get(childId);
+				if(link == null){
+					link = new FifoLink(getDownlinkBandwidth());
+					southFifoLinks.put(childId, link);
+				}
+				sendOnLink(link, childId, tuple);
+			}else if(getLinkModel() == LinkModel.PROCESSOR_SHARING){
+				if(southSharedLink == null)
+					southSharedLink = new ProcessorSharingLink(getDownlinkBandwidth());
+				sendOnLink(southSharedLink, childId, tuple);
+			}else if(!isSouthLinkBusy()){
 				sendDownFreeLink(tuple, childId);
 			}else{
 				southTupleQueue.add(new Pair<Tuple, Integer>(tuple, childId));
@@ -836,6 +1219,44 @@ public class FogDevice extends PowerDatacenter {
 		}
 	}
 	
+	private double getLinkLatency(int destinationId){
+		return destinationId == parentId ? getUplinkLatency() : getChildToLatencyMap().get(destinationId);
+	}
+	
+	/**
+	 * Sends a tuple on a FIFO link, the arrival being scheduled right away as the link is FIFO.
+	 */
+	private void sendOnLink(FifoLink link, int destinationId, Tuple tuple){
+		double latency = getLinkLatency(destinationId);
+		double transmissionDelay = link.transmit(CloudSim.clock(), tuple.getCloudletFileSize());
+		send(destinationId, transmissionDelay+latency, FogEvents.TUPLE_ARRIVAL, tuple);
+		networkUsageMonitor.tupleSent(latency, tuple.getCloudletFileSize());
+	}
+	
+	private void sendOnLink(ProcessorSharingLink link, int destinationId, Tuple tuple){
+		link.add(destinationId, tuple, CloudSim.clock());
+		networkUsageMonitor.tupleSent(getLinkLatency(destinationId), tuple.getCloudletFileSize());
+		// the new transfer may complete before the pending completion
+		scheduleLinkTransferCompletion(link);
+	}
+	
+	private void scheduleLinkTransferCompletion(ProcessorSharingLink link){
+		ProcessorSharingLink.Completion completion = link.nextCompletion(CloudSim.clock());
+		if(completion != null)
+			send(getId(), completion.getDelay(), FogEvents.LINK_TRANSFER_COMPLETE, completion);
+	}
+	
+	protected void processLinkTransferComplete(SimEvent ev){
+		ProcessorSharingLink.Completion completion = (ProcessorSharingLink.Completion)ev.getData();
+		ProcessorSharingLink link = completion.getLink();
+		if(!link.completionFired(completion))
+			return;
+		for(Pair<Integer, Tuple> transfer : link.pollCompleted(CloudSim.clock(), CloudSim.getMinTimeBetweenEvents())){
+			send(transfer.getFirst(), getLinkLatency(transfer.getFirst()), FogEvents.TUPLE_ARRIVAL, transfer.getSecond());
+		}
+		scheduleLinkTransferCompletion(link);
+	}
+	
 	
 	protected void sendToSelf(Tuple tuple){
 		send(getId(), CloudSim.getMinTimeBetweenEvents(), FogEvents.TUPLE_ARRIVAL, tuple);
@@ -867,6 +1288,21 @@ public class FogDevice extends PowerDatacenter {
 	public void setUplinkLatency(double uplinkLatency) {
 		this.uplinkLatency = uplinkLatency;
 	}
+	public DownRoutingTable getDownRoutes() {
+		return downRoutes;
+	}
+	public boolean isBroadcastDownTuples() {
+		return broadcastDownTuples;
+	}
+	public void setBroadcastDownTuples(boolean broadcastDownTuples) {
+		this.broadcastDownTuples = broadcastDownTuples;
+	}
+	public LinkModel getLinkModel() {
+		return linkModel;
+	}
+	public void setLinkModel(LinkModel linkModel) {
+		this.linkModel = linkModel;
+	}
 	public boolean isSouthLinkBusy() {
 		return isSouthLinkBusy;
 	}
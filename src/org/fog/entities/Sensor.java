@@ -1,8 +1,6 @@
 package org.fog.entities;
 
-import java.util.ArrayList;
 
-import org.cloudbus.cloudsim.UtilizationModelFull;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.SimEntity;
 import org.cloudbus.cloudsim.core.SimEvent;
@@ -12,8 +10,9 @@ import org.fog.application.Application;
 import org.fog.utils.FogEvents;
 import org.fog.utils.FogUtils;
 import org.fog.utils.GeoLocation;
-import org.fog.utils.Logger;
 import org.fog.utils.TimeKeeper;
+import org.fog.utils.TraceEvent;
+import org.fog.utils.Tracer;
 import org.fog.utils.distribution.Distribution;
 
 public class Sensor extends SimEntity{
@@ -30,10 +29,13 @@ public class Sensor extends SimEntity{
 	private int controllerId;
 	private Application app;
 	private double latency;
+	private final TimeKeeper timeKeeper = TimeKeeper.getInstance();
+	private final FogUtils.IdGenerator idGenerator = FogUtils.getIdGenerator();
 	
 	public Sensor(String name, int userId, String appId, int gatewayDeviceId, double latency, GeoLocation geoLocation, 
 			Distribution transmitDistribution, int cpuLength, int nwLength, String tupleType, String destModuleName) {
 		super(name);
+		setDirectDispatch(true);
 		this.setAppId(appId);
 		this.gatewayDeviceId = gatewayDeviceId;
 		this.geoLocation = geoLocation;
@@ -49,6 +51,7 @@ public class Sensor extends SimEntity{
 	public Sensor(String name, int userId, String appId, int gatewayDeviceId, double latency, GeoLocation geoLocation, 
 			Distribution transmitDistribution, String tupleType) {
 		super(name);
+		setDirectDispatch(true);
 		this.setAppId(appId);
 		this.gatewayDeviceId = gatewayDeviceId;
 		this.geoLocation = geoLocation;
@@ -71,6 +74,7 @@ public class Sensor extends SimEntity{
 	 */
 	public Sensor(String name, String tupleType, int userId, String appId, Distribution transmitDistribution) {
 		super(name);
+		setDirectDispatch(true);
 		this.setAppId(appId);
 		this.setTransmitDistribution(transmitDistribution);
 		setTupleType(tupleType);
@@ -87,14 +91,14 @@ public class Sensor extends SimEntity{
 		long cpuLength = (long) _edge.getTupleCpuLength();
 		long nwLength = (long) _edge.getTupleNwLength();
 		
-		Tuple tuple = new Tuple(getAppId(), FogUtils.generateTupleId(), Tuple.UP, cpuLength, 1, nwLength, outputSize, 
-				new UtilizationModelFull(), new UtilizationModelFull(), new UtilizationModelFull());
+		Tuple tuple = new Tuple(getAppId(), idGenerator.generateTupleId(), Tuple.UP, cpuLength, 1, nwLength, outputSize, 
+				Tuple.UTILIZATION_MODEL_FULL, Tuple.UTILIZATION_MODEL_FULL, Tuple.UTILIZATION_MODEL_FULL);
 		tuple.setUserId(getUserId());
 		tuple.setTupleType(getTupleType());
 		
 		tuple.setDestModuleName(_edge.getDestination());
 		tuple.setSrcModuleName(getSensorName());
-		Logger.debug(getName(), "Sending tuple with tupleId = "+tuple.getCloudletId());
+		Tracer.trace(TraceEvent.TUPLE_EMITTED, getId(), tuple.getCloudletId(), -1);
 
 		int actualTupleId = updateTimings(getSensorName(), tuple.getDestModuleName());
 		tuple.setActualTupleId(actualTupleId);
@@ -104,18 +108,12 @@ public class Sensor extends SimEntity{
 	
 	private int updateTimings(String src, String dest){
 		Application application = getApp();
-		for(AppLoop loop : application.getLoops()){
-			if(loop.hasEdge(src, dest)){
-				
-				int tupleId = TimeKeeper.getInstance().getUniqueId();
-				if(!TimeKeeper.getInstance().getLoopIdToTupleIds().containsKey(loop.getLoopId()))
-					TimeKeeper.getInstance().getLoopIdToTupleIds().put(loop.getLoopId(), new ArrayList<Integer>());
-				TimeKeeper.getInstance().getLoopIdToTupleIds().get(loop.getLoopId()).add(tupleId);
-				TimeKeeper.getInstance().getEmitTimes().put(tupleId, CloudSim.clock());
-				return tupleId;
-			}
-		}
-		return -1;
+		AppLoop loop = application.getPlan().getFirstLoopWith(src, dest);
+		if(loop == null)
+			return -1;
+		int tupleId = timeKeeper.getUniqueId();
+		timeKeeper.tupleEmitted(loop.getLoopId(), tupleId);
+		return tupleId;
 	}
 	
 	@Override
@@ -0,0 +1,238 @@
+package org.fog.entities;
+
+import java.util.Arrays;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimEntity;
+import org.cloudbus.cloudsim.core.SimEvent;
+import org.fog.application.AppEdge;
+import org.fog.application.AppLoop;
+import org.fog.application.Application;
+import org.fog.utils.FogEvents;
+import org.fog.utils.FogUtils;
+import org.fog.utils.TimeKeeper;
+import org.fog.utils.TraceEvent;
+import org.fog.utils.Tracer;
+import org.fog.utils.distribution.Distribution;
+
+/**
+ * Population of homogeneous sensors, each attached to its own gateway, simulated by a single entity.
+ * Every sensor emits tuples exactly as a {@link Sensor} with the same parameters would, but the next
+ * emissions of all the sensors are kept in a heap so that only one event is scheduled per emission
+ * instant, and gateways do not acknowledge the tuples.
+ */
+public class SensorGroup extends SimEntity{
+
+	private String appId;
+	private int userId;
+	private String tupleType;
+	private String sensorName;
+	private long outputSize;
+	private Distribution transmitDistribution;
+	private int controllerId;
+	private Application app;
+	private final TimeKeeper timeKeeper = TimeKeeper.getInstance();
+	private final FogUtils.IdGenerator idGenerator = FogUtils.getIdGenerator();
+
+	private int numSensors;
+	private int[] gatewayDeviceIds = new int[16];
+	private double[] latencies = new double[16];
+
+	/**
+	 * Time of the next emission of each sensor, and heap of the sensors ordered by that time
+	 */
+	private double[] nextEmissionTimes;
+	private int[] heap;
+
+	public SensorGroup(String name, String tupleType, int userId, String appId, Distribution transmitDistribution) {
+		super(name);
+		setDirectDispatch(true);
+		this.setAppId(appId);
+		this.setTransmitDistribution(transmitDistribution);
+		this.outputSize = 3;
+		setTupleType(tupleType);
+		setSensorName(tupleType);
+		setUserId(userId);
+	}
+
+	/**
+	 * Adds a sensor to the group, before the simulation starts.
+	 * @param gatewayDeviceId id of the device the sensor is attached to
+	 * @param latency latency of the link between the sensor and its gateway
+	 * @return the index of the sensor in the group
+	 */
+	public int addSensor(int gatewayDeviceId, double latency){
+		if(numSensors == gatewayDeviceIds.length){
+			gatewayDeviceIds = Arrays.copyOf(gatewayDeviceIds, numSensors*2);
+			latencies = Arrays.copyOf(latencies, numSensors*2);
+		}
+		gatewayDeviceIds[numSensors] = gatewayDeviceId;
+		latencies[numSensors] = latency;
+		return numSensors++;
+	}
+
+	private boolean before(int sensor, int other){
+		return nextEmissionTimes[sensor] < nextEmissionTimes[other]
+				|| (nextEmissionTimes[sensor] == nextEmissionTimes[other] && sensor < other);
+	}
+
+	private void siftDown(int position){
+		int sensor = heap[position];
+		while(2*position+1 < numSensors){
+			int child = 2*position+1;
+			if(child+1 < numSensors && before(heap[child+1], heap[child]))
+				child++;
+			if(!before(heap[child], sensor))
+				break;
+			heap[position] = heap[child];
+			position = child;
+		}
+		heap[position] = sensor;
+	}
+
+	private AppEdge getEdge(){
+		AppEdge _edge = null;
+		for(AppEdge edge : getApp().getEdges()){
+			if(edge.getSource().equals(getTupleType()))
+				_edge = edge;
+		}
+		return _edge;
+	}
+
+	/**
+	 * Emits a tuple from a sensor of the group, as {@link Sensor#transmit()} does.
+	 */
+	private void transmit(int sensor, AppEdge edge){
+		long cpuLength = (long) edge.getTupleCpuLength();
+		long nwLength = (long) edge.getTupleNwLength();
+
+		Tuple tuple = new Tuple(getAppId(), idGenerator.generateTupleId(), Tuple.UP, cpuLength, 1, nwLength, outputSize,
+				Tuple.UTILIZATION_MODEL_FULL, Tuple.UTILIZATION_MODEL_FULL, Tuple.UTILIZATION_MODEL_FULL);
+		tuple.setUserId(getUserId());
+		tuple.setTupleType(getTupleType());
+
+		tuple.setDestModuleName(edge.getDestination());
+		tuple.setSrcModuleName(getSensorName());
+		Tracer.trace(TraceEvent.TUPLE_EMITTED, getId(), tuple.getCloudletId(), sensor);
+
+		AppLoop loop = getApp().getPlan().getFirstLoopWith(getSensorName(), tuple.getDestModuleName());
+		int actualTupleId = -1;
+		if(loop != null){
+			actualTupleId = timeKeeper.getUniqueId();
+			timeKeeper.tupleEmitted(loop.getLoopId(), actualTupleId);
+		}
+		tuple.setActualTupleId(actualTupleId);
+
+		send(gatewayDeviceIds[sensor], latencies[sensor], FogEvents.TUPLE_ARRIVAL, tuple);
+	}
+
+	private void scheduleNextEmission(){
+		if(numSensors > 0)
+			send(getId(), nextEmissionTimes[heap[0]] - CloudSim.clock(), FogEvents.EMIT_TUPLE, nextEmissionTimes[heap[0]]);
+	}
+
+	@Override
+	public void startEntity() {
+		nextEmissionTimes = new double[numSensors];
+		heap = new int[numSensors];
+		for(int sensor = 0; sensor < numSensors; sensor++){
+			send(gatewayDeviceIds[sensor], CloudSim.getMinTimeBetweenEvents(), FogEvents.SENSOR_JOINED);
+			nextEmissionTimes[sensor] = CloudSim.clock() + getTransmitDistribution().getNextValue();
+			heap[sensor] = sensor;
+		}
+		for(int position = numSensors/2 - 1; position >= 0; position--)
+			siftDown(position);
+		scheduleNextEmission();
+	}
+
+	@Override
+	public void processEvent(SimEvent ev) {
+		switch(ev.getTag()){
+		case FogEvents.EMIT_TUPLE:
+			// the event is due at the time of the first emission, which the clock may miss by a rounding error
+			double emissionTime = (Double) ev.getData();
+			AppEdge edge = getEdge();
+			while(nextEmissionTimes[heap[0]] <= emissionTime){
+				int sensor = heap[0];
+				transmit(sensor, edge);
+				nextEmissionTimes[sensor] += getTransmitDistribution().getNextValue();
+				siftDown(0);
+			}
+			scheduleNextEmission();
+			break;
+		}
+	}
+
+	@Override
+	public void shutdownEntity() {
+
+	}
+
+	public int getNumSensors() {
+		return numSensors;
+	}
+
+	public int getGatewayDeviceId(int sensor) {
+		return gatewayDeviceIds[sensor];
+	}
+
+	public double getLatency(int sensor) {
+		return latencies[sensor];
+	}
+
+	public int getUserId() {
+		return userId;
+	}
+
+	public void setUserId(int userId) {
+		this.userId = userId;
+	}
+
+	public String getTupleType() {
+		return tupleType;
+	}
+
+	public void setTupleType(String tupleType) {
+		this.tupleType = tupleType;
+	}
+
+	public String getSensorName() {
+		return sensorName;
+	}
+
+	public void setSensorName(String sensorName) {
+		this.sensorName = sensorName;
+	}
+
+	public String getAppId() {
+		return appId;
+	}
+
+	public void setAppId(String appId) {
+		this.appId = appId;
+	}
+
+	public Distribution getTransmitDistribution() {
+		return transmitDistribution;
+	}
+
+	public void setTransmitDistribution(Distribution transmitDistribution) {
+		this.transmitDistribution = transmitDistribution;
+	}
+
+	public int getControllerId() {
+		return controllerId;
+	}
+
+	public void setControllerId(int controllerId) {
+		this.controllerId = controllerId;
+	}
+
+	public Application getApp() {
+		return app;
+	}
+
+	public void setApp(Application app) {
+		this.app = app;
+	}
+}
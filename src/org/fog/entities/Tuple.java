@@ -1,10 +1,12 @@
 package org.fog.entities;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
 import org.cloudbus.cloudsim.Cloudlet;
 import org.cloudbus.cloudsim.UtilizationModel;
+import org.cloudbus.cloudsim.UtilizationModelFull;
 
 public class Tuple extends Cloudlet{
 
@@ -12,6 +14,11 @@ public class Tuple extends Cloudlet{
 	public static final int DOWN = 2;
 	public static final int ACTUATOR = 3;
 	
+	/**
+	 * Utilization model of the tuples created by sensors and modules. It is stateless, so all the tuples share it.
+	 */
+	public static final UtilizationModel UTILIZATION_MODEL_FULL = new UtilizationModelFull();
+	
 	private String appId;
 	
 	private String tupleType;
@@ -25,7 +32,8 @@ public class Tuple extends Cloudlet{
 	/**
 	 * Map to keep track of which module instances has a tuple traversed.
 	 * 
-	 * Map from moduleName to vmId of a module instance
+	 * Map from moduleName to vmId of a module instance. The map is shared by the tuples resulting from
+	 * one another and is never modified once assigned.
 	 */
 	private Map<String, Integer> moduleCopyMap;
 	
@@ -40,7 +48,7 @@ public class Tuple extends Cloudlet{
 		setAppId(appId);
 		setDirection(direction);
 		setSourceDeviceId(-1);
-		setModuleCopyMap(new HashMap<String, Integer>());
+		setModuleCopyMap(Collections.<String, Integer>emptyMap());
 	}
 
 	public int getActualTupleId() {
@@ -115,6 +123,22 @@ public class Tuple extends Cloudlet{
 		this.moduleCopyMap = moduleCopyMap;
 	}
 
+	/**
+	 * Gets the module copy map of the tuples emitted by a module instance after executing this tuple, which is
+	 * the map of this tuple when it already records the instance.
+	 * @param moduleName name of the module executing the tuple
+	 * @param vmId id of the module instance
+	 * @return an unmodifiable map
+	 */
+	public Map<String, Integer> getModuleCopyMapAfter(String moduleName, int vmId) {
+		Integer copyId = moduleCopyMap.get(moduleName);
+		if(copyId != null && copyId == vmId)
+			return moduleCopyMap;
+		Map<String, Integer> copyMap = new HashMap<String, Integer>(moduleCopyMap);
+		copyMap.put(moduleName, vmId);
+		return Collections.unmodifiableMap(copyMap);
+	}
+
 	public int getSourceModuleId() {
 		return sourceModuleId;
 	}
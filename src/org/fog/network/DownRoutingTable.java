@@ -0,0 +1,163 @@
+package org.fog.network;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Next hops from a FogDevice towards the devices, module instances and actuators of its subtree. The
+ * table is filled in by the children as they connect to the device and as modules are placed and
+ * actuators join below it, so that tuples going down are only sent into the subtrees that can use them.
+ * The routes to a module instance are removed when it is released or destroyed below the device.
+ *
+ * Lists of children are kept in the order of the children of the device, which is the order in which
+ * tuples used to be broadcast.
+ */
+public class DownRoutingTable {
+
+	/**
+	 * Children leading to each device or actuator id
+	 */
+	private final Map<Integer, Integer> entityRoutes;
+	/**
+	 * Children leading to each module instance (VM id)
+	 */
+	private final Map<Integer, Integer> vmRoutes;
+	/**
+	 * Children leading to a device hosting each module, by application id and module name
+	 */
+	private final Map<String, Map<String, List<Integer>>> moduleRoutes;
+	/**
+	 * Children leading to a device with an actuator of each type
+	 */
+	private final Map<String, List<Integer>> actuatorRoutes;
+
+	public DownRoutingTable(){
+		entityRoutes = new HashMap<Integer, Integer>();
+		vmRoutes = new HashMap<Integer, Integer>();
+		moduleRoutes = new HashMap<String, Map<String, List<Integer>>>();
+		actuatorRoutes = new HashMap<String, List<Integer>>();
+	}
+
+	/**
+	 * Adds a child to a list of children, keeping the order of the children of the device.
+	 * @return true if the child was not in the list
+	 */
+	private static boolean addChild(List<Integer> children, int childId, List<Integer> childrenOrder){
+		if(children.contains(childId))
+			return false;
+		int position = childrenOrder.indexOf(childId);
+		int i = 0;
+		while(i < children.size() && childrenOrder.indexOf(children.get(i)) < position)
+			i++;
+		children.add(i, childId);
+		return true;
+	}
+
+	public void addEntityRoute(int entityId, int childId){
+		entityRoutes.put(entityId, childId);
+	}
+
+	public void addVmRoute(int vmId, int childId){
+		vmRoutes.put(vmId, childId);
+	}
+
+	public void addModuleRoute(String appId, String moduleName, int childId, List<Integer> childrenOrder){
+		Map<String, List<Integer>> routes = moduleRoutes.get(appId);
+		if(routes == null){
+			routes = new HashMap<String, List<Integer>>();
+			moduleRoutes.put(appId, routes);
+		}
+		List<Integer> children = routes.get(moduleName);
+		if(children == null){
+			children = new ArrayList<Integer>();
+			routes.put(moduleName, children);
+		}
+		addChild(children, childId, childrenOrder);
+	}
+
+	public void addActuatorRoute(String actuatorType, int childId, List<Integer> childrenOrder){
+		List<Integer> children = actuatorRoutes.get(actuatorType);
+		if(children == null){
+			children = new ArrayList<Integer>();
+			actuatorRoutes.put(actuatorType, children);
+		}
+		addChild(children, childId, childrenOrder);
+	}
+
+	/**
+	 * Removes the route to a module instance if it goes through the given child, as the instance may already
+	 * have been launched below another child.
+	 * @return true if the route was removed
+	 */
+	public boolean removeVmRoute(int vmId, int childId){
+		Integer current = vmRoutes.get(vmId);
+		if(current == null || current != childId)
+			return false;
+		vmRoutes.remove(vmId);
+		return true;
+	}
+
+	/**
+	 * Removes a child from the children leading to a device hosting a module.
+	 * @return true if no child leads to the module any more
+	 */
+	public boolean removeModuleRoute(String appId, String moduleName, int childId){
+		Map<String, List<Integer>> routes = moduleRoutes.get(appId);
+		List<Integer> children = routes == null ? null : routes.get(moduleName);
+		if(children == null)
+			return true;
+		children.remove(Integer.valueOf(childId));
+		if(!children.isEmpty())
+			return false;
+		routes.remove(moduleName);
+		if(routes.isEmpty())
+			moduleRoutes.remove(appId);
+		return true;
+	}
+
+	/**
+	 * @return the child leading to the device or actuator, or -1 if it is not below this device
+	 */
+	public int getChildWithEntity(int entityId){
+		Integer childId = entityRoutes.get(entityId);
+		return childId == null ? -1 : childId;
+	}
+
+	/**
+	 * @return the child leading to the module instance, or -1 if it is not below this device
+	 */
+	public int getChildWithVm(int vmId){
+		Integer childId = vmRoutes.get(vmId);
+		return childId == null ? -1 : childId;
+	}
+
+	public List<Integer> getChildrenWithModule(String appId, String moduleName){
+		Map<String, List<Integer>> routes = moduleRoutes.get(appId);
+		List<Integer> children = routes == null ? null : routes.get(moduleName);
+		return children == null ? Collections.<Integer>emptyList() : children;
+	}
+
+	public List<Integer> getChildrenWithActuator(String actuatorType){
+		List<Integer> children = actuatorRoutes.get(actuatorType);
+		return children == null ? Collections.<Integer>emptyList() : children;
+	}
+
+	public Map<Integer, Integer> getEntityRoutes() {
+		return entityRoutes;
+	}
+
+	public Map<Integer, Integer> getVmRoutes() {
+		return vmRoutes;
+	}
+
+	public Map<String, Map<String, List<Integer>>> getModuleRoutes() {
+		return moduleRoutes;
+	}
+
+	public Map<String, List<Integer>> getActuatorRoutes() {
+		return actuatorRoutes;
+	}
+}
@@ -0,0 +1,36 @@
+package org.fog.network;
+
+/**
+ * Point to point link transmitting tuples one after the other at a fixed bandwidth. As the link is
+ * FIFO, the time at which a tuple is fully transmitted is known when it is sent, so the link only has to
+ * remember when it becomes free.
+ */
+public class FifoLink {
+
+	private final double bandwidth;
+	private double busyUntil;
+
+	public FifoLink(double bandwidth){
+		this.bandwidth = bandwidth;
+	}
+
+	/**
+	 * Queues a transmission behind the ones in progress.
+	 * @param now current simulation time
+	 * @param size size of the tuple
+	 * @return the delay after which the tuple is fully transmitted, not including the latency of the link
+	 */
+	public double transmit(double now, double size){
+		double start = Math.max(now, busyUntil);
+		busyUntil = start + size/bandwidth;
+		return busyUntil - now;
+	}
+
+	public boolean isBusy(double now){
+		return busyUntil > now;
+	}
+
+	public double getBandwidth() {
+		return bandwidth;
+	}
+}
@@ -0,0 +1,22 @@
+package org.fog.network;
+
+/**
+ * How a FogDevice transmits tuples to its parent and to its children.
+ */
+public enum LinkModel {
+	/**
+	 * One FIFO queue per direction: all the children of a device share a single south link, and each
+	 * transmission is driven by a queue update event. This is the original model of iFogSim.
+	 */
+	SHARED,
+	/**
+	 * One FIFO link per (device, child) pair, each with the whole downlink bandwidth. Transmission times
+	 * are computed when the tuple is sent, so back-to-back tuples need no queue update events.
+	 */
+	PER_CHILD,
+	/**
+	 * One FIFO queue per (device, child) pair, the transfers at the head of the queues sharing the
+	 * downlink bandwidth equally, as on a single interface.
+	 */
+	PROCESSOR_SHARING
+}
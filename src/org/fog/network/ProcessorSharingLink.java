@@ -0,0 +1,163 @@
+package org.fog.network;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.math3.util.Pair;
+import org.fog.entities.Tuple;
+
+/**
+ * Interface shared by the links to several destinations. Tuples to the same destination are sent one
+ * after the other, while the transfers to different destinations progress concurrently, each at an
+ * equal share of the bandwidth.
+ *
+ * The link does not schedule events itself: its owner schedules the completions it hands out and
+ * polls the completed transfers when they fire. Adding a transfer delays the transfers in progress, so
+ * the pending completion may fire early, in which case nothing completes and the next one is scheduled.
+ * The added transfer may also complete before the pending completion: the owner must then schedule the
+ * new completion handed out by the link, which supersedes the pending one.
+ */
+public class ProcessorSharingLink {
+
+	private static class Flow {
+		private final LinkedList<Tuple> queue = new LinkedList<Tuple>();
+		/**
+		 * Remaining size of the tuple at the head of the queue
+		 */
+		private double remaining;
+	}
+
+	/**
+	 * Completion of a transfer, to be scheduled by the owner of the link after its delay
+	 */
+	public final class Completion {
+		private final double time;
+		private final double delay;
+
+		private Completion(double time, double delay){
+			this.time = time;
+			this.delay = delay;
+		}
+
+		public ProcessorSharingLink getLink() {
+			return ProcessorSharingLink.this;
+		}
+
+		public double getDelay() {
+			return delay;
+		}
+	}
+
+	private final double bandwidth;
+	private final Map<Integer, Flow> flows;
+	private int activeFlows;
+	private double lastUpdateTime;
+	/**
+	 * Last completion handed out that has not fired yet, the earlier ones being superseded
+	 */
+	private Completion pendingCompletion;
+
+	public ProcessorSharingLink(double bandwidth){
+		this.bandwidth = bandwidth;
+		flows = new LinkedHashMap<Integer, Flow>();
+	}
+
+	private void advance(double now){
+		if(activeFlows > 0){
+			double transferred = (now - lastUpdateTime)*bandwidth/activeFlows;
+			for(Flow flow : flows.values()){
+				if(!flow.queue.isEmpty())
+					flow.remaining -= transferred;
+			}
+		}
+		lastUpdateTime = now;
+	}
+
+	/**
+	 * Queues a tuple behind the other tuples to the same destination.
+	 */
+	public void add(int destination, Tuple tuple, double now){
+		advance(now);
+		Flow flow = flows.get(destination);
+		if(flow == null){
+			flow = new Flow();
+			flows.put(destination, flow);
+		}
+		flow.queue.add(tuple);
+		if(flow.queue.size() == 1){
+			flow.remaining = tuple.getCloudletFileSize();
+			activeFlows++;
+		}
+	}
+
+	/**
+	 * Gets the delay after which the first of the transfers in progress completes.
+	 * @return the delay, or -1 if the link is idle
+	 */
+	public double getNextCompletionDelay(double now){
+		if(activeFlows == 0)
+			return -1;
+		double minRemaining = Double.MAX_VALUE;
+		for(Flow flow : flows.values()){
+			if(!flow.queue.isEmpty())
+				minRemaining = Math.min(minRemaining, flow.remaining);
+		}
+		double rate = bandwidth/activeFlows;
+		return Math.max(0, minRemaining/rate - (now - lastUpdateTime));
+	}
+
+	/**
+	 * Removes the transfers that complete within the given tolerance, starting the next transfer to
+	 * their destinations.
+	 * @return the destinations and the tuples of the completed transfers
+	 */
+	public List<Pair<Integer, Tuple>> pollCompleted(double now, double tolerance){
+		advance(now);
+		List<Pair<Integer, Tuple>> completed = new ArrayList<Pair<Integer, Tuple>>();
+		if(activeFlows == 0)
+			return completed;
+		double threshold = tolerance*bandwidth/activeFlows;
+		for(Map.Entry<Integer, Flow> entry : flows.entrySet()){
+			Flow flow = entry.getValue();
+			if(flow.queue.isEmpty() || flow.remaining > threshold)
+				continue;
+			completed.add(new Pair<Integer, Tuple>(entry.getKey(), flow.queue.poll()));
+			if(flow.queue.isEmpty())
+				activeFlows--;
+			else
+				flow.remaining = flow.queue.peek().getCloudletFileSize();
+		}
+		return completed;
+	}
+
+	/**
+	 * Hands out a completion for the first of the transfers in progress, unless a completion that fires
+	 * no later is pending. The completion handed out supersedes the pending one.
+	 * @return the completion to schedule, or null if there is none to schedule
+	 */
+	public Completion nextCompletion(double now){
+		double delay = getNextCompletionDelay(now);
+		if(delay < 0 || pendingCompletion != null && now + delay >= pendingCompletion.time)
+			return null;
+		pendingCompletion = new Completion(now + delay, delay);
+		return pendingCompletion;
+	}
+
+	/**
+	 * Records that a completion fired.
+	 * @return true if the completion is the pending one, false if it was superseded and must be ignored
+	 */
+	public boolean completionFired(Completion completion){
+		if(completion != pendingCompletion)
+			return false;
+		pendingCompletion = null;
+		return true;
+	}
+
+	public double getBandwidth() {
+		return bandwidth;
+	}
+}
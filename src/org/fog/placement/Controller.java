@@ -1,13 +1,16 @@
 package org.fog.placement;
 
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.commons.math3.util.Pair;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.SimEntity;
 import org.cloudbus.cloudsim.core.SimEvent;
+import org.cloudbus.cloudsim.core.SimulationReport;
 import org.fog.application.AppEdge;
 import org.fog.application.AppLoop;
 import org.fog.application.AppModule;
@@ -15,9 +18,11 @@ import org.fog.application.Application;
 import org.fog.entities.Actuator;
 import org.fog.entities.FogDevice;
 import org.fog.entities.Sensor;
+import org.fog.entities.SensorGroup;
 import org.fog.utils.Config;
 import org.fog.utils.FogEvents;
 import org.fog.utils.FogUtils;
+import org.fog.utils.LatencyHistogram;
 import org.fog.utils.NetworkUsageMonitor;
 import org.fog.utils.TimeKeeper;
 
@@ -28,14 +33,27 @@ public class Controller extends SimEntity{
 	private List<FogDevice> fogDevices;
 	private List<Sensor> sensors;
 	private List<Actuator> actuators;
+	private List<SensorGroup> sensorGroups = new ArrayList<SensorGroup>();
 	
 	private Map<String, Application> applications;
 	private Map<String, Integer> appLaunchDelays;
 
 	private Map<String, ModulePlacement> appModulePlacementPolicy;
 	
+	/**
+	 * Module migrations requested before the simulation started, with their delays
+	 */
+	private List<Pair<Double, Pair<AppModule, Integer>>> pendingMigrations =
+			new ArrayList<Pair<Double, Pair<AppModule, Integer>>>();
+	
+	/**
+	 * The Config settings when the simulation started
+	 */
+	private List<Object> configValues;
+	
 	public Controller(String name, List<FogDevice> fogDevices, List<Sensor> sensors, List<Actuator> actuators) {
 		super(name);
+		setDirectDispatch(true);
 		this.applications = new HashMap<String, Application>();
 		setAppLaunchDelays(new HashMap<String, Integer>());
 		setAppModulePlacementPolicy(new HashMap<String, ModulePlacement>());
@@ -64,24 +82,31 @@ public class Controller extends SimEntity{
 			double latency = fogDevice.getUplinkLatency();
 			parent.getChildToLatencyMap().put(fogDevice.getId(), latency);
 			parent.getChildrenIds().add(fogDevice.getId());
+			parent.learnRoutesFromChild(fogDevice);
 		}
 	}
 	
 	@Override
 	public void startEntity() {
+		configValues = Config.getValues();
 		for(String appId : applications.keySet()){
 			if(getAppLaunchDelays().get(appId)==0)
 				processAppSubmit(applications.get(appId));
 			else
 				send(getId(), getAppLaunchDelays().get(appId), FogEvents.APP_SUBMIT, applications.get(appId));
 		}
+		for(Pair<Double, Pair<AppModule, Integer>> migration : pendingMigrations)
+			send(getId(), migration.getFirst(), FogEvents.MIGRATE_MODULE, migration.getSecond());
+		pendingMigrations.clear();
  
 		send(getId(), Config.RESOURCE_MANAGE_INTERVAL, FogEvents.CONTROLLER_RESOURCE_MANAGE);
 		
 		send(getId(), Config.MAX_SIMULATION_TIME, FogEvents.STOP_SIMULATION);
 		
-		for(FogDevice dev : getFogDevices())
-			sendNow(dev.getId(), FogEvents.RESOURCE_MGMT);
+		if(Config.PERIODIC_RESOURCE_MGMT){
+			for(FogDevice dev : getFogDevices())
+				sendNow(dev.getId(), FogEvents.RESOURCE_MGMT);
+		}
 
 	}
 
@@ -97,13 +122,23 @@ public class Controller extends SimEntity{
 		case FogEvents.CONTROLLER_RESOURCE_MANAGE:
 			manageResources();
 			break;
+		case FogEvents.MIGRATE_MODULE:
+			processModuleMigration(ev);
+			break;
 		case FogEvents.STOP_SIMULATION:
 			CloudSim.stopSimulation();
+			if(!Config.getValues().equals(configValues))
+				throw new IllegalStateException("The Config settings changed while the simulation was running");
+			if(!Config.PERIODIC_RESOURCE_MGMT){
+				for(FogDevice dev : getFogDevices())
+					dev.flushEnergyConsumption();
+			}
 			printTimeDetails();
 			printPowerDetails();
 			printCostDetails();
 			printNetworkUsageDetails();
-			System.exit(0);
+			reportResults(CloudSim.getSimulationReport());
+			CloudSim.abruptallyTerminate();
 			break;
 			
 		}
@@ -113,6 +148,39 @@ public class Controller extends SimEntity{
 		System.out.println("Total network usage = "+NetworkUsageMonitor.getNetworkUsage()/Config.MAX_SIMULATION_TIME);		
 	}
 
+	private void reportResults(SimulationReport report){
+		TimeKeeper timeKeeper = TimeKeeper.getInstance();
+		for(Integer loopId : timeKeeper.getLoopIds()){
+			String loop = "loop."+getStringForLoopId(loopId);
+			report.put(loop+".averageDelay", timeKeeper.getLoopIdToCurrentAverage().get(loopId));
+			report.put(loop+".count", timeKeeper.getLoopIdToCurrentNum().get(loopId));
+			reportPercentiles(report, loop, timeKeeper.getLoopIdToDelayHistogram().get(loopId));
+		}
+		for(String tupleType : timeKeeper.getTupleTypeToAverageCpuTime().keySet()){
+			report.put("tupleCpuTime."+tupleType, timeKeeper.getTupleTypeToAverageCpuTime().get(tupleType));
+			reportPercentiles(report, "tupleCpuTime."+tupleType, timeKeeper.getTupleTypeToCpuTimeHistogram().get(tupleType));
+		}
+		long mipsReallocationsAvoided = 0;
+		for(FogDevice fogDevice : getFogDevices()){
+			report.put("energy."+fogDevice.getName(), fogDevice.getEnergyConsumption());
+			mipsReallocationsAvoided += fogDevice.getMipsReallocationsAvoided();
+		}
+		report.put("mipsReallocationsAvoided", mipsReallocationsAvoided);
+		for(String appId : getAppModulePlacementPolicy().keySet())
+			report.put("placementTime."+appId, getAppModulePlacementPolicy().get(appId).getPlacementTime());
+		report.put("cost", getCloud().getTotalCost());
+		report.put("networkUsage", NetworkUsageMonitor.getNetworkUsage()/Config.MAX_SIMULATION_TIME);
+	}
+
+	private void reportPercentiles(SimulationReport report, String name, LatencyHistogram histogram){
+		if(histogram == null)
+			return;
+		report.put(name+".p50", histogram.getPercentile(50));
+		report.put(name+".p95", histogram.getPercentile(95));
+		report.put(name+".p99", histogram.getPercentile(99));
+		report.put(name+".max", histogram.getMax());
+	}
+
 	private FogDevice getCloud(){
 		for(FogDevice dev : getFogDevices())
 			if(dev.getName().equals("cloud"))
@@ -148,17 +216,7 @@ public class Controller extends SimEntity{
 		System.out.println("=========================================");
 		System.out.println("APPLICATION LOOP DELAYS");
 		System.out.println("=========================================");
-		for(Integer loopId : TimeKeeper.getInstance().getLoopIdToTupleIds().keySet()){
-			/*double average = 0, count = 0;
-			for(int tupleId : TimeKeeper.getInstance().getLoopIdToTupleIds().get(loopId)){
-				Double startTime = 	TimeKeeper.getInstance().getEmitTimes().get(tupleId);
-				Double endTime = 	TimeKeeper.getInstance().getEndTimes().get(tupleId);
-				if(startTime == null || endTime == null)
-					break;
-				average += endTime-startTime;
-				count += 1;
-			}
-			System.out.println(getStringForLoopId(loopId) + " ---> "+(average/count));*/
+		for(Integer loopId : TimeKeeper.getInstance().getLoopIds()){
 			System.out.println(getStringForLoopId(loopId) + " ---> "+TimeKeeper.getInstance().getLoopIdToCurrentAverage().get(loopId));
 		}
 		System.out.println("=========================================");
@@ -184,7 +242,7 @@ public class Controller extends SimEntity{
 	}
 	
 	public void submitApplication(Application application, int delay, ModulePlacement modulePlacement){
-		FogUtils.appIdToGeoCoverageMap.put(application.getAppId(), application.getGeoCoverage());
+		FogUtils.getAppIdToGeoCoverageMap().put(application.getAppId(), application.getGeoCoverage());
 		getApplications().put(application.getAppId(), application);
 		getAppLaunchDelays().put(application.getAppId(), delay);
 		getAppModulePlacementPolicy().put(application.getAppId(), modulePlacement);
@@ -192,6 +250,9 @@ public class Controller extends SimEntity{
 		for(Sensor sensor : sensors){
 			sensor.setApp(getApplications().get(sensor.getAppId()));
 		}
+		for(SensorGroup sensorGroup : sensorGroups){
+			sensorGroup.setApp(getApplications().get(sensorGroup.getAppId()));
+		}
 		for(Actuator ac : actuators){
 			ac.setApp(getApplications().get(ac.getAppId()));
 		}
@@ -211,6 +272,37 @@ public class Controller extends SimEntity{
 		submitApplication(application, 0, modulePlacement);
 	}
 	
+	/**
+	 * Moves a module instance to another device after a delay. The device hosting the instance releases it,
+	 * which removes the routes to it, and the destination launches it.
+	 * @param module the module instance
+	 * @param destinationDeviceId the device to move it to
+	 * @param delay the delay from now
+	 */
+	public void migrateModule(AppModule module, int destinationDeviceId, double delay){
+		Pair<AppModule, Integer> migration = new Pair<AppModule, Integer>(module, destinationDeviceId);
+		if(CloudSim.running())
+			send(getId(), delay, FogEvents.MIGRATE_MODULE, migration);
+		else
+			pendingMigrations.add(new Pair<Double, Pair<AppModule, Integer>>(delay, migration));
+	}
+	
+	private void processModuleMigration(SimEvent ev){
+		@SuppressWarnings("unchecked")
+		Pair<AppModule, Integer> migration = (Pair<AppModule, Integer>)ev.getData();
+		AppModule module = migration.getFirst();
+		for(FogDevice fogDevice : getFogDevices()){
+			if(fogDevice.getHost() == module.getHost()){
+				sendNow(fogDevice.getId(), FogEvents.RELEASE_OPERATOR, module);
+				break;
+			}
+		}
+		// launched once the source has released it, whatever the order of the devices
+		send(migration.getSecond(), CloudSim.getMinTimeBetweenEvents(), FogEvents.APP_SUBMIT,
+				getApplications().get(module.getAppId()));
+		send(migration.getSecond(), CloudSim.getMinTimeBetweenEvents(), FogEvents.LAUNCH_MODULE, module);
+	}
+	
 	
 	private void processAppSubmit(SimEvent ev){
 		Application app = (Application) ev.getData();
@@ -219,7 +311,7 @@ public class Controller extends SimEntity{
 	
 	private void processAppSubmit(Application application){
 		System.out.println(CloudSim.clock()+" Submitted application "+ application.getAppId());
-		FogUtils.appIdToGeoCoverageMap.put(application.getAppId(), application.getGeoCoverage());
+		FogUtils.getAppIdToGeoCoverageMap().put(application.getAppId(), application.getGeoCoverage());
 		getApplications().put(application.getAppId(), application);
 		
 		ModulePlacement modulePlacement = getAppModulePlacementPolicy().get(application.getAppId());
@@ -270,6 +362,16 @@ public class Controller extends SimEntity{
 		this.sensors = sensors;
 	}
 
+	public List<SensorGroup> getSensorGroups() {
+		return sensorGroups;
+	}
+
+	public void setSensorGroups(List<SensorGroup> sensorGroups) {
+		for(SensorGroup sensorGroup : sensorGroups)
+			sensorGroup.setControllerId(getId());
+		this.sensorGroups = sensorGroups;
+	}
+
 	public List<Actuator> getActuators() {
 		return actuators;
 	}
@@ -21,9 +21,22 @@ public abstract class ModulePlacement {
 	private Map<String, List<Integer>> moduleToDeviceMap;
 	private Map<Integer, List<AppModule>> deviceToModuleMap;
 	private Map<Integer, Map<String, Integer>> moduleInstanceCountMap;
+	/**
+	 * Wall clock time taken to map the modules, in milliseconds
+	 */
+	private double placementTime;
 	
 	protected abstract void mapModules();
 	
+	/**
+	 * Maps the modules, recording the time the placement takes.
+	 */
+	protected void placeModules(){
+		long start = System.nanoTime();
+		mapModules();
+		setPlacementTime((System.nanoTime() - start)/1e6);
+	}
+	
 	protected boolean canBeCreated(FogDevice fogDevice, AppModule module){
 		return fogDevice.getVmAllocationPolicy().allocateHostForVm(module);
 	}
@@ -121,4 +134,12 @@ public abstract class ModulePlacement {
 		this.moduleInstanceCountMap = moduleInstanceCountMap;
 	}
 
+	public double getPlacementTime() {
+		return placementTime;
+	}
+
+	protected void setPlacementTime(double placementTime) {
+		this.placementTime = placementTime;
+	}
+
 }
@@ -1,9 +1,12 @@
 package org.fog.placement;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.math3.util.Pair;
 import org.cloudbus.cloudsim.core.CloudSim;
@@ -14,6 +17,7 @@ import org.fog.application.selectivity.SelectivityModel;
 import org.fog.entities.Actuator;
 import org.fog.entities.FogDevice;
 import org.fog.entities.Sensor;
+import org.fog.entities.SensorGroup;
 import org.fog.entities.Tuple;
 import org.fog.utils.Logger;
 
@@ -21,6 +25,7 @@ public class ModulePlacementEdgewards extends ModulePlacement{
 	
 	protected ModuleMapping moduleMapping;
 	protected List<Sensor> sensors;
+	protected List<SensorGroup> sensorGroups;
 	protected List<Actuator> actuators;
 	protected Map<Integer, Double> currentCpuLoad;
 	
@@ -31,14 +36,36 @@ public class ModulePlacementEdgewards extends ModulePlacement{
 	protected Map<Integer, Map<String, Double>> currentModuleLoadMap;
 	protected Map<Integer, Map<String, Integer>> currentModuleInstanceNum;
 	
+	/**
+	 * Indexes of the application and of the endpoints built before placing the modules, so that the placement
+	 * along each leaf-to-root path does not scan all the edges, sensors and actuators
+	 */
+	private Map<String, List<String>> modulePrerequisites;
+	private Map<String, List<AppEdge>> incomingEdges;
+	private Map<String, List<AppEdge>> outgoingEdges;
+	private Map<Integer, Map<String, Integer>> sensorsByGateway;
+	private Map<Integer, Map<String, Integer>> actuatorsByGateway;
+	private Map<String, Double> sensorRates;
+	/**
+	 * Edge rates reached by the rate propagation, by the edge rates it started from. Paths with the same
+	 * sensors share the same rates, so the propagation only runs once for all of them.
+	 */
+	private Map<Map<AppEdge, Double>, Map<AppEdge, Double>> propagatedRates;
+	
 	public ModulePlacementEdgewards(List<FogDevice> fogDevices, List<Sensor> sensors, List<Actuator> actuators, 
 			Application application, ModuleMapping moduleMapping){
+		this(fogDevices, sensors, new ArrayList<SensorGroup>(), actuators, application, moduleMapping);
+	}
+	
+	public ModulePlacementEdgewards(List<FogDevice> fogDevices, List<Sensor> sensors, List<SensorGroup> sensorGroups, 
+			List<Actuator> actuators, Application application, ModuleMapping moduleMapping){
 		this.setFogDevices(fogDevices);
 		this.setApplication(application);
 		this.setModuleMapping(moduleMapping);
 		this.setModuleToDeviceMap(new HashMap<String, List<Integer>>());
 		this.setDeviceToModuleMap(new HashMap<Integer, List<AppModule>>());
 		setSensors(sensors);
+		setSensorGroups(sensorGroups);
 		setActuators(actuators);
 		setCurrentCpuLoad(new HashMap<Integer, Double>());
 		setCurrentModuleMap(new HashMap<Integer, List<String>>());
@@ -51,7 +78,7 @@ public class ModulePlacementEdgewards extends ModulePlacement{
 			getCurrentModuleInstanceNum().put(dev.getId(), new HashMap<String, Integer>());
 		}
 		
-		mapModules();
+		placeModules();
 		setModuleInstanceCountMap(getCurrentModuleInstanceNum());
 	}
 	
@@ -67,11 +94,15 @@ public class ModulePlacementEdgewards extends ModulePlacement{
 			}
 		}
 		
-		List<List<Integer>> leafToRootPaths = getLeafToRootPaths();
+		indexApplication();
+		indexEndpoints();
 		
-		for(List<Integer> path : leafToRootPaths){
-			placeModulesInPath(path);
+		FogDevice cloud = null;
+		for(FogDevice device : getFogDevices()){
+			if(device.getName().equals("cloud"))
+				cloud = device;
 		}
+		placeModulesInPaths(cloud.getId(), new ArrayList<Integer>());
 		
 		for(int deviceId : getCurrentModuleMap().keySet()){
 			for(String module : getCurrentModuleMap().get(deviceId)){
@@ -80,51 +111,133 @@ public class ModulePlacementEdgewards extends ModulePlacement{
 		}
 	}
 	
+	/**
+	 * Places the modules along the leaf-to-root paths below a device, in the order of {@link #getLeafToRootPaths()},
+	 * without materialising all the paths.
+	 * @param fogDeviceId the device
+	 * @param pathToRoot path from the parent of the device to the root, leaf first
+	 */
+	private void placeModulesInPaths(int fogDeviceId, List<Integer> pathToRoot){
+		FogDevice device = getFogDeviceById(fogDeviceId);
+		List<Integer> path = new ArrayList<Integer>(pathToRoot.size()+1);
+		path.add(fogDeviceId);
+		path.addAll(pathToRoot);
+		if(device.getChildrenIds().size() == 0){
+			placeModulesInPath(path);
+			return;
+		}
+		for(int childId : device.getChildrenIds())
+			placeModulesInPaths(childId, path);
+	}
+	
+	/**
+	 * Indexes the modules each module has to wait for, and the edges entering and leaving each module.
+	 */
+	private void indexApplication(){
+		Application app = getApplication();
+		modulePrerequisites = new HashMap<String, List<String>>();
+		incomingEdges = new HashMap<String, List<AppEdge>>();
+		outgoingEdges = new HashMap<String, List<AppEdge>>();
+		for(AppModule module : app.getModules())
+			modulePrerequisites.put(module.getName(), new ArrayList<String>());
+		for(AppEdge edge : app.getEdges()){
+			if(!incomingEdges.containsKey(edge.getDestination()))
+				incomingEdges.put(edge.getDestination(), new ArrayList<AppEdge>());
+			incomingEdges.get(edge.getDestination()).add(edge);
+			if(!outgoingEdges.containsKey(edge.getSource()))
+				outgoingEdges.put(edge.getSource(), new ArrayList<AppEdge>());
+			outgoingEdges.get(edge.getSource()).add(edge);
+			// a module is placed after the destinations of its DOWN edges and the sources of its UP edges
+			if(edge.getDirection()==Tuple.DOWN && modulePrerequisites.containsKey(edge.getSource()))
+				modulePrerequisites.get(edge.getSource()).add(edge.getDestination());
+			if(edge.getDirection()==Tuple.UP && modulePrerequisites.containsKey(edge.getDestination()))
+				modulePrerequisites.get(edge.getDestination()).add(edge.getSource());
+		}
+		sensorRates = new HashMap<String, Double>();
+		propagatedRates = new HashMap<Map<AppEdge, Double>, Map<AppEdge, Double>>();
+	}
+	
+	private List<AppEdge> getIncomingEdges(String moduleName){
+		List<AppEdge> edges = incomingEdges.get(moduleName);
+		return edges == null ? Collections.<AppEdge>emptyList() : edges;
+	}
+	
+	private List<AppEdge> getOutgoingEdges(String moduleName){
+		List<AppEdge> edges = outgoingEdges.get(moduleName);
+		return edges == null ? Collections.<AppEdge>emptyList() : edges;
+	}
+	
 	/**
 	 * Get the list of modules that are ready to be placed 
 	 * @param placedModules Modules that have already been placed in current path
 	 * @return list of modules ready to be placed
 	 */
-	private List<String> getModulesToPlace(List<String> placedModules){
-		Application app = getApplication();
-		List<String> modulesToPlace_1 = new ArrayList<String>();
+	private List<String> getModulesToPlace(Set<String> placedModules){
 		List<String> modulesToPlace = new ArrayList<String>();
-		for(AppModule module : app.getModules()){
-			if(!placedModules.contains(module.getName()))
-				modulesToPlace_1.add(module.getName());
-		}
-		/*
-		 * Filtering based on whether modules (to be placed) lower in physical topology are already placed
-		 */
-		for(String moduleName : modulesToPlace_1){
-			boolean toBePlaced = true;
-			
-			for(AppEdge edge : app.getEdges()){
-				//CHECK IF OUTGOING DOWN EDGES ARE PLACED
-				if(edge.getSource().equals(moduleName) && edge.getDirection()==Tuple.DOWN && !placedModules.contains(edge.getDestination()))
-					toBePlaced = false;
-				//CHECK IF INCOMING UP EDGES ARE PLACED
-				if(edge.getDestination().equals(moduleName) && edge.getDirection()==Tuple.UP && !placedModules.contains(edge.getSource()))
-					toBePlaced = false;
-			}
-			if(toBePlaced)
-				modulesToPlace.add(moduleName);
+		for(AppModule module : getApplication().getModules()){
+			if(placedModules.contains(module.getName()))
+				continue;
+			/*
+			 * Filtering based on whether modules (to be placed) lower in physical topology are already placed
+			 */
+			if(placedModules.containsAll(modulePrerequisites.get(module.getName())))
+				modulesToPlace.add(module.getName());
 		}
-
 		return modulesToPlace;
 	}
 	
+	private double getCachedRateOfSensor(String sensorType){
+		Double rate = sensorRates.get(sensorType);
+		if(rate == null){
+			rate = getRateOfSensor(sensorType);
+			sensorRates.put(sensorType, rate);
+		}
+		return rate;
+	}
+	
 	protected double getRateOfSensor(String sensorType){
 		for(Sensor sensor : getSensors()){
 			if(sensor.getTupleType().equals(sensorType))
 				return 1/sensor.getTransmitDistribution().getMeanInterTransmitTime();
 		}
+		for(SensorGroup sensorGroup : getSensorGroups()){
+			if(sensorGroup.getTupleType().equals(sensorType))
+				return 1/sensorGroup.getTransmitDistribution().getMeanInterTransmitTime();
+		}
 		return 0;
 	}
 	
+	/**
+	 * Updates the AppEdge rates for the entire application based on knowledge so far
+	 * @param appEdgeToRate rates known so far, updated in place
+	 */
+	private void propagateRates(Map<AppEdge, Double> appEdgeToRate){
+		boolean changed = true;
+		while(changed){		//Loop runs as long as some new information is added
+			changed=false;
+			Map<AppEdge, Double> rateMap = new HashMap<AppEdge, Double>(appEdgeToRate);
+			for(AppEdge edge : rateMap.keySet()){
+				AppModule destModule = getApplication().getModuleByName(edge.getDestination());
+				if(destModule == null)continue;
+				Map<Pair<String, String>, SelectivityModel> map = destModule.getSelectivityMap();
+				for(Pair<String, String> pair : map.keySet()){
+					if(pair.getFirst().equals(edge.getTupleType())){
+						double outputRate = appEdgeToRate.get(edge)*map.get(pair).getMeanRate(); // getting mean rate from SelectivityModel
+						AppEdge outputEdge = getApplication().getEdgeMap().get(pair.getSecond());
+						if(!appEdgeToRate.containsKey(outputEdge) || appEdgeToRate.get(outputEdge)!=outputRate){
+							// if some new information is available
+							changed = true;
+						}
+						appEdgeToRate.put(outputEdge, outputRate);
+					}
+				}
+			}
+		}
+	}
+	
 	private void placeModulesInPath(List<Integer> path) {
 		if(path.size()==0)return;
-		List<String> placedModules = new ArrayList<String>();
+		Set<String> placedModules = new HashSet<String>();
 		Map<AppEdge, Double> appEdgeToRate = new HashMap<AppEdge, Double>();
 		
 		/**
@@ -147,36 +260,18 @@ public class ModulePlacementEdgewards extends ModulePlacement{
 			 * Setting the rates of application edges emanating from sensors
 			 */
 			for(String sensor : sensorsAssociated.keySet()){
-				for(AppEdge edge : getApplication().getEdges()){
-					if(edge.getSource().equals(sensor)){
-						appEdgeToRate.put(edge, sensorsAssociated.get(sensor)*getRateOfSensor(sensor));
-					}
+				for(AppEdge edge : getOutgoingEdges(sensor)){
+					appEdgeToRate.put(edge, sensorsAssociated.get(sensor)*getCachedRateOfSensor(sensor));
 				}
 			}
-						
-			/*
-			 * Updating the AppEdge rates for the entire application based on knowledge so far
-			 */
-			boolean changed = true;
-			while(changed){		//Loop runs as long as some new information is added
-				changed=false;
-				Map<AppEdge, Double> rateMap = new HashMap<AppEdge, Double>(appEdgeToRate);
-				for(AppEdge edge : rateMap.keySet()){
-					AppModule destModule = getApplication().getModuleByName(edge.getDestination());
-					if(destModule == null)continue;
-					Map<Pair<String, String>, SelectivityModel> map = destModule.getSelectivityMap();
-					for(Pair<String, String> pair : map.keySet()){
-						if(pair.getFirst().equals(edge.getTupleType())){
-							double outputRate = appEdgeToRate.get(edge)*map.get(pair).getMeanRate(); // getting mean rate from SelectivityModel
-							AppEdge outputEdge = getApplication().getEdgeMap().get(pair.getSecond());
-							if(!appEdgeToRate.containsKey(outputEdge) || appEdgeToRate.get(outputEdge)!=outputRate){
-								// if some new information is available
-								changed = true;
-							}
-							appEdgeToRate.put(outputEdge, outputRate);
-						}
-					}
-				}
+			
+			Map<AppEdge, Double> propagated = propagatedRates.get(appEdgeToRate);
+			if(propagated != null){
+				appEdgeToRate = new HashMap<AppEdge, Double>(propagated);
+			}else{
+				Map<AppEdge, Double> initialRates = new HashMap<AppEdge, Double>(appEdgeToRate);
+				propagateRates(appEdgeToRate);
+				propagatedRates.put(initialRates, new HashMap<AppEdge, Double>(appEdgeToRate));
 			}
 			
 			/*
@@ -196,11 +291,9 @@ public class ModulePlacementEdgewards extends ModulePlacement{
 						modulesToPlace = getModulesToPlace(placedModules);
 						
 						// NOW THE MODULE TO PLACE IS IN THE CURRENT DEVICE. CHECK IF THE NODE CAN SUSTAIN THE MODULE
-						for(AppEdge edge : getApplication().getEdges()){		// take all incoming edges
-							if(edge.getDestination().equals(moduleName)){
-								double rate = appEdgeToRate.get(edge);
-								totalCpuLoad += rate*edge.getTupleCpuLength();
-							}
+						for(AppEdge edge : getIncomingEdges(moduleName)){		// take all incoming edges
+							double rate = appEdgeToRate.get(edge);
+							totalCpuLoad += rate*edge.getTupleCpuLength();
 						}
 						if(totalCpuLoad + getCurrentCpuLoad().get(deviceId) > device.getHost().getTotalMips()){
 							Logger.debug("ModulePlacementEdgeward", "Need to shift module "+moduleName+" upstream from device " + device.getName());
@@ -218,11 +311,9 @@ public class ModulePlacementEdgewards extends ModulePlacement{
 					}
 				}else{
 					// FINDING OUT WHETHER PLACEMENT OF OPERATOR ON DEVICE IS POSSIBLE
-					for(AppEdge edge : getApplication().getEdges()){		// take all incoming edges
-						if(edge.getDestination().equals(moduleName)){
-							double rate = appEdgeToRate.get(edge);
-							totalCpuLoad += rate*edge.getTupleCpuLength();
-						}
+					for(AppEdge edge : getIncomingEdges(moduleName)){		// take all incoming edges
+						double rate = appEdgeToRate.get(edge);
+						totalCpuLoad += rate*edge.getTupleCpuLength();
 					}
 						
 					if(totalCpuLoad + getCurrentCpuLoad().get(deviceId) > device.getHost().getTotalMips()){
@@ -404,21 +495,41 @@ public class ModulePlacementEdgewards extends ModulePlacement{
 		return -1;
 	}
 
+	/**
+	 * Counts the sensors and the actuators of each type attached to each fog device.
+	 */
+	private void indexEndpoints() {
+		sensorsByGateway = new HashMap<Integer, Map<String, Integer>>();
+		for(Sensor sensor : getSensors())
+			countEndpoint(sensorsByGateway, sensor.getGatewayDeviceId(), sensor.getTupleType());
+		for(SensorGroup sensorGroup : getSensorGroups()){
+			for(int sensor = 0; sensor < sensorGroup.getNumSensors(); sensor++)
+				countEndpoint(sensorsByGateway, sensorGroup.getGatewayDeviceId(sensor), sensorGroup.getTupleType());
+		}
+		actuatorsByGateway = new HashMap<Integer, Map<String, Integer>>();
+		for(Actuator actuator : getActuators())
+			countEndpoint(actuatorsByGateway, actuator.getGatewayDeviceId(), actuator.getActuatorType());
+	}
+	
+	private static void countEndpoint(Map<Integer, Map<String, Integer>> endpointsByGateway, int gatewayDeviceId, String type) {
+		Map<String, Integer> endpoints = endpointsByGateway.get(gatewayDeviceId);
+		if(endpoints == null){
+			endpoints = new HashMap<String, Integer>();
+			endpointsByGateway.put(gatewayDeviceId, endpoints);
+		}
+		if(!endpoints.containsKey(type))
+			endpoints.put(type, 0);
+		endpoints.put(type, endpoints.get(type)+1);
+	}
+	
 	/**
 	 * Gets all sensors associated with fog-device <b>device</b>
 	 * @param device
 	 * @return map from sensor type to number of such sensors
 	 */
 	private Map<String, Integer> getAssociatedSensors(FogDevice device) {
-		Map<String, Integer> endpoints = new HashMap<String, Integer>();
-		for(Sensor sensor : getSensors()){
-			if(sensor.getGatewayDeviceId()==device.getId()){
-				if(!endpoints.containsKey(sensor.getTupleType()))
-					endpoints.put(sensor.getTupleType(), 0);
-				endpoints.put(sensor.getTupleType(), endpoints.get(sensor.getTupleType())+1);
-			}
-		}
-		return endpoints;
+		Map<String, Integer> endpoints = sensorsByGateway.get(device.getId());
+		return endpoints == null ? Collections.<String, Integer>emptyMap() : endpoints;
 	}
 	
 	/**
@@ -427,15 +538,8 @@ public class ModulePlacementEdgewards extends ModulePlacement{
 	 * @return map from actuator type to number of such sensors
 	 */
 	private Map<String, Integer> getAssociatedActuators(FogDevice device) {
-		Map<String, Integer> endpoints = new HashMap<String, Integer>();
-		for(Actuator actuator : getActuators()){
-			if(actuator.getGatewayDeviceId()==device.getId()){
-				if(!endpoints.containsKey(actuator.getActuatorType()))
-					endpoints.put(actuator.getActuatorType(), 0);
-				endpoints.put(actuator.getActuatorType(), endpoints.get(actuator.getActuatorType())+1);
-			}
-		}
-		return endpoints;
+		Map<String, Integer> endpoints = actuatorsByGateway.get(device.getId());
+		return endpoints == null ? Collections.<String, Integer>emptyMap() : endpoints;
 	}
 	
 	@SuppressWarnings("serial")
@@ -489,6 +593,14 @@ public class ModulePlacementEdgewards extends ModulePlacement{
 		this.sensors = sensors;
 	}
 
+	public List<SensorGroup> getSensorGroups() {
+		return sensorGroups;
+	}
+
+	public void setSensorGroups(List<SensorGroup> sensorGroups) {
+		this.sensorGroups = sensorGroups;
+	}
+
 	public List<Actuator> getActuators() {
 		return actuators;
 	}
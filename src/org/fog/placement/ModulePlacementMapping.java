@@ -38,7 +38,7 @@ public class ModulePlacementMapping extends ModulePlacement{
 		this.setModuleInstanceCountMap(new HashMap<Integer, Map<String, Integer>>());
 		for(FogDevice device : getFogDevices())
 			getModuleInstanceCountMap().put(device.getId(), new HashMap<String, Integer>());
-		mapModules();
+		placeModules();
 	}
 	
 	
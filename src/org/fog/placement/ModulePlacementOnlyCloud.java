@@ -1,5 +1,6 @@
 package org.fog.placement;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -11,24 +12,32 @@ import org.fog.application.Application;
 import org.fog.entities.Actuator;
 import org.fog.entities.FogDevice;
 import org.fog.entities.Sensor;
+import org.fog.entities.SensorGroup;
 import org.fog.entities.Tuple;
 
 public class ModulePlacementOnlyCloud extends ModulePlacement{
 	
 	private List<Sensor> sensors;
+	private List<SensorGroup> sensorGroups;
 	private List<Actuator> actuators;
 	private int cloudId;
 	
 	public ModulePlacementOnlyCloud(List<FogDevice> fogDevices, List<Sensor> sensors, List<Actuator> actuators, Application application){
+		this(fogDevices, sensors, new ArrayList<SensorGroup>(), actuators, application);
+	}
+	
+	public ModulePlacementOnlyCloud(List<FogDevice> fogDevices, List<Sensor> sensors, List<SensorGroup> sensorGroups, 
+			List<Actuator> actuators, Application application){
 		this.setFogDevices(fogDevices);
 		this.setApplication(application);
 		this.setSensors(sensors);
+		this.setSensorGroups(sensorGroups);
 		this.setActuators(actuators);
 		this.setModuleToDeviceMap(new HashMap<String, List<Integer>>());
 		this.setDeviceToModuleMap(new HashMap<Integer, List<AppModule>>());
 		this.setModuleInstanceCountMap(new HashMap<Integer, Map<String, Integer>>());
 		this.cloudId = CloudSim.getEntityId("cloud");
-		mapModules();
+		placeModules();
 		computeModuleInstanceCounts();
 	}
 	
@@ -43,6 +52,13 @@ public class ModulePlacementOnlyCloud extends ModulePlacement{
 			getModuleInstanceCountMap().get(cloud.getId()).put(sensorType, getModuleInstanceCountMap().get(cloud.getId()).get(sensorType)+1);
 		}
 		
+		for(SensorGroup sensorGroup : getSensorGroups()){
+			String sensorType = sensorGroup.getSensorName();
+			if(!getModuleInstanceCountMap().get(cloud.getId()).containsKey(sensorType))
+				getModuleInstanceCountMap().get(cloud.getId()).put(sensorType, 0);
+			getModuleInstanceCountMap().get(cloud.getId()).put(sensorType, getModuleInstanceCountMap().get(cloud.getId()).get(sensorType)+sensorGroup.getNumSensors());
+		}
+		
 		for(Actuator actuator : getActuators()){
 			String actuatorType = actuator.getActuatorType();
 			if(!getModuleInstanceCountMap().get(cloud.getId()).containsKey(actuatorType))
@@ -83,6 +99,14 @@ public class ModulePlacementOnlyCloud extends ModulePlacement{
 		}
 	}
 
+	public List<SensorGroup> getSensorGroups() {
+		return sensorGroups;
+	}
+
+	public void setSensorGroups(List<SensorGroup> sensorGroups) {
+		this.sensorGroups = sensorGroups;
+	}
+
 	public List<Actuator> getActuators() {
 		return actuators;
 	}
@@ -0,0 +1,506 @@
+package org.fog.scheduler;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+import org.cloudbus.cloudsim.Cloudlet;
+import org.cloudbus.cloudsim.CloudletScheduler;
+import org.cloudbus.cloudsim.CloudletSchedulerTimeShared;
+import org.cloudbus.cloudsim.Consts;
+import org.cloudbus.cloudsim.ResCloudlet;
+import org.cloudbus.cloudsim.core.CloudSim;
+
+/**
+ * Processor-sharing scheduler of the tuples of a module instance, producing the same completion times as
+ * {@link TupleScheduler}. As all the running tuples progress at the same rate, the scheduler does not update
+ * each of them: it advances a virtual time counting the instructions executed by a running tuple since the
+ * module started, and keeps the running tuples in a heap ordered by the virtual time at which they complete.
+ * Updates, submissions and the search for the next completion take O(log n) time.
+ *
+ * Progress is accounted in whole instructions, rounded down at every update, and a tuple completes once less
+ * than one MI of it remains, as in {@link CloudletSchedulerTimeShared}. As the rounding depends on the number
+ * of PEs of a tuple, tuples using different numbers of PEs have separate virtual times. An update is cut at
+ * each completion, after which the other tuples run faster, so the progress does not depend on how often the
+ * processing is updated.
+ */
+public class ProcessorSharingTupleScheduler extends CloudletScheduler {
+
+	private static class RunningTuple {
+		private final ResCloudlet rcl;
+		/**
+		 * Position of the tuple in the order of submission, which is the order in which tuples completing
+		 * at the same update finish
+		 */
+		private long sequence;
+		/**
+		 * Virtual time at which the tuple would have started if it had made no progress before
+		 */
+		private long start;
+		/**
+		 * Virtual time after which less than one MI of the tuple remains
+		 */
+		private long completion;
+		/**
+		 * Instructions of the tuple already recorded in its ResCloudlet
+		 */
+		private long accounted;
+		private int position;
+
+		private RunningTuple(ResCloudlet rcl, long accounted) {
+			this.rcl = rcl;
+			this.accounted = accounted;
+		}
+
+		private boolean before(RunningTuple other) {
+			return completion < other.completion || (completion == other.completion && sequence < other.sequence);
+		}
+	}
+
+	/**
+	 * Running tuples using a given number of PEs, with their virtual time.
+	 */
+	private static class Lane {
+		private final int pes;
+		private long virtualTime;
+		private RunningTuple[] heap = new RunningTuple[8];
+		private int size;
+
+		private Lane(int pes) {
+			this.pes = pes;
+		}
+
+		private void add(RunningTuple tuple) {
+			if (size == heap.length) {
+				heap = Arrays.copyOf(heap, size * 2);
+			}
+			heap[size] = tuple;
+			tuple.position = size;
+			size++;
+			siftUp(tuple.position);
+		}
+
+		private RunningTuple peek() {
+			return heap[0];
+		}
+
+		private void remove(RunningTuple tuple) {
+			int position = tuple.position;
+			size--;
+			RunningTuple last = heap[size];
+			heap[size] = null;
+			if (position < size) {
+				heap[position] = last;
+				last.position = position;
+				siftDown(position);
+				siftUp(last.position);
+			}
+		}
+
+		private void siftUp(int position) {
+			RunningTuple tuple = heap[position];
+			while (position > 0) {
+				int parent = (position - 1) / 2;
+				if (!tuple.before(heap[parent])) {
+					break;
+				}
+				heap[position] = heap[parent];
+				heap[position].position = position;
+				position = parent;
+			}
+			heap[position] = tuple;
+			tuple.position = position;
+		}
+
+		private void siftDown(int position) {
+			RunningTuple tuple = heap[position];
+			while (2 * position + 1 < size) {
+				int child = 2 * position + 1;
+				if (child + 1 < size && heap[child + 1].before(heap[child])) {
+					child++;
+				}
+				if (!heap[child].before(tuple)) {
+					break;
+				}
+				heap[position] = heap[child];
+				heap[position].position = position;
+				position = child;
+			}
+			heap[position] = tuple;
+			tuple.position = position;
+		}
+	}
+
+	private static final Comparator<RunningTuple> SUBMISSION_ORDER = new Comparator<RunningTuple>() {
+		@Override
+		public int compare(RunningTuple t1, RunningTuple t2) {
+			return t1.sequence < t2.sequence ? -1 : (t1.sequence == t2.sequence ? 0 : 1);
+		}
+	};
+
+	private final List<Lane> lanes;
+	private final List<RunningTuple> pausedTuples;
+	private final ArrayDeque<ResCloudlet> finishedTuples;
+	private int runningTuples;
+	private int pesInUse;
+	private long nextSequence;
+	protected int currentCPUs;
+
+	public ProcessorSharingTupleScheduler(double mips, int numberOfPes) {
+		super();
+		lanes = new ArrayList<Lane>(1);
+		pausedTuples = new ArrayList<RunningTuple>();
+		finishedTuples = new ArrayDeque<ResCloudlet>();
+	}
+
+	private Lane getLane(int pes) {
+		for (Lane lane : lanes) {
+			if (lane.pes == pes) {
+				return lane;
+			}
+		}
+		Lane lane = new Lane(pes);
+		lanes.add(lane);
+		return lane;
+	}
+
+	/**
+	 * Starts or resumes running a tuple from the progress recorded in its ResCloudlet.
+	 */
+	private void run(RunningTuple tuple) {
+		Lane lane = getLane(tuple.rcl.getNumberOfPes());
+		tuple.sequence = nextSequence++;
+		tuple.start = lane.virtualTime - tuple.accounted;
+		tuple.completion = tuple.start + (tuple.rcl.getCloudletTotalLength() - 1) * Consts.MILLION;
+		lane.add(tuple);
+	}
+
+	/**
+	 * Stops running a tuple, recording its progress in its ResCloudlet.
+	 */
+	private void stop(RunningTuple tuple) {
+		Lane lane = getLane(tuple.rcl.getNumberOfPes());
+		lane.remove(tuple);
+		long done = lane.virtualTime - tuple.start;
+		tuple.rcl.updateCloudletFinishedSoFar(done - tuple.accounted);
+		tuple.accounted = done;
+		runningTuples--;
+		pesInUse -= tuple.rcl.getNumberOfPes();
+	}
+
+	private RunningTuple findRunning(int cloudletId) {
+		for (Lane lane : lanes) {
+			for (int i = 0; i < lane.size; i++) {
+				if (lane.heap[i].rcl.getCloudletId() == cloudletId) {
+					return lane.heap[i];
+				}
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public double updateVmProcessing(double currentTime, List<Double> mipsShare) {
+		setCurrentMipsShare(mipsShare);
+		double timeSpam = currentTime - getPreviousTime();
+
+		if (runningTuples == 0) {
+			setPreviousTime(currentTime);
+			return 0.0;
+		}
+
+		// the tuples completing during the update are finished in submission order
+		List<RunningTuple> completed = null;
+		double remainingSpan = timeSpam;
+		while (runningTuples > 0) {
+			// the span is cut at the first completion, after which the other tuples run faster
+			double capacity = getCapacity(mipsShare);
+			double span = remainingSpan;
+			Lane firstLane = null;
+			for (Lane lane : lanes) {
+				if (lane.size == 0) {
+					continue;
+				}
+				double completionSpan = (lane.peek().completion + 1 - lane.virtualTime)
+						/ (capacity * lane.pes * Consts.MILLION);
+				if (completionSpan < span) {
+					span = completionSpan;
+					firstLane = lane;
+				}
+			}
+			for (Lane lane : lanes) {
+				lane.virtualTime += (long) (capacity * span * lane.pes * Consts.MILLION);
+				if (lane == firstLane && lane.peek().completion >= lane.virtualTime) {
+					// the rounding left the first tuple to complete short of its completion
+					lane.virtualTime = lane.peek().completion + 1;
+				}
+				while (lane.size > 0 && lane.peek().completion < lane.virtualTime) {
+					if (completed == null) {
+						completed = new ArrayList<RunningTuple>();
+					}
+					RunningTuple tuple = lane.peek();
+					completed.add(tuple);
+					stop(tuple);
+				}
+			}
+			if (firstLane == null) {
+				break;
+			}
+			remainingSpan -= span;
+		}
+		if (completed != null) {
+			Collections.sort(completed, SUBMISSION_ORDER);
+			for (RunningTuple tuple : completed) {
+				cloudletFinish(tuple.rcl);
+			}
+		}
+
+		double nextEvent = Double.MAX_VALUE;
+		if (runningTuples > 0) {
+			double capacity = getCapacity(mipsShare);
+			for (Lane lane : lanes) {
+				if (lane.size == 0) {
+					continue;
+				}
+				long remainingLength = Math.max(0, lane.peek().completion + Consts.MILLION - lane.virtualTime) / Consts.MILLION;
+				double estimatedFinishTime = currentTime + (remainingLength / (capacity * lane.pes));
+				if (estimatedFinishTime - currentTime < CloudSim.getMinTimeBetweenEvents()) {
+					estimatedFinishTime = currentTime + CloudSim.getMinTimeBetweenEvents();
+				}
+				if (estimatedFinishTime < nextEvent) {
+					nextEvent = estimatedFinishTime;
+				}
+			}
+		}
+
+		setPreviousTime(currentTime);
+		return nextEvent;
+	}
+
+	/**
+	 * Gets the MIPS available to each PE of a running tuple.
+	 *
+	 * @param mipsShare the mips share
+	 * @return the capacity
+	 */
+	protected double getCapacity(List<Double> mipsShare) {
+		double capacity = 0.0;
+		int cpus = 0;
+		for (Double mips : mipsShare) {
+			capacity += mips;
+			if (mips > 0.0) {
+				cpus++;
+			}
+		}
+		currentCPUs = cpus;
+
+		if (pesInUse > currentCPUs) {
+			capacity /= pesInUse;
+		} else {
+			capacity /= currentCPUs;
+		}
+		return capacity;
+	}
+
+	@Override
+	public double cloudletSubmit(Cloudlet cloudlet, double fileTransferTime) {
+		ResCloudlet rcl = new ResCloudlet(cloudlet);
+		rcl.setCloudletStatus(Cloudlet.INEXEC);
+		for (int i = 0; i < cloudlet.getNumberOfPes(); i++) {
+			rcl.setMachineAndPeId(0, i);
+		}
+		runningTuples++;
+		pesInUse += cloudlet.getNumberOfPes();
+
+		double extraSize = getCapacity(getCurrentMipsShare()) * fileTransferTime;
+		long length = (long) (cloudlet.getCloudletLength() + extraSize);
+		cloudlet.setCloudletLength(length);
+		run(new RunningTuple(rcl, cloudlet.getCloudletFinishedSoFar() * Consts.MILLION));
+		return cloudlet.getCloudletLength() / getCapacity(getCurrentMipsShare());
+	}
+
+	@Override
+	public double cloudletSubmit(Cloudlet cloudlet) {
+		return cloudletSubmit(cloudlet, 0.0);
+	}
+
+	@Override
+	public Cloudlet cloudletCancel(int cloudletId) {
+		Iterator<ResCloudlet> finished = finishedTuples.iterator();
+		while (finished.hasNext()) {
+			ResCloudlet rcl = finished.next();
+			if (rcl.getCloudletId() == cloudletId) {
+				finished.remove();
+				return rcl.getCloudlet();
+			}
+		}
+
+		RunningTuple tuple = findRunning(cloudletId);
+		if (tuple != null) {
+			stop(tuple);
+			if (tuple.rcl.getRemainingCloudletLength() == 0) {
+				cloudletFinish(tuple.rcl);
+			} else {
+				tuple.rcl.setCloudletStatus(Cloudlet.CANCELED);
+			}
+			return tuple.rcl.getCloudlet();
+		}
+
+		for (int i = 0; i < pausedTuples.size(); i++) {
+			if (pausedTuples.get(i).rcl.getCloudletId() == cloudletId) {
+				ResCloudlet rcl = pausedTuples.remove(i).rcl;
+				rcl.setCloudletStatus(Cloudlet.CANCELED);
+				return rcl.getCloudlet();
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public boolean cloudletPause(int cloudletId) {
+		RunningTuple tuple = findRunning(cloudletId);
+		if (tuple == null) {
+			return false;
+		}
+		stop(tuple);
+		if (tuple.rcl.getRemainingCloudletLength() == 0) {
+			cloudletFinish(tuple.rcl);
+		} else {
+			tuple.rcl.setCloudletStatus(Cloudlet.PAUSED);
+			pausedTuples.add(tuple);
+		}
+		return true;
+	}
+
+	@Override
+	public void cloudletFinish(ResCloudlet rcl) {
+		rcl.setCloudletStatus(Cloudlet.SUCCESS);
+		rcl.finalizeCloudlet();
+		finishedTuples.add(rcl);
+	}
+
+	@Override
+	public double cloudletResume(int cloudletId) {
+		for (int i = 0; i < pausedTuples.size(); i++) {
+			RunningTuple tuple = pausedTuples.get(i);
+			if (tuple.rcl.getCloudletId() == cloudletId) {
+				pausedTuples.remove(i);
+				tuple.rcl.setCloudletStatus(Cloudlet.INEXEC);
+				runningTuples++;
+				pesInUse += tuple.rcl.getNumberOfPes();
+				run(tuple);
+
+				double remainingLength = tuple.rcl.getRemainingCloudletLength();
+				return CloudSim.clock()
+						+ (remainingLength / (getCapacity(getCurrentMipsShare()) * tuple.rcl.getNumberOfPes()));
+			}
+		}
+		return 0.0;
+	}
+
+	@Override
+	public int getCloudletStatus(int cloudletId) {
+		RunningTuple tuple = findRunning(cloudletId);
+		if (tuple != null) {
+			return tuple.rcl.getCloudletStatus();
+		}
+		for (RunningTuple paused : pausedTuples) {
+			if (paused.rcl.getCloudletId() == cloudletId) {
+				return paused.rcl.getCloudletStatus();
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public boolean isFinishedCloudlets() {
+		return !finishedTuples.isEmpty();
+	}
+
+	@Override
+	public Cloudlet getNextFinishedCloudlet() {
+		ResCloudlet rcl = finishedTuples.poll();
+		return rcl == null ? null : rcl.getCloudlet();
+	}
+
+	@Override
+	public int runningCloudlets() {
+		return runningTuples;
+	}
+
+	/**
+	 * Stops running the tuple submitted first.
+	 */
+	@Override
+	public Cloudlet migrateCloudlet() {
+		RunningTuple first = null;
+		for (Lane lane : lanes) {
+			for (int i = 0; i < lane.size; i++) {
+				if (first == null || lane.heap[i].sequence < first.sequence) {
+					first = lane.heap[i];
+				}
+			}
+		}
+		stop(first);
+		first.rcl.finalizeCloudlet();
+		return first.rcl.getCloudlet();
+	}
+
+	@Override
+	public double getTotalUtilizationOfCpu(double time) {
+		double totalUtilization = 0;
+		for (Lane lane : lanes) {
+			for (int i = 0; i < lane.size; i++) {
+				totalUtilization += lane.heap[i].rcl.getCloudlet().getUtilizationOfCpu(time);
+			}
+		}
+		return totalUtilization;
+	}
+
+	@Override
+	public List<Double> getCurrentRequestedMips() {
+		return new ArrayList<Double>();
+	}
+
+	@Override
+	public double getTotalCurrentAvailableMipsForCloudlet(ResCloudlet rcl, List<Double> mipsShare) {
+		return getCapacity(getCurrentMipsShare());
+	}
+
+	@Override
+	public double getTotalCurrentRequestedMipsForCloudlet(ResCloudlet rcl, double time) {
+		return 0.0;
+	}
+
+	@Override
+	public double getTotalCurrentAllocatedMipsForCloudlet(ResCloudlet rcl, double time) {
+		return 0.0;
+	}
+
+	@Override
+	public double getCurrentRequestedUtilizationOfRam() {
+		double ram = 0;
+		for (Lane lane : lanes) {
+			for (int i = 0; i < lane.size; i++) {
+				ram += lane.heap[i].rcl.getCloudlet().getUtilizationOfRam(CloudSim.clock());
+			}
+		}
+		return ram;
+	}
+
+	@Override
+	public double getCurrentRequestedUtilizationOfBw() {
+		double bw = 0;
+		for (Lane lane : lanes) {
+			for (int i = 0; i < lane.size; i++) {
+				bw += lane.heap[i].rcl.getCloudlet().getUtilizationOfBw(CloudSim.clock());
+			}
+		}
+		return bw;
+	}
+
+}
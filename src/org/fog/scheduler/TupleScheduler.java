@@ -1,7 +1,12 @@
 package org.fog.scheduler;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.cloudbus.cloudsim.CloudletSchedulerTimeShared;
+import org.cloudbus.cloudsim.Consts;
 import org.cloudbus.cloudsim.ResCloudlet;
+import org.cloudbus.cloudsim.core.CloudSim;
 
 public class TupleScheduler extends CloudletSchedulerTimeShared{
 
@@ -10,6 +15,83 @@ public class TupleScheduler extends CloudletSchedulerTimeShared{
 		super();
 	}
 
+	/**
+	 * Updates the processing of the tuples, cutting the time span at each completion, after which the other
+	 * tuples get a larger share of the MIPS. The progress thus does not depend on how often the processing
+	 * is updated.
+	 */
+	@Override
+	public double updateVmProcessing(double currentTime, List<Double> mipsShare) {
+		setCurrentMipsShare(mipsShare);
+		double remainingSpan = currentTime - getPreviousTime();
+
+		if (getCloudletExecList().size() == 0) {
+			setPreviousTime(currentTime);
+			return 0.0;
+		}
+
+		// the tuples completing during the update are finished in submission order
+		List<ResCloudlet> submitted = new ArrayList<ResCloudlet>(getCloudletExecList());
+		List<ResCloudlet> completed = new ArrayList<ResCloudlet>();
+		while (getCloudletExecList().size() > 0) {
+			double capacity = getCapacity(mipsShare);
+			double span = remainingSpan;
+			ResCloudlet first = null;
+			for (ResCloudlet rcl : getCloudletExecList()) {
+				double completionSpan = rcl.getLengthToCompletion() / (capacity * rcl.getNumberOfPes() * Consts.MILLION);
+				if (completionSpan < span) {
+					span = completionSpan;
+					first = rcl;
+				}
+			}
+			for (ResCloudlet rcl : getCloudletExecList()) {
+				rcl.updateCloudletFinishedSoFar((long) (capacity * span * rcl.getNumberOfPes() * Consts.MILLION));
+			}
+			if (first != null && first.getLengthToCompletion() > 0) {
+				// the rounding left the first tuple to complete short of its completion
+				long shortfall = first.getLengthToCompletion();
+				for (ResCloudlet rcl : getCloudletExecList()) {
+					if (rcl.getNumberOfPes() == first.getNumberOfPes()) {
+						rcl.updateCloudletFinishedSoFar(shortfall);
+					}
+				}
+			}
+			List<ResCloudlet> toRemove = new ArrayList<ResCloudlet>();
+			for (ResCloudlet rcl : getCloudletExecList()) {
+				if (rcl.getRemainingCloudletLength() == 0) {
+					toRemove.add(rcl);
+				}
+			}
+			getCloudletExecList().removeAll(toRemove);
+			completed.addAll(toRemove);
+			if (first == null) {
+				break;
+			}
+			remainingSpan -= span;
+		}
+		if (!completed.isEmpty()) {
+			submitted.retainAll(completed);
+			for (ResCloudlet rcl : submitted) {
+				cloudletFinish(rcl);
+			}
+		}
+
+		double nextEvent = Double.MAX_VALUE;
+		for (ResCloudlet rcl : getCloudletExecList()) {
+			double estimatedFinishTime = currentTime
+					+ (rcl.getRemainingCloudletLength() / (getCapacity(mipsShare) * rcl.getNumberOfPes()));
+			if (estimatedFinishTime - currentTime < CloudSim.getMinTimeBetweenEvents()) {
+				estimatedFinishTime = currentTime + CloudSim.getMinTimeBetweenEvents();
+			}
+			if (estimatedFinishTime < nextEvent) {
+				nextEvent = estimatedFinishTime;
+			}
+		}
+
+		setPreviousTime(currentTime);
+		return nextEvent;
+	}
+
 	/**
 	 * Get estimated cloudlet completion time.
 	 * 
@@ -24,7 +106,6 @@ public class TupleScheduler extends CloudletSchedulerTimeShared{
 		/*>>>>>>>>>>>>>>>>>>>>*/
 		/* edit made by HARSHIT GUPTA */
 		
-		System.out.println("ALLOCATED MIPS FOR CLOUDLET = "+getTotalCurrentAllocatedMipsForCloudlet(rcl, time));
 		return time
 				+ ((rcl.getRemainingCloudletLength()) / getTotalCurrentAllocatedMipsForCloudlet(rcl, time));
 		
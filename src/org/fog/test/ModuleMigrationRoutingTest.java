@@ -0,0 +1,174 @@
+package org.fog.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.cloudbus.cloudsim.Host;
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.Pe;
+import org.cloudbus.cloudsim.Storage;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimulationReport;
+import org.cloudbus.cloudsim.power.PowerHost;
+import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
+import org.cloudbus.cloudsim.sdn.overbooking.BwProvisionerOverbooking;
+import org.cloudbus.cloudsim.sdn.overbooking.PeProvisionerOverbooking;
+import org.fog.application.AppEdge;
+import org.fog.application.AppLoop;
+import org.fog.application.AppModule;
+import org.fog.application.Application;
+import org.fog.application.selectivity.FractionalSelectivity;
+import org.fog.entities.Actuator;
+import org.fog.entities.FogBroker;
+import org.fog.entities.FogDevice;
+import org.fog.entities.FogDeviceCharacteristics;
+import org.fog.entities.Sensor;
+import org.fog.entities.Tuple;
+import org.fog.network.DownRoutingTable;
+import org.fog.placement.Controller;
+import org.fog.placement.ModuleMapping;
+import org.fog.placement.ModulePlacementMapping;
+import org.fog.policy.AppModuleAllocationPolicy;
+import org.fog.scheduler.StreamOperatorScheduler;
+import org.fog.utils.Config;
+import org.fog.utils.FogLinearPowerModel;
+import org.fog.utils.FogUtils;
+import org.fog.utils.distribution.DeterministicDistribution;
+
+/**
+ * Checks that the downward routes follow the module instances when they move: the analyzer moves from the
+ * gateway up to the cloud, then the client of the first mobile moves up to the gateway, and the routing
+ * tables must only lead to the devices hosting them at the end.
+ */
+public class ModuleMigrationRoutingTest {
+
+	public static void main(String[] args) throws Exception {
+		Log.disable();
+		Config.MAX_SIMULATION_TIME = 1000;
+		CloudSim.init(1, Calendar.getInstance(), false);
+
+		FogBroker broker = new FogBroker("broker");
+		Application application = createApplication("migration", broker.getId());
+		application.setUserId(broker.getId());
+
+		List<FogDevice> fogDevices = new ArrayList<FogDevice>();
+		List<Sensor> sensors = new ArrayList<Sensor>();
+		List<Actuator> actuators = new ArrayList<Actuator>();
+		ModuleMapping moduleMapping = ModuleMapping.createModuleMapping();
+
+		FogDevice cloud = createFogDevice("cloud", 44800);
+		cloud.setParentId(-1);
+		FogDevice gateway = createFogDevice("gateway", 2800);
+		gateway.setParentId(cloud.getId());
+		gateway.setUplinkLatency(100);
+		fogDevices.add(cloud);
+		fogDevices.add(gateway);
+		moduleMapping.addModuleToDevice("store", "cloud");
+		moduleMapping.addModuleToDevice("analyzer", "gateway");
+		List<FogDevice> mobiles = new ArrayList<FogDevice>();
+		for(int i = 0; i < 2; i++){
+			FogDevice mobile = createFogDevice("m-"+i, 1000);
+			mobile.setParentId(gateway.getId());
+			mobile.setUplinkLatency(2);
+			fogDevices.add(mobile);
+			mobiles.add(mobile);
+			moduleMapping.addModuleToDevice("client", mobile.getName());
+			Sensor sensor = new Sensor("s-"+i, "DATA", broker.getId(), application.getAppId(),
+					new DeterministicDistribution(5));
+			sensor.setGatewayDeviceId(mobile.getId());
+			sensor.setLatency(6.0);
+			sensors.add(sensor);
+			Actuator display = new Actuator("a-"+i, broker.getId(), application.getAppId(), "DISPLAY");
+			display.setGatewayDeviceId(mobile.getId());
+			display.setLatency(1.0);
+			actuators.add(display);
+		}
+
+		Controller controller = new Controller("master-controller", fogDevices, sensors, actuators);
+		ModulePlacementMapping placement = new ModulePlacementMapping(fogDevices, application, moduleMapping);
+		controller.submitApplication(application, 0, placement);
+		AppModule analyzer = getModule(placement.getDeviceToModuleMap().get(gateway.getId()), "analyzer");
+		AppModule movedClient = getModule(placement.getDeviceToModuleMap().get(mobiles.get(0).getId()), "client");
+		AppModule otherClient = getModule(placement.getDeviceToModuleMap().get(mobiles.get(1).getId()), "client");
+		controller.migrateModule(analyzer, cloud.getId(), 300);
+		controller.migrateModule(movedClient, gateway.getId(), 600);
+		SimulationReport report = CloudSim.startSimulation();
+		CloudSim.stopSimulation();
+
+		check("the analyzer is on the cloud", cloud.getHost().getVmList().contains(analyzer));
+		check("the moved client is on the gateway", gateway.getHost().getVmList().contains(movedClient));
+		check("the first mobile hosts nothing", mobiles.get(0).getHost().getVmList().isEmpty());
+
+		DownRoutingTable cloudRoutes = cloud.getDownRoutes();
+		check("the cloud has no route to the analyzer instance", cloudRoutes.getChildWithVm(analyzer.getId()) == -1);
+		check("the cloud has no route to the analyzer",
+				cloudRoutes.getChildrenWithModule(application.getAppId(), "analyzer").isEmpty());
+		check("the cloud routes the moved client through the gateway",
+				cloudRoutes.getChildWithVm(movedClient.getId()) == gateway.getId());
+		check("the cloud routes the client through the gateway",
+				cloudRoutes.getChildrenWithModule(application.getAppId(), "client").equals(Arrays.asList(gateway.getId())));
+
+		DownRoutingTable gatewayRoutes = gateway.getDownRoutes();
+		check("the gateway has no route to the moved client", gatewayRoutes.getChildWithVm(movedClient.getId()) == -1);
+		check("the gateway routes the other client to the second mobile",
+				gatewayRoutes.getChildWithVm(otherClient.getId()) == mobiles.get(1).getId());
+		check("the gateway routes the client to the second mobile only",
+				gatewayRoutes.getChildrenWithModule(application.getAppId(), "client")
+						.equals(Arrays.asList(mobiles.get(1).getId())));
+
+		boolean loopMeasured = false;
+		for(String name : report.getValues().keySet())
+			loopMeasured |= name.startsWith("loop.");
+		check("the loop was measured", loopMeasured);
+		System.out.println("ModuleMigrationRoutingTest passed");
+	}
+
+	private static void check(String description, boolean condition) {
+		if(!condition)
+			throw new AssertionError("expected that " + description);
+	}
+
+	private static AppModule getModule(List<AppModule> modules, String name) {
+		for(AppModule module : modules){
+			if(module.getName().equals(name))
+				return module;
+		}
+		throw new AssertionError("no " + name + " was placed");
+	}
+
+	@SuppressWarnings({"serial"})
+	private static Application createApplication(String appId, int userId) {
+		Application application = Application.createApplication(appId, userId);
+		application.addAppModule("client", 10);
+		application.addAppModule("analyzer", 10);
+		application.addAppModule("store", 10);
+		application.addAppEdge("DATA", "client", 2000, 500, "DATA", Tuple.UP, AppEdge.SENSOR);
+		application.addAppEdge("client", "analyzer", 3500, 500, "RAW", Tuple.UP, AppEdge.MODULE);
+		application.addAppEdge("analyzer", "client", 700, 500, "RESULT", Tuple.DOWN, AppEdge.MODULE);
+		application.addAppEdge("analyzer", "store", 100, 1000, 100, "SUMMARY", Tuple.UP, AppEdge.MODULE);
+		application.addAppEdge("client", "DISPLAY", 1000, 500, "UPDATE", Tuple.DOWN, AppEdge.ACTUATOR);
+		application.addTupleMapping("client", "DATA", "RAW", new FractionalSelectivity(1.0));
+		application.addTupleMapping("analyzer", "RAW", "RESULT", new FractionalSelectivity(1.0));
+		application.addTupleMapping("client", "RESULT", "UPDATE", new FractionalSelectivity(1.0));
+		final AppLoop loop = new AppLoop(new ArrayList<String>(){{add("DATA");add("client");add("analyzer");add("client");add("DISPLAY");}});
+		application.setLoops(new ArrayList<AppLoop>(){{add(loop);}});
+		return application;
+	}
+
+	private static FogDevice createFogDevice(String name, long mips) throws Exception {
+		List<Pe> peList = new ArrayList<Pe>();
+		peList.add(new Pe(0, new PeProvisionerOverbooking(mips)));
+		PowerHost host = new PowerHost(FogUtils.generateEntityId(), new RamProvisionerSimple(4000),
+				new BwProvisionerOverbooking(10000), 1000000, peList, new StreamOperatorScheduler(peList),
+				new FogLinearPowerModel(100, 80));
+		List<Host> hostList = new ArrayList<Host>();
+		hostList.add(host);
+		FogDeviceCharacteristics characteristics = new FogDeviceCharacteristics("x86", "Linux", "Xen", host,
+				10.0, 3.0, 0.05, 0.001, 0.0);
+		return new FogDevice(name, characteristics, new AppModuleAllocationPolicy(hostList),
+				new LinkedList<Storage>(), 10, 10000, 10000, 0, 0.0);
+	}
+}
@@ -0,0 +1,133 @@
+package org.fog.test;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.Host;
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.Pe;
+import org.cloudbus.cloudsim.Storage;
+import org.cloudbus.cloudsim.UtilizationModelFull;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimEvent;
+import org.cloudbus.cloudsim.power.PowerHost;
+import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
+import org.cloudbus.cloudsim.sdn.overbooking.BwProvisionerOverbooking;
+import org.cloudbus.cloudsim.sdn.overbooking.PeProvisionerOverbooking;
+import org.fog.entities.FogDevice;
+import org.fog.entities.FogDeviceCharacteristics;
+import org.fog.entities.Tuple;
+import org.fog.network.LinkModel;
+import org.fog.policy.AppModuleAllocationPolicy;
+import org.fog.scheduler.StreamOperatorScheduler;
+import org.fog.utils.FogLinearPowerModel;
+import org.fog.utils.FogUtils;
+
+/**
+ * Checks the processor-sharing link model: a short transfer added behind a long one must complete
+ * when its share of the bandwidth allows, not when the completion pending for the long one fires.
+ *
+ * The gateway sends a tuple of size 1000 to the first child at t=0 and a tuple of size 1 to the second
+ * child at t=1, on a downlink of bandwidth 1 without latency. From t=1 both transfers progress at 0.5,
+ * so the short one completes at t=3 and the long one, alone again, at t=1001.
+ */
+public class ProcessorSharingLinkTest {
+
+	private static final int SEND_DOWN = 1000001;
+
+	private static final double TOLERANCE = 1e-9;
+
+	private static Map<String, Double> arrivalTimes = new HashMap<String, Double>();
+
+	private static class Gateway extends FogDevice {
+
+		public Gateway(String name, List<Host> hostList) throws Exception {
+			super(name, createCharacteristics(hostList), new AppModuleAllocationPolicy(hostList),
+					new LinkedList<Storage>(), 10, 1, 1, 0, 0);
+		}
+
+		@Override
+		public void startEntity() {
+			super.startEntity();
+			schedule(getId(), 0, SEND_DOWN, createTuple(getChildrenIds().get(0), 1000));
+			schedule(getId(), 1, SEND_DOWN, createTuple(getChildrenIds().get(1), 1));
+		}
+
+		@Override
+		protected void processOtherEvent(SimEvent ev) {
+			if(ev.getTag() == SEND_DOWN){
+				Tuple tuple = (Tuple)ev.getData();
+				sendDown(tuple, tuple.getUserId());
+			}else{
+				super.processOtherEvent(ev);
+			}
+		}
+
+		private Tuple createTuple(int childId, long size){
+			Tuple tuple = new Tuple("test", FogUtils.generateTupleId(), Tuple.DOWN, 1, 1, size, size,
+					new UtilizationModelFull(), new UtilizationModelFull(), new UtilizationModelFull());
+			tuple.setUserId(childId);
+			return tuple;
+		}
+	}
+
+	private static class Receiver extends FogDevice {
+
+		public Receiver(String name, List<Host> hostList) throws Exception {
+			super(name, createCharacteristics(hostList), new AppModuleAllocationPolicy(hostList),
+					new LinkedList<Storage>(), 10, 1, 1, 0, 0);
+		}
+
+		@Override
+		protected void processTupleArrival(SimEvent ev) {
+			arrivalTimes.put(getName(), CloudSim.clock());
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		Log.disable();
+		CloudSim.init(1, Calendar.getInstance(), false);
+
+		Gateway gateway = new Gateway("gateway", createHostList());
+		gateway.setLinkModel(LinkModel.PROCESSOR_SHARING);
+		Receiver longReceiver = new Receiver("long", createHostList());
+		Receiver shortReceiver = new Receiver("short", createHostList());
+		for(FogDevice child : new FogDevice[]{longReceiver, shortReceiver}){
+			child.setParentId(gateway.getId());
+			gateway.getChildrenIds().add(child.getId());
+			gateway.getChildToLatencyMap().put(child.getId(), 0.0);
+		}
+
+		CloudSim.startSimulation();
+		CloudSim.stopSimulation();
+
+		check("short", 3);
+		check("long", 1001);
+		System.out.println("ProcessorSharingLinkTest passed");
+	}
+
+	private static List<Host> createHostList() {
+		List<Pe> peList = new ArrayList<Pe>();
+		peList.add(new Pe(0, new PeProvisionerOverbooking(1000)));
+		List<Host> hostList = new ArrayList<Host>();
+		hostList.add(new PowerHost(FogUtils.generateEntityId(), new RamProvisionerSimple(1000),
+				new BwProvisionerOverbooking(10000), 1000000, peList, new StreamOperatorScheduler(peList),
+				new FogLinearPowerModel(100, 80)));
+		return hostList;
+	}
+
+	private static FogDeviceCharacteristics createCharacteristics(List<Host> hostList) {
+		return new FogDeviceCharacteristics("x86", "Linux", "Xen", (PowerHost)hostList.get(0), 10.0, 3.0, 0.05,
+				0.001, 0.0);
+	}
+
+	private static void check(String receiver, double expectedTime) {
+		Double time = arrivalTimes.get(receiver);
+		if(time == null || Math.abs(time - expectedTime) > TOLERANCE)
+			throw new AssertionError("tuple to " + receiver + " arrived at " + time + " instead of " + expectedTime);
+	}
+}
@@ -0,0 +1,180 @@
+package org.fog.test;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import org.cloudbus.cloudsim.Host;
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.Pe;
+import org.cloudbus.cloudsim.Storage;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.ReplicationResult;
+import org.cloudbus.cloudsim.core.ReplicationRunner;
+import org.cloudbus.cloudsim.core.SimulationReport;
+import org.cloudbus.cloudsim.power.PowerHost;
+import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
+import org.cloudbus.cloudsim.sdn.overbooking.BwProvisionerOverbooking;
+import org.cloudbus.cloudsim.sdn.overbooking.PeProvisionerOverbooking;
+import org.fog.application.AppEdge;
+import org.fog.application.AppLoop;
+import org.fog.application.Application;
+import org.fog.application.selectivity.FractionalSelectivity;
+import org.fog.entities.Actuator;
+import org.fog.entities.FogBroker;
+import org.fog.entities.FogDevice;
+import org.fog.entities.FogDeviceCharacteristics;
+import org.fog.entities.Sensor;
+import org.fog.entities.Tuple;
+import org.fog.placement.Controller;
+import org.fog.placement.ModuleMapping;
+import org.fog.placement.ModulePlacementMapping;
+import org.fog.policy.AppModuleAllocationPolicy;
+import org.fog.scheduler.StreamOperatorScheduler;
+import org.fog.utils.Config;
+import org.fog.utils.FogLinearPowerModel;
+import org.fog.utils.FogUtils;
+import org.fog.utils.distribution.DeterministicDistribution;
+
+/**
+ * Checks that the energy, the cost and the delays do not depend on the periodic resource management
+ * events: a small topology whose gateway runs several tuples at once is simulated with and without them,
+ * and the reports must agree up to the rounding of the sums.
+ *
+ * The simulations run one after the other, as the Config flags are shared by all the simulations.
+ */
+public class ResourceManagementModesTest {
+
+	private static final double TOLERANCE = 1e-12;
+
+	private static final int NUM_MOBILES = 3;
+
+	public static void main(String[] args) throws Exception {
+		Log.disable();
+		Config.MAX_SIMULATION_TIME = 1000;
+		List<Callable<SimulationReport>> runs = new ArrayList<Callable<SimulationReport>>();
+		runs.add(new Run(true));
+		runs.add(new Run(false));
+		List<ReplicationResult<SimulationReport>> results = new ReplicationRunner(1).run(runs);
+		for(ReplicationResult<SimulationReport> result : results){
+			if(!result.isSuccessful())
+				throw new AssertionError(result.getError());
+		}
+
+		Map<String, Object> periodic = results.get(0).getResult().getValues();
+		Map<String, Object> eventDriven = results.get(1).getResult().getValues();
+		for(String name : periodic.keySet()){
+			if(!name.startsWith("energy.") && !name.startsWith("loop.") && !name.startsWith("tupleCpuTime.")
+					&& !name.equals("cost") && !name.equals("networkUsage"))
+				continue;
+			check(name, ((Number)periodic.get(name)).doubleValue(), (Number)eventDriven.get(name));
+		}
+		if(((Number)periodic.get("cost")).doubleValue() == 0)
+			throw new AssertionError("the cloud was not used");
+		System.out.println("ResourceManagementModesTest passed");
+	}
+
+	private static void check(String name, double periodic, Number eventDriven) {
+		if(eventDriven == null)
+			throw new AssertionError(name + " is missing without periodic resource management");
+		double difference = Math.abs(periodic - eventDriven.doubleValue());
+		if(difference > TOLERANCE * Math.max(Math.abs(periodic), Math.abs(eventDriven.doubleValue())))
+			throw new AssertionError(name + " is " + periodic + " with periodic resource management and "
+					+ eventDriven + " without");
+	}
+
+	private static class Run implements Callable<SimulationReport> {
+
+		private final boolean periodicResourceManagement;
+
+		public Run(boolean periodicResourceManagement) {
+			this.periodicResourceManagement = periodicResourceManagement;
+		}
+
+		@Override
+		public SimulationReport call() throws Exception {
+			Config.PERIODIC_RESOURCE_MGMT = periodicResourceManagement;
+			CloudSim.init(1, Calendar.getInstance(), false);
+
+			FogBroker broker = new FogBroker("broker");
+			Application application = createApplication("modes", broker.getId());
+			application.setUserId(broker.getId());
+
+			List<FogDevice> fogDevices = new ArrayList<FogDevice>();
+			List<Sensor> sensors = new ArrayList<Sensor>();
+			List<Actuator> actuators = new ArrayList<Actuator>();
+			ModuleMapping moduleMapping = ModuleMapping.createModuleMapping();
+
+			FogDevice cloud = createFogDevice("cloud", 44800, 0.01, 16*103, 16*83.25);
+			cloud.setParentId(-1);
+			FogDevice gateway = createFogDevice("gateway", 2800, 0.0, 107.339, 83.4333);
+			gateway.setParentId(cloud.getId());
+			gateway.setUplinkLatency(100);
+			fogDevices.add(cloud);
+			fogDevices.add(gateway);
+			moduleMapping.addModuleToDevice("store", "cloud");
+			moduleMapping.addModuleToDevice("analyzer", "gateway");
+			for(int i = 0; i < NUM_MOBILES; i++){
+				FogDevice mobile = createFogDevice("m-"+i, 1000, 0.0, 87.53, 82.44);
+				mobile.setParentId(gateway.getId());
+				mobile.setUplinkLatency(2);
+				fogDevices.add(mobile);
+				moduleMapping.addModuleToDevice("client", mobile.getName());
+				// the sensors transmit at different rates, so that the tuples overlap on the gateway
+				Sensor sensor = new Sensor("s-"+i, "DATA", broker.getId(), application.getAppId(),
+						new DeterministicDistribution(5 + 1.3*i));
+				sensor.setGatewayDeviceId(mobile.getId());
+				sensor.setLatency(6.0);
+				sensors.add(sensor);
+				Actuator display = new Actuator("a-"+i, broker.getId(), application.getAppId(), "DISPLAY");
+				display.setGatewayDeviceId(mobile.getId());
+				display.setLatency(1.0);
+				actuators.add(display);
+			}
+
+			Controller controller = new Controller("master-controller", fogDevices, sensors, actuators);
+			controller.submitApplication(application, 0,
+					new ModulePlacementMapping(fogDevices, application, moduleMapping));
+			SimulationReport report = CloudSim.startSimulation();
+			CloudSim.stopSimulation();
+			return report;
+		}
+	}
+
+	@SuppressWarnings({"serial"})
+	private static Application createApplication(String appId, int userId) {
+		Application application = Application.createApplication(appId, userId);
+		application.addAppModule("client", 10);
+		application.addAppModule("analyzer", 10);
+		application.addAppModule("store", 10);
+		application.addAppEdge("DATA", "client", 2000, 500, "DATA", Tuple.UP, AppEdge.SENSOR);
+		application.addAppEdge("client", "analyzer", 3500, 500, "RAW", Tuple.UP, AppEdge.MODULE);
+		application.addAppEdge("analyzer", "client", 700, 500, "RESULT", Tuple.DOWN, AppEdge.MODULE);
+		application.addAppEdge("analyzer", "store", 100, 1000, 100, "SUMMARY", Tuple.UP, AppEdge.MODULE);
+		application.addAppEdge("client", "DISPLAY", 1000, 500, "UPDATE", Tuple.DOWN, AppEdge.ACTUATOR);
+		application.addTupleMapping("client", "DATA", "RAW", new FractionalSelectivity(1.0));
+		application.addTupleMapping("analyzer", "RAW", "RESULT", new FractionalSelectivity(1.0));
+		application.addTupleMapping("client", "RESULT", "UPDATE", new FractionalSelectivity(1.0));
+		final AppLoop loop = new AppLoop(new ArrayList<String>(){{add("DATA");add("client");add("analyzer");add("client");add("DISPLAY");}});
+		application.setLoops(new ArrayList<AppLoop>(){{add(loop);}});
+		return application;
+	}
+
+	private static FogDevice createFogDevice(String name, long mips, double ratePerMips, double busyPower,
+			double idlePower) throws Exception {
+		List<Pe> peList = new ArrayList<Pe>();
+		peList.add(new Pe(0, new PeProvisionerOverbooking(mips)));
+		PowerHost host = new PowerHost(FogUtils.generateEntityId(), new RamProvisionerSimple(4000),
+				new BwProvisionerOverbooking(10000), 1000000, peList, new StreamOperatorScheduler(peList),
+				new FogLinearPowerModel(busyPower, idlePower));
+		List<Host> hostList = new ArrayList<Host>();
+		hostList.add(host);
+		FogDeviceCharacteristics characteristics = new FogDeviceCharacteristics("x86", "Linux", "Xen", host,
+				10.0, 3.0, 0.05, 0.001, 0.0);
+		return new FogDevice(name, characteristics, new AppModuleAllocationPolicy(hostList),
+				new LinkedList<Storage>(), 10, 10000, 10000, 0, ratePerMips);
+	}
+}
@@ -1,5 +1,15 @@
 package org.fog.utils;
 
+import java.util.Arrays;
+import java.util.List;
+
+import org.fog.network.LinkModel;
+
+/**
+ * Settings of the fog simulations. They are shared by all the simulations of the JVM, so replications running
+ * concurrently must be set up before they start and can't change them; the Controller of each simulation checks
+ * that they did not change while it ran.
+ */
 public class Config {
 
 	public static final double RESOURCE_MGMT_INTERVAL = 100;
@@ -13,4 +23,18 @@ public class Config {
 	public static double FOG_DEVICE_COST_PER_MEMORY = 0.05;
 	public static double FOG_DEVICE_COST_PER_STORAGE = 0.001;
 	public static double FOG_DEVICE_COST_PER_BW = 0.0;
+	public static LinkModel LINK_MODEL = LinkModel.SHARED;
+	public static boolean BROADCAST_DOWN_TUPLES = false;
+	public static boolean PROCESSOR_SHARING_TUPLE_SCHEDULER = true;
+	public static boolean PERIODIC_RESOURCE_MGMT = false;
+	
+	/**
+	 * @return the current settings, including those of the {@link Logger}, to detect changes
+	 */
+	public static List<Object> getValues(){
+		return Arrays.<Object>asList(MAX_SIMULATION_TIME, RESOURCE_MANAGE_INTERVAL, FOG_DEVICE_ARCH, FOG_DEVICE_OS,
+				FOG_DEVICE_VMM, FOG_DEVICE_TIMEZONE, FOG_DEVICE_COST, FOG_DEVICE_COST_PER_MEMORY,
+				FOG_DEVICE_COST_PER_STORAGE, FOG_DEVICE_COST_PER_BW, LINK_MODEL, BROADCAST_DOWN_TUPLES,
+				PROCESSOR_SHARING_TUPLE_SCHEDULER, PERIODIC_RESOURCE_MGMT, Logger.ENABLED, Logger.LOG_LEVEL);
+	}
 }
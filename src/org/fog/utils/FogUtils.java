@@ -1,15 +1,50 @@
 package org.fog.utils;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.cloudbus.cloudsim.core.SimulationContext;
+
 public class FogUtils {
-	private static int TUPLE_ID = 1;
-	private static int ENTITY_ID = 1;
-	private static int ACTUAL_TUPLE_ID = 1;
+	
+	/**
+	 * Id counters of a simulation. Entities creating tuples keep the counters of their simulation, so that they
+	 * do not look them up for each tuple.
+	 */
+	public static class IdGenerator {
+		private int tupleId = 1;
+		private int entityId = 1;
+		private int actualTupleId = 1;
+		
+		public int generateTupleId(){
+			return tupleId++;
+		}
+		
+		public int generateEntityId(){
+			return entityId++;
+		}
+		
+		public int generateActualTupleId(){
+			return actualTupleId++;
+		}
+	}
+	
+	/**
+	 * @return the id counters of the simulation running in the current thread
+	 */
+	public static IdGenerator getIdGenerator(){
+		SimulationContext context = SimulationContext.current();
+		IdGenerator ids = context.getExtension(IdGenerator.class);
+		if(ids == null){
+			ids = new IdGenerator();
+			context.setExtension(IdGenerator.class, ids);
+		}
+		return ids;
+	}
 	
 	public static int generateTupleId(){
-		return TUPLE_ID++;
+		return getIdGenerator().generateTupleId();
 	}
 	
 	public static String getSensorTypeFromSensorName(String sensorName){
@@ -17,11 +52,11 @@ public class FogUtils {
 	}
 	
 	public static int generateEntityId(){
-		return ENTITY_ID++;
+		return getIdGenerator().generateEntityId();
 	}
 	
 	public static int generateActualTupleId(){
-		return ACTUAL_TUPLE_ID++;
+		return getIdGenerator().generateActualTupleId();
 	}
 	
 	public static int USER_ID = 1;
@@ -29,5 +64,14 @@ public class FogUtils {
 	//public static int MAX = 10000000;
 	public static int MAX = 10000000;
 	
-	public static Map<String, GeoCoverage> appIdToGeoCoverageMap = new HashMap<String, GeoCoverage>();
+	/**
+	 * Coverage of the submitted applications. It is shared by all the simulations of the JVM, like {@link Config},
+	 * so it is synchronized for the replications submitting their applications concurrently.
+	 */
+	public static Map<String, GeoCoverage> appIdToGeoCoverageMap =
+			Collections.synchronizedMap(new HashMap<String, GeoCoverage>());
+	
+	public static Map<String, GeoCoverage> getAppIdToGeoCoverageMap(){
+		return appIdToGeoCoverageMap;
+	}
 }
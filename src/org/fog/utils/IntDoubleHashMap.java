@@ -0,0 +1,126 @@
+package org.fog.utils;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map from int keys to double values, without boxing. Missing keys are
+ * reported as NaN, so NaN should not be stored as a value.
+ */
+public class IntDoubleHashMap {
+
+	private static final int MIN_CAPACITY = 16;
+
+	private int[] keys;
+	private double[] values;
+	private boolean[] used;
+	private int size;
+	private int mask;
+
+	public IntDoubleHashMap(){
+		allocate(MIN_CAPACITY);
+	}
+
+	private void allocate(int capacity){
+		keys = new int[capacity];
+		values = new double[capacity];
+		used = new boolean[capacity];
+		mask = capacity - 1;
+	}
+
+	private int slot(int key){
+		int h = key * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & mask;
+	}
+
+	private int find(int key){
+		int i = slot(key);
+		while(used[i]){
+			if(keys[i] == key)
+				return i;
+			i = (i + 1) & mask;
+		}
+		return -1;
+	}
+
+	public boolean containsKey(int key){
+		return find(key) >= 0;
+	}
+
+	public double get(int key){
+		int i = find(key);
+		return i < 0 ? Double.NaN : values[i];
+	}
+
+	public void put(int key, double value){
+		int i = slot(key);
+		while(used[i]){
+			if(keys[i] == key){
+				values[i] = value;
+				return;
+			}
+			i = (i + 1) & mask;
+		}
+		used[i] = true;
+		keys[i] = key;
+		values[i] = value;
+		if(++size > (keys.length >> 1) + (keys.length >> 2))
+			rehash(keys.length << 1);
+	}
+
+	/**
+	 * Adds to the value of a key, a missing key counting as zero.
+	 * @return the new value
+	 */
+	public double addTo(int key, double delta){
+		int i = find(key);
+		if(i >= 0)
+			return values[i] += delta;
+		put(key, delta);
+		return delta;
+	}
+
+	public double remove(int key){
+		int i = find(key);
+		if(i < 0)
+			return Double.NaN;
+		double value = values[i];
+		// shift back the following entries of the probe sequence into the freed slot
+		int free = i;
+		int j = (i + 1) & mask;
+		while(used[j]){
+			int home = slot(keys[j]);
+			if(((j - home) & mask) >= ((j - free) & mask)){
+				keys[free] = keys[j];
+				values[free] = values[j];
+				free = j;
+			}
+			j = (j + 1) & mask;
+		}
+		used[free] = false;
+		size--;
+		if(keys.length > MIN_CAPACITY && size < (keys.length >> 3))
+			rehash(keys.length >> 1);
+		return value;
+	}
+
+	public int size(){
+		return size;
+	}
+
+	public void clear(){
+		Arrays.fill(used, false);
+		size = 0;
+	}
+
+	private void rehash(int capacity){
+		int[] oldKeys = keys;
+		double[] oldValues = values;
+		boolean[] oldUsed = used;
+		allocate(capacity);
+		size = 0;
+		for(int i = 0; i < oldKeys.length; i++){
+			if(oldUsed[i])
+				put(oldKeys[i], oldValues[i]);
+		}
+	}
+}
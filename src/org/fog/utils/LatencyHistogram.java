@@ -0,0 +1,112 @@
+package org.fog.utils;
+
+import java.util.Arrays;
+
+/**
+ * Streaming histogram of non-negative values with a bounded relative error, in the spirit of
+ * HdrHistogram: each power of two is split into {@link #SUB_BUCKETS} linear buckets, so the
+ * memory used only depends on the range of the recorded values, not on their number. Percentiles
+ * are accurate to within 1/SUB_BUCKETS of the value; the count, mean, min and max are exact.
+ */
+public class LatencyHistogram {
+
+	public static final int SUB_BUCKETS = 128;
+	private static final int SUB_BUCKET_BITS = 7;
+
+	private long[] counts = new long[0];
+	private int minExponent;
+	private long zeroCount;
+	private long count;
+	private double sum;
+	private double min = Double.NaN;
+	private double max = Double.NaN;
+
+	public void record(double value){
+		if(Double.isNaN(value))
+			return;
+		if(count == 0 || value < min)
+			min = value;
+		if(count == 0 || value > max)
+			max = value;
+		count++;
+		sum += value;
+		if(value <= 0 || value < Double.MIN_NORMAL){
+			zeroCount++;
+			return;
+		}
+		if(Double.isInfinite(value))
+			value = Double.MAX_VALUE;
+		int exponent = Math.getExponent(value);
+		if(counts.length == 0){
+			counts = new long[SUB_BUCKETS];
+			minExponent = exponent;
+		} else if(exponent < minExponent){
+			int shift = (minExponent - exponent) * SUB_BUCKETS;
+			long[] grown = new long[counts.length + shift];
+			System.arraycopy(counts, 0, grown, shift, counts.length);
+			counts = grown;
+			minExponent = exponent;
+		} else if((exponent - minExponent + 1) * SUB_BUCKETS > counts.length){
+			counts = Arrays.copyOf(counts, (exponent - minExponent + 1) * SUB_BUCKETS);
+		}
+		counts[indexOf(value, exponent)]++;
+	}
+
+	private int indexOf(double value, int exponent){
+		long mantissa = Double.doubleToRawLongBits(value) & 0x000FFFFFFFFFFFFFL;
+		int subBucket = (int) (mantissa >>> (52 - SUB_BUCKET_BITS));
+		return (exponent - minExponent) * SUB_BUCKETS + subBucket;
+	}
+
+	private double midpointOf(int index){
+		int exponent = minExponent + index / SUB_BUCKETS;
+		int subBucket = index % SUB_BUCKETS;
+		double low = Math.scalb(1.0 + (double) subBucket / SUB_BUCKETS, exponent);
+		double high = Math.scalb(1.0 + (double) (subBucket + 1) / SUB_BUCKETS, exponent);
+		return (low + high) / 2;
+	}
+
+	/**
+	 * Gets the value below which the given fraction of the recorded values fall.
+	 * @param quantile the fraction, between 0 and 1
+	 * @return the value, or NaN if nothing has been recorded
+	 */
+	public double getValueAtQuantile(double quantile){
+		if(count == 0)
+			return Double.NaN;
+		if(quantile <= 0)
+			return min;
+		if(quantile >= 1)
+			return max;
+		long rank = (long) Math.ceil(quantile * count);
+		if(rank <= zeroCount)
+			return Math.max(min, 0.0);
+		long seen = zeroCount;
+		for(int i = 0; i < counts.length; i++){
+			seen += counts[i];
+			if(seen >= rank)
+				return Math.min(max, Math.max(min, midpointOf(i)));
+		}
+		return max;
+	}
+
+	public double getPercentile(double percentile){
+		return getValueAtQuantile(percentile / 100);
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public double getMean() {
+		return count == 0 ? Double.NaN : sum / count;
+	}
+
+	public double getMin() {
+		return min;
+	}
+
+	public double getMax() {
+		return max;
+	}
+}
@@ -3,7 +3,12 @@ package org.fog.utils;
 import java.text.DecimalFormat;
 
 import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimulationContext;
 
+/**
+ * Logging of the fog entities. The level and the ENABLED flag are shared by all the simulations of the JVM, like
+ * {@link Config}.
+ */
 public class Logger {
 	
 	public static final int ERROR = 1;
@@ -15,20 +20,30 @@ public class Logger {
 	public static boolean ENABLED = false;;
 	
 	public static void setLogLevel(int level){
+		SimulationContext.checkSharedStateChange("The log level");
 		Logger.LOG_LEVEL = level;
 	}
 	
+	/**
+	 * Formats the clock for the simulations logging concurrently, as the format is not thread-safe.
+	 */
+	private static String formatClock(){
+		synchronized(df){
+			return df.format(CloudSim.clock());
+		}
+	}
+	
 	public static void debug(String name, String message){
 		if(!ENABLED)
 			return;
 		if(Logger.LOG_LEVEL <= Logger.DEBUG)
-			System.out.println(df.format(CloudSim.clock())+" : "+name+" : "+message);
+			System.out.println(formatClock()+" : "+name+" : "+message);
 	}
 	public static void error(String name, String message){
 		if(!ENABLED)
 			return;
 		if(Logger.LOG_LEVEL <= Logger.ERROR)
-			System.out.println(df.format(CloudSim.clock())+" : "+name+" : "+message);
+			System.out.println(formatClock()+" : "+name+" : "+message);
 	}
 	
 }
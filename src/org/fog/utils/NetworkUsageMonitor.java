@@ -1,14 +1,33 @@
 package org.fog.utils;
 
+import org.cloudbus.cloudsim.core.SimulationContext;
+
 public class NetworkUsageMonitor {
 
-	private static double networkUsage = 0.0;
+	private double networkUsage = 0.0;
 	
-	public static void sendingTuple(double latency, double tupleNwSize){
+	/**
+	 * @return the monitor of the simulation running in the current thread, which entities may keep
+	 */
+	public static NetworkUsageMonitor getInstance(){
+		SimulationContext context = SimulationContext.current();
+		NetworkUsageMonitor monitor = context.getExtension(NetworkUsageMonitor.class);
+		if(monitor == null){
+			monitor = new NetworkUsageMonitor();
+			context.setExtension(NetworkUsageMonitor.class, monitor);
+		}
+		return monitor;
+	}
+	
+	public void tupleSent(double latency, double tupleNwSize){
 		networkUsage += latency*tupleNwSize;
 	}
 	
+	public static void sendingTuple(double latency, double tupleNwSize){
+		getInstance().tupleSent(latency, tupleNwSize);
+	}
+	
 	public static double getNetworkUsage(){
-		return networkUsage;
+		return getInstance().networkUsage;
 	}
 }
@@ -0,0 +1,82 @@
+package org.fog.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Trace sink keeping the last records in a fixed-size binary ring buffer, so that tracing can be left on
+ * in long runs without console I/O or unbounded memory. Each record takes {@link #RECORD_SIZE} bytes: the
+ * event ordinal (1 byte), the time (8), the entity id (4), the tuple id (4) and the argument (8), big-endian.
+ */
+public class RingBufferTraceSink implements TraceSink {
+
+	public static final int RECORD_SIZE = 25;
+
+	private final ByteBuffer buffer;
+	private final int capacity;
+	private long count;
+
+	/**
+	 * @param capacity number of records kept
+	 */
+	public RingBufferTraceSink(int capacity){
+		if(capacity <= 0)
+			throw new IllegalArgumentException("Capacity must be positive: "+capacity);
+		if(capacity > Integer.MAX_VALUE/RECORD_SIZE)
+			throw new IllegalArgumentException("Capacity must be at most "+Integer.MAX_VALUE/RECORD_SIZE+": "+capacity);
+		this.capacity = capacity;
+		buffer = ByteBuffer.allocate(capacity*RECORD_SIZE);
+	}
+
+	@Override
+	public void record(TraceEvent event, double time, int entityId, int tupleId, long arg) {
+		int offset = (int) (count % capacity)*RECORD_SIZE;
+		buffer.put(offset, (byte) event.ordinal());
+		buffer.putDouble(offset+1, time);
+		buffer.putInt(offset+9, entityId);
+		buffer.putInt(offset+13, tupleId);
+		buffer.putLong(offset+17, arg);
+		count++;
+	}
+
+	/**
+	 * Gets the number of records traced since the sink was created, including the overwritten ones.
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Gets the number of records kept.
+	 */
+	public int size() {
+		return (int) Math.min(count, capacity);
+	}
+
+	private int getFirstRecord() {
+		return count <= capacity ? 0 : (int) (count % capacity);
+	}
+
+	/**
+	 * Passes the records kept to another sink, oldest first.
+	 */
+	public void replay(TraceSink sink) {
+		int first = getFirstRecord();
+		for(int i = 0; i < size(); i++){
+			int offset = ((first+i) % capacity)*RECORD_SIZE;
+			sink.record(TraceEvent.valueOf(buffer.get(offset)), buffer.getDouble(offset+1), buffer.getInt(offset+9),
+					buffer.getInt(offset+13), buffer.getLong(offset+17));
+		}
+	}
+
+	/**
+	 * Writes the records kept, oldest first, in their binary layout.
+	 */
+	public void writeTo(OutputStream out) throws IOException {
+		int first = getFirstRecord();
+		if(count > capacity)
+			out.write(buffer.array(), first*RECORD_SIZE, (capacity-first)*RECORD_SIZE);
+		out.write(buffer.array(), 0, (count > capacity ? first : size())*RECORD_SIZE);
+	}
+}
@@ -1,31 +1,38 @@
 package org.fog.utils;
 
 import java.util.HashMap;
-import java.util.List;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimulationContext;
 import org.fog.entities.Tuple;
 
 public class TimeKeeper {
 
-	private static TimeKeeper instance;
-	
 	private long simulationStartTime;
 	private int count; 
-	private Map<Integer, Double> emitTimes;
+	private IntDoubleHashMap emitTimes;
 	private Map<Integer, Double> endTimes;
-	private Map<Integer, List<Integer>> loopIdToTupleIds;
-	private Map<Integer, Double> tupleIdToCpuStartTime;
+	private Set<Integer> loopIds;
+	private IntDoubleHashMap tupleIdToCpuStartTime;
+	private IntDoubleHashMap tupleIdToRunningExecutions;
 	private Map<String, Double> tupleTypeToAverageCpuTime;
 	private Map<String, Integer> tupleTypeToExecutedTupleCount;
+	private Map<String, LatencyHistogram> tupleTypeToCpuTimeHistogram;
 	
 	private Map<Integer, Double> loopIdToCurrentAverage;
 	private Map<Integer, Integer> loopIdToCurrentNum;
+	private Map<Integer, LatencyHistogram> loopIdToDelayHistogram;
 	
 	public static TimeKeeper getInstance(){
-		if(instance == null)
+		SimulationContext context = SimulationContext.current();
+		TimeKeeper instance = context.getExtension(TimeKeeper.class);
+		if(instance == null){
 			instance = new TimeKeeper();
+			context.setExtension(TimeKeeper.class, instance);
+		}
 		return instance;
 	}
 	
@@ -35,12 +42,20 @@ public class TimeKeeper {
 	
 	public void tupleStartedExecution(Tuple tuple){
 		tupleIdToCpuStartTime.put(tuple.getCloudletId(), CloudSim.clock());
+		tupleIdToRunningExecutions.addTo(tuple.getCloudletId(), 1);
 	}
 	
 	public void tupleEndedExecution(Tuple tuple){
-		if(!tupleIdToCpuStartTime.containsKey(tuple.getCloudletId()))
+		// copies of a tuple share its id and the latest start time, which is dropped once all of them ended
+		double startTime = tupleIdToCpuStartTime.get(tuple.getCloudletId());
+		if(Double.isNaN(startTime))
 			return;
-		double executionTime = CloudSim.clock() - tupleIdToCpuStartTime.get(tuple.getCloudletId());
+		if(tupleIdToRunningExecutions.addTo(tuple.getCloudletId(), -1) <= 0){
+			tupleIdToCpuStartTime.remove(tuple.getCloudletId());
+			tupleIdToRunningExecutions.remove(tuple.getCloudletId());
+		}
+		double executionTime = CloudSim.clock() - startTime;
+		getHistogram(tupleTypeToCpuTimeHistogram, tuple.getTupleType()).record(executionTime);
 		if(!tupleTypeToAverageCpuTime.containsKey(tuple.getTupleType())){
 			tupleTypeToAverageCpuTime.put(tuple.getTupleType(), executionTime);
 			tupleTypeToExecutedTupleCount.put(tuple.getTupleType(), 1);
@@ -51,20 +66,64 @@ public class TimeKeeper {
 		}
 	}
 	
-	public Map<Integer, List<Integer>> loopIdToTupleIds(){
-		return getInstance().getLoopIdToTupleIds();
+	public void tupleEmitted(int loopId, int tupleId){
+		loopIds.add(loopId);
+		emitTimes.put(tupleId, CloudSim.clock());
+	}
+	
+	/**
+	 * Records the delay of a loop when its end module receives a tuple. Only the first tuple
+	 * carrying a given emitted tuple id counts.
+	 * @return false if the tuple was not emitted or has already ended the loop
+	 */
+	public boolean loopEnded(int loopId, int tupleId){
+		double startTime = emitTimes.remove(tupleId);
+		if(Double.isNaN(startTime))
+			return false;
+		if(!loopIdToCurrentAverage.containsKey(loopId)){
+			loopIdToCurrentAverage.put(loopId, 0.0);
+			loopIdToCurrentNum.put(loopId, 0);
+		}
+		double currentAverage = loopIdToCurrentAverage.get(loopId);
+		int currentCount = loopIdToCurrentNum.get(loopId);
+		double delay = CloudSim.clock() - startTime;
+		double newAverage = (currentAverage*currentCount + delay)/(currentCount+1);
+		loopIdToCurrentAverage.put(loopId, newAverage);
+		loopIdToCurrentNum.put(loopId, currentCount+1);
+		getHistogram(loopIdToDelayHistogram, loopId).record(delay);
+		return true;
+	}
+	
+	/**
+	 * Forgets the emission time of a tuple that can no longer end its loop, such as one whose execution on the
+	 * loop path produced no tuple continuing it, so that only tuples in flight are kept.
+	 */
+	public void loopAbandoned(int tupleId){
+		emitTimes.remove(tupleId);
+	}
+	
+	private static <K> LatencyHistogram getHistogram(Map<K, LatencyHistogram> histograms, K key){
+		LatencyHistogram histogram = histograms.get(key);
+		if(histogram == null){
+			histogram = new LatencyHistogram();
+			histograms.put(key, histogram);
+		}
+		return histogram;
 	}
 	
 	private TimeKeeper(){
 		count = 1;
-		setEmitTimes(new HashMap<Integer, Double>());
+		setEmitTimes(new IntDoubleHashMap());
 		setEndTimes(new HashMap<Integer, Double>());
-		setLoopIdToTupleIds(new HashMap<Integer, List<Integer>>());
+		setLoopIds(new HashSet<Integer>());
 		setTupleTypeToAverageCpuTime(new HashMap<String, Double>());
 		setTupleTypeToExecutedTupleCount(new HashMap<String, Integer>());
-		setTupleIdToCpuStartTime(new HashMap<Integer, Double>());
+		setTupleTypeToCpuTimeHistogram(new HashMap<String, LatencyHistogram>());
+		setTupleIdToCpuStartTime(new IntDoubleHashMap());
+		tupleIdToRunningExecutions = new IntDoubleHashMap();
 		setLoopIdToCurrentAverage(new HashMap<Integer, Double>());
 		setLoopIdToCurrentNum(new HashMap<Integer, Integer>());
+		setLoopIdToDelayHistogram(new HashMap<Integer, LatencyHistogram>());
 	}
 	
 	public int getCount() {
@@ -75,11 +134,11 @@ public class TimeKeeper {
 		this.count = count;
 	}
 
-	public Map<Integer, Double> getEmitTimes() {
+	public IntDoubleHashMap getEmitTimes() {
 		return emitTimes;
 	}
 
-	public void setEmitTimes(Map<Integer, Double> emitTimes) {
+	public void setEmitTimes(IntDoubleHashMap emitTimes) {
 		this.emitTimes = emitTimes;
 	}
 
@@ -91,12 +150,12 @@ public class TimeKeeper {
 		this.endTimes = endTimes;
 	}
 
-	public Map<Integer, List<Integer>> getLoopIdToTupleIds() {
-		return loopIdToTupleIds;
+	public Set<Integer> getLoopIds() {
+		return loopIds;
 	}
 
-	public void setLoopIdToTupleIds(Map<Integer, List<Integer>> loopIdToTupleIds) {
-		this.loopIdToTupleIds = loopIdToTupleIds;
+	public void setLoopIds(Set<Integer> loopIds) {
+		this.loopIds = loopIds;
 	}
 
 	public Map<String, Double> getTupleTypeToAverageCpuTime() {
@@ -117,14 +176,22 @@ public class TimeKeeper {
 		this.tupleTypeToExecutedTupleCount = tupleTypeToExecutedTupleCount;
 	}
 
-	public Map<Integer, Double> getTupleIdToCpuStartTime() {
+	public IntDoubleHashMap getTupleIdToCpuStartTime() {
 		return tupleIdToCpuStartTime;
 	}
 
-	public void setTupleIdToCpuStartTime(Map<Integer, Double> tupleIdToCpuStartTime) {
+	public void setTupleIdToCpuStartTime(IntDoubleHashMap tupleIdToCpuStartTime) {
 		this.tupleIdToCpuStartTime = tupleIdToCpuStartTime;
 	}
 
+	public Map<String, LatencyHistogram> getTupleTypeToCpuTimeHistogram() {
+		return tupleTypeToCpuTimeHistogram;
+	}
+
+	public void setTupleTypeToCpuTimeHistogram(Map<String, LatencyHistogram> tupleTypeToCpuTimeHistogram) {
+		this.tupleTypeToCpuTimeHistogram = tupleTypeToCpuTimeHistogram;
+	}
+
 	public long getSimulationStartTime() {
 		return simulationStartTime;
 	}
@@ -148,6 +215,14 @@ public class TimeKeeper {
 	public void setLoopIdToCurrentNum(Map<Integer, Integer> loopIdToCurrentNum) {
 		this.loopIdToCurrentNum = loopIdToCurrentNum;
 	}
+
+	public Map<Integer, LatencyHistogram> getLoopIdToDelayHistogram() {
+		return loopIdToDelayHistogram;
+	}
+
+	public void setLoopIdToDelayHistogram(Map<Integer, LatencyHistogram> loopIdToDelayHistogram) {
+		this.loopIdToDelayHistogram = loopIdToDelayHistogram;
+	}
 	
 	
 }
@@ -0,0 +1,57 @@
+package org.fog.utils;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+
+/**
+ * Kinds of the records traced by {@link Tracer}. Each record holds the simulation time, the entity it
+ * happened at, the id of the tuple concerned and one event-specific argument.
+ */
+public enum TraceEvent {
+	/**
+	 * A sensor sent a tuple; the argument is the index of the sensor in its group, or -1
+	 */
+	TUPLE_EMITTED,
+	/**
+	 * A fog device received a tuple; the argument is the id of the sending entity
+	 */
+	TUPLE_RECEIVED,
+	/**
+	 * A module instance started executing a tuple; the argument is the id of the instance
+	 */
+	TUPLE_EXECUTION_STARTED,
+	/**
+	 * A module instance completed the execution of a tuple; the argument is the id of the instance
+	 */
+	TUPLE_EXECUTION_COMPLETED,
+	/**
+	 * An actuator received a tuple; the argument is the id of the sending entity
+	 */
+	TUPLE_DELIVERED;
+
+	private static final TraceEvent[] VALUES = values();
+
+	public static TraceEvent valueOf(int ordinal){
+		return VALUES[ordinal];
+	}
+
+	/**
+	 * Describes a record of this kind as a debug message. Only the fields of the record are available, so the
+	 * tuple type and module names printed by the former debug messages are not.
+	 */
+	public String describe(int tupleId, long arg){
+		switch(this){
+		case TUPLE_EMITTED:
+			return "Sending tuple with tupleId = "+tupleId+(arg >= 0 ? " from sensor "+arg : "");
+		case TUPLE_RECEIVED:
+			return "Received tuple "+tupleId+" | Source : "+CloudSim.getEntityName((int) arg);
+		case TUPLE_EXECUTION_STARTED:
+			return "Executing tuple "+tupleId+" on module instance "+arg;
+		case TUPLE_EXECUTION_COMPLETED:
+			return "Completed execution of tuple "+tupleId+" on module instance "+arg;
+		case TUPLE_DELIVERED:
+			return "Received tuple "+tupleId+" from "+CloudSim.getEntityName((int) arg);
+		default:
+			return name()+" "+tupleId+" "+arg;
+		}
+	}
+}
@@ -0,0 +1,10 @@
+package org.fog.utils;
+
+/**
+ * Destination of the records traced by {@link Tracer}.
+ */
+public interface TraceSink {
+
+	void record(TraceEvent event, double time, int entityId, int tupleId, long arg);
+
+}
@@ -0,0 +1,76 @@
+package org.fog.utils;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimulationContext;
+
+/**
+ * Structured tracing of the simulation. Trace points pass typed records made of primitives, so that nothing
+ * is formatted or allocated unless a sink is installed for the running simulation, or {@link Logger#ENABLED}
+ * is set, in which case records are printed as debug messages.
+ */
+public class Tracer {
+
+	/**
+	 * Compile-time switch: when false, the body of {@link #trace} is dead code and the JIT drops the calls.
+	 */
+	public static final boolean COMPILED = true;
+
+	private static final TraceSink LOGGER_SINK = new TraceSink() {
+		@Override
+		public void record(TraceEvent event, double time, int entityId, int tupleId, long arg) {
+			Logger.debug(CloudSim.getEntityName(entityId), event.describe(tupleId, arg));
+		}
+	};
+
+	private static class State {
+		private TraceSink sink;
+	}
+
+	/**
+	 * Set once a sink is installed in any simulation, so that the trace points of the simulations without
+	 * sinks skip the lookup of the context as long as no simulation traces.
+	 */
+	private static volatile boolean sinkInstalled;
+
+	/**
+	 * Installs the sink receiving the records of the simulation running in the current thread. The sink is held
+	 * by the simulation context, so it goes away with it.
+	 * @param sink the sink, or null to stop tracing
+	 */
+	public static void setSink(TraceSink sink){
+		SimulationContext context = SimulationContext.current();
+		State state = context.getExtension(State.class);
+		if(state == null){
+			if(sink == null)
+				return;
+			state = new State();
+			context.setExtension(State.class, state);
+		}
+		state.sink = sink;
+		if(sink != null)
+			sinkInstalled = true;
+	}
+
+	public static TraceSink getSink(){
+		if(!sinkInstalled)
+			return null;
+		State state = SimulationContext.current().getExtension(State.class);
+		return state == null ? null : state.sink;
+	}
+
+	public static boolean isEnabled(){
+		return COMPILED && (Logger.ENABLED || getSink() != null);
+	}
+
+	public static void trace(TraceEvent event, int entityId, int tupleId, long arg){
+		if(!COMPILED)
+			return;
+		TraceSink sink = getSink();
+		if(sink == null){
+			if(!Logger.ENABLED)
+				return;
+			sink = LOGGER_SINK;
+		}
+		sink.record(event, CloudSim.clock(), entityId, tupleId, arg);
+	}
+}